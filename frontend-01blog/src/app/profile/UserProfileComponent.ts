@@ -222,9 +222,12 @@ export class UserProfileComponent implements OnInit {
         return;
       }
       this.profileService.uploadAvatar(file).subscribe({
-        next: (res: any) => {
-          const url = res.secure_url || res.url;
-          this.editForm.update(curr => ({ ...curr, avatarUrl: url }));
+        next: (state) => {
+          if (state.status === 'READY' && state.avatarUrl) {
+            this.editForm.update(curr => ({ ...curr, avatarUrl: state.avatarUrl! }));
+          } else {
+            this.toastService.show(state.status === 'FAILED' ? "Avatar upload failed" : "Avatar is still processing", 'error');
+          }
         },
         error: (err) => {
           // console.error('Avatar upload failed', err)
@@ -1,6 +1,7 @@
 import { inject, Injectable } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
-import { Observable } from 'rxjs';
+import { Observable, timer } from 'rxjs';
+import { last, switchMap, take, takeWhile } from 'rxjs/operators';
 
 export interface UserProfileDto {
   id: number;
@@ -14,6 +15,12 @@ export interface UserProfileDto {
   avatarUrl?: string;
 }
 
+export interface AvatarState {
+  status: 'PENDING' | 'READY' | 'FAILED';
+  uploadId?: string;
+  avatarUrl?: string;
+}
+
 @Injectable({
   providedIn: 'root'
 })
@@ -37,10 +44,18 @@ export class UserProfileService {
     return this.http.put(`${this.apiUrl}/users/profile`, data);
   }
 
-  uploadAvatar(file: File): Observable<any> {
+  // The server answers 202 once the file is staged; poll the avatar state until the upload settles
+  uploadAvatar(file: File): Observable<AvatarState> {
     const formData = new FormData();
     formData.append('file', file);
-    return this.http.post(`${this.apiUrl}/users/avatar`, formData);
+    return this.http.post<AvatarState>(`${this.apiUrl}/users/avatar`, formData).pipe(
+      switchMap(() => timer(1000, 1000).pipe(
+        switchMap(() => this.http.get<AvatarState>(`${this.apiUrl}/users/avatar`)),
+        takeWhile(state => state.status === 'PENDING', true),
+        take(120),
+        last()
+      ))
+    );
   }
 
   // Helper search method
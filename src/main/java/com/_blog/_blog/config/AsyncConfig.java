@@ -0,0 +1,97 @@
+package com._blog._blog.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Bounded executors for work that must not run on the request thread ( Background Processing)
+// None of them runs rejected work on the caller: that would put a 50k-follower fan-out back on a request or commit
+// thread. Producers take from a durable backlog only what the pool has room for, and hand back what is still rejected.
+@Configuration
+public class AsyncConfig {
+
+    // Follower notification fan-out. The backlog is notification_fanout_jobs: the drainer leases no more jobs than the
+    // queue has room for, and a job the pool still rejects is released back to the table.
+    @Bean(name = "notificationFanoutExecutor")
+    public ThreadPoolTaskExecutor notificationFanoutExecutor(
+            @Value("${notifications.fanout.pool-size:2}") int poolSize,
+            @Value("${notifications.fanout.queue-capacity:1000}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        Counter backpressure = Counter.builder("notifications.fanout.backpressure")
+                .description("Fan-out jobs left in the job table because the queue was full")
+                .register(meterRegistry);
+        ThreadPoolExecutor.AbortPolicy abort = new ThreadPoolExecutor.AbortPolicy();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("notify-fanout-");
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            backpressure.increment();
+            abort.rejectedExecution(task, pool);
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+
+        Gauge.builder("notifications.fanout.queue.depth", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("notifications.fanout.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .register(meterRegistry);
+        return executor;
+    }
+
+    // Outbox lanes. The backlog is the outbox itself: a poll leases no more events than the queue has room for, and
+    // lanes the pool still rejects have their lease released
+    @Bean(name = "outboxDispatchExecutor")
+    public ThreadPoolTaskExecutor outboxDispatchExecutor(@Value("${outbox.dispatcher.threads:4}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("outbox-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // Loads and pushes SSE notifications so the LISTEN thread never waits on the database. Rejected pushes are
+    // remembered per user and replayed from the notifications table once the pool has room
+    @Bean(name = "notificationPushExecutor")
+    public ThreadPoolTaskExecutor notificationPushExecutor(@Value("${notifications.stream.push-threads:2}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("notify-push-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // Media uploads accepted from requests; a full queue fails the upload instead of blocking the request
+    @Bean(name = "mediaPipelineExecutor")
+    public ThreadPoolTaskExecutor mediaPipelineExecutor(
+            @Value("${media.pipeline.threads:4}") int threads,
+            @Value("${media.pipeline.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("media-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+}
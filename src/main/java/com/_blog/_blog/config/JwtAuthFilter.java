@@ -10,27 +10,43 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.util.AntPathMatcher;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys; 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import com._blog._blog.service.StreamTicketService;
 
 import java.io.IOException;
 import java.security.Key;
 import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Component 
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final Key key;
+    // JJWT parsers are immutable and thread-safe; build once instead of per request
+    private final JwtParser jwtParser;
     private final AntPathMatcher pathMatcher = new AntPathMatcher();
 
     // Shared JWT secret key for token validation (must match AuthService key) (Secure Token Management)
     private final String jwtSecretBase64 = "L7mF9tA5bG1cE3dU2iJ6kH0vQ4sO8rI7uW6xV9zY1wE3tD2gC5jB4kF7tP8oQ0rN9sM1v7hC6aG2bF1yT5uR3oP0wN8jK4dL7mF9tA5bG1cE3dU2iJ6kH0vQ4sO8rI7uW6xV9zY1wE3tD2gC5jB4kF7tP8oQ0rN9sM1v7hC6aG2bF1yT5uR3oP0wN8jK4dL7mF9tA5bG1cE3dU2iJ6kH0vQ4sO8rI7uW6xV9zY1wE3tD";
 
     private final com._blog._blog.repository.UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final StreamTicketService streamTicketService;
+    private final Timer filterTimer;
 
-    public JwtAuthFilter(com._blog._blog.repository.UserRepository userRepository) {
+    public JwtAuthFilter(com._blog._blog.repository.UserRepository userRepository, PrincipalCache principalCache,
+                         StreamTicketService streamTicketService, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.streamTicketService = streamTicketService;
         this.key = Keys.hmacShaKeyFor(Base64.getDecoder().decode(jwtSecretBase64));
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.filterTimer = Timer.builder("auth.jwt.filter").description("Token parsing and principal resolution").register(meterRegistry);
     }
 
     // Bypass JWT validation for authentication endpoints (login/register do not require existing token)
@@ -47,54 +63,70 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
 
         String authHeader = request.getHeader("Authorization");
-
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
+            long started = System.nanoTime();
             try {
-                Claims claims = Jwts.parserBuilder()
-                        .setSigningKey(key) 
-                        .build()
-                        .parseClaimsJws(token)
-                        .getBody();
-
-                String username = claims.getSubject();
-                
-                // Real-time user validation: checks current ban status and role from database, not stale token claims ( Admin Ban Enforcement)
-                if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    var userOpt = userRepository.findByUsername(username);
-                    
-                    if (userOpt.isPresent()) {
-                        var user = userOpt.get();
-                        
-                        // Immediate rejection of banned users prevents any API access
-                        if (user.isBanned()) {
-                            // Return 200 OK with error details to prevent browser console 403 errors
-                            response.setStatus(HttpServletResponse.SC_OK);
-                            response.setContentType("application/json");
-                            response.getWriter().write("{\"status\": 403, \"error\": \"User is banned\"}");
-                            return;
-                        }
-
-                        // Using current role from database ensures role changes take effect immediately without re-login
-                        String role = user.getRole();
-
-                        java.util.List<org.springframework.security.core.authority.SimpleGrantedAuthority> authorities = new java.util.ArrayList<>();
-                        if (role != null) {
-                            authorities.add(new org.springframework.security.core.authority.SimpleGrantedAuthority(role));
-                            authorities.add(new org.springframework.security.core.authority.SimpleGrantedAuthority("ROLE_" + role));
-                        }
-
-                        UsernamePasswordAuthenticationToken auth =
-                                new UsernamePasswordAuthenticationToken(username, null, authorities);
-                        SecurityContextHolder.getContext().setAuthentication(auth);
-                    }
+                Claims claims = jwtParser.parseClaimsJws(authHeader.substring(7)).getBody();
+                if (!authenticate(claims.getSubject(), response)) {
+                    return;
                 }
-
             } catch (Exception e) {
                 SecurityContextHolder.clearContext();
+            } finally {
+                filterTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        } else if (pathMatcher.match("/api/notifications/stream", request.getServletPath())
+                && request.getParameter("ticket") != null) {
+            // EventSource cannot send headers, so the notification stream takes a single-use ?ticket= instead of
+            // the JWT, which would otherwise be written to access logs (see StreamTicketService)
+            Optional<String> username = streamTicketService.redeem(request.getParameter("ticket"));
+            if (username.isPresent() && !authenticate(username.get(), response)) {
+                return;
             }
         }
         filterChain.doFilter(request, response);
         
     }
-}
\ No newline at end of file
+
+    // Near-real-time user validation: ban status and role come from the database through a short-lived
+    // cache (evicted on ban/role changes), not from stale token claims ( Admin Ban Enforcement)
+    // Returns false when the response has been written because the user is banned
+    private boolean authenticate(String username, HttpServletResponse response) throws IOException {
+        if (username == null || SecurityContextHolder.getContext().getAuthentication() != null) {
+            return true;
+        }
+        var userOpt = principalCache.get(username, this::loadPrincipal);
+        if (userOpt.isEmpty()) {
+            return true;
+        }
+        var user = userOpt.get();
+
+        // Immediate rejection of banned users prevents any API access
+        if (user.isBanned()) {
+            // Return 200 OK with error details to prevent browser console 403 errors
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType("application/json");
+            response.getWriter().write("{\"status\": 403, \"error\": \"User is banned\"}");
+            return false;
+        }
+
+        // Using current role from database ensures role changes take effect immediately without re-login
+        String role = user.getRole();
+
+        java.util.List<org.springframework.security.core.authority.SimpleGrantedAuthority> authorities = new java.util.ArrayList<>();
+        if (role != null) {
+            authorities.add(new org.springframework.security.core.authority.SimpleGrantedAuthority(role));
+            authorities.add(new org.springframework.security.core.authority.SimpleGrantedAuthority("ROLE_" + role));
+        }
+
+        UsernamePasswordAuthenticationToken auth =
+                new UsernamePasswordAuthenticationToken(username, null, authorities);
+        SecurityContextHolder.getContext().setAuthentication(auth);
+        return true;
+    }
+
+    private Optional<PrincipalCache.CachedPrincipal> loadPrincipal(String username) {
+        return userRepository.findByUsername(username)
+                .map(u -> new PrincipalCache.CachedPrincipal(u.getId(), u.getUsername(), u.getRole(), u.isBanned()));
+    }
+}
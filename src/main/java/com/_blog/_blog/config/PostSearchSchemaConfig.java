@@ -0,0 +1,40 @@
+package com._blog._blog.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Search schema steps that must run before Hibernate's ddl-auto ( Post Search)
+// posts.search_vector used to be a STORED generated column over title and content. Hibernate's schema update
+// re-issues ALTER COLUMN ... TYPE text for posts.content on every start, which Postgres rejects while a generated
+// column depends on it, and the failed statement takes the whole startup down. Such a column is turned into a
+// plain one (its data kept) before the EntityManagerFactory is built; PostSearchService maintains it from then on.
+@Configuration
+public class PostSearchSchemaConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(PostSearchSchemaConfig.class);
+
+    @Bean
+    public InitializingBean postSearchLegacyColumn(JdbcTemplate jdbcTemplate) {
+        return () -> {
+            Boolean generated = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_attribute WHERE attrelid = to_regclass('posts') " +
+                    "AND attname = 'search_vector' AND attgenerated = 's')", Boolean.class);
+            if (Boolean.TRUE.equals(generated)) {
+                jdbcTemplate.execute("ALTER TABLE posts ALTER COLUMN search_vector DROP EXPRESSION");
+                log.info("posts.search_vector is no longer a generated column");
+            }
+        };
+    }
+
+    @Configuration
+    static class EntityManagerFactoryAfterSearchSchema extends EntityManagerFactoryDependsOnPostProcessor {
+        EntityManagerFactoryAfterSearchSchema() {
+            super("postSearchLegacyColumn");
+        }
+    }
+}
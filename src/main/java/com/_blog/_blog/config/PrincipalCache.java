@@ -0,0 +1,118 @@
+package com._blog._blog.config;
+
+import com._blog._blog.event.CacheInvalidationBus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Bounded TTL cache of what JwtAuthFilter needs per request: id, role and ban status ( Secure Token Management)
+// Entries live for at most principal-cache.ttl-seconds, which bounds how long a ban or role change can go unnoticed
+// even if an eviction is missed. UserService publishes USER invalidations on ban, promote, demote and delete, and
+// CacheInvalidationBus applies them on every node.
+@Component
+public class PrincipalCache {
+
+    public static final class CachedPrincipal {
+        private final Long id;
+        private final String username;
+        private final String role;
+        private final boolean banned;
+
+        public CachedPrincipal(Long id, String username, String role, boolean banned) {
+            this.id = id;
+            this.username = username;
+            this.role = role;
+            this.banned = banned;
+        }
+
+        public Long getId() { return id; }
+        public String getUsername() { return username; }
+        public String getRole() { return role; }
+        public boolean isBanned() { return banned; }
+    }
+
+    private static final class Entry {
+        final CachedPrincipal principal;
+        final long expiresAt;
+
+        Entry(CachedPrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    @Value("${principal-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${principal-cache.max-size:10000}")
+    private int maxSize;
+
+    public PrincipalCache(MeterRegistry meterRegistry, CacheInvalidationBus cacheInvalidationBus) {
+        this.hits = Counter.builder("auth.principal.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("auth.principal.cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("auth.principal.cache.size", entries, ConcurrentHashMap::size).register(meterRegistry);
+        cacheInvalidationBus.register(CacheInvalidationBus.Type.USER, this::evict, this::clear);
+    }
+
+    // Unknown users are not cached, so a freshly registered account is seen on its first request
+    public Optional<CachedPrincipal> get(String username, Function<String, Optional<CachedPrincipal>> loader) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(username);
+        if (entry != null && entry.expiresAt - now > 0) {
+            hits.increment();
+            return Optional.of(entry.principal);
+        }
+        misses.increment();
+        Optional<CachedPrincipal> loaded = loader.apply(username);
+        loaded.ifPresent(p -> {
+            if (entries.size() >= maxSize) {
+                shrink(now);
+            }
+            entries.put(username, new Entry(p, now + ttlSeconds * 1_000_000_000L));
+        });
+        return loaded;
+    }
+
+    // Evicts now and again after the surrounding transaction commits, so a request that reloaded the
+    // old row in between cannot keep it cached
+    public void evict(String username) {
+        entries.remove(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entries.remove(username);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    // Drop expired entries first; if still full, drop an arbitrary tenth (they are cheap to reload)
+    private void shrink(long now) {
+        entries.values().removeIf(e -> e.expiresAt - now <= 0);
+        int toDrop = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (toDrop-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
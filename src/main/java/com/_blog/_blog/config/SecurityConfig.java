@@ -1,6 +1,7 @@
 package com._blog._blog.config;
 
 import com._blog._blog.service.UserDetailsServiceImpl;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -62,7 +63,7 @@ public class SecurityConfig {
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS")); 
         
         // Allow necessary headers for JWT
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-Requested-With"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-Requested-With", "Last-Event-ID"));
         
         // Allow credentials (useful if you ever use HttpOnly cookies)
         configuration.setAllowCredentials(true);
@@ -82,11 +83,18 @@ public class SecurityConfig {
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             
             .authorizeHttpRequests(auth -> auth
+                // Async re-dispatches of SSE streams were already authorized on the original request
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+
                 // Always allow preflight OPTIONS requests
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                 
                 // PUBLIC: Only login and registration are allowed without a token
                 .requestMatchers("/api/auth/**").permitAll() 
+
+                // PUBLIC: media files of the local storage backend, like Cloudinary delivery URLs
+                .requestMatchers(HttpMethod.GET, "/media/**").permitAll()
+                .requestMatchers(HttpMethod.HEAD, "/media/**").permitAll()
                 
                 // SECURE: Posts, Comments, and User profiles now REQUIRE a token
                 .requestMatchers("/api/posts/**").authenticated()
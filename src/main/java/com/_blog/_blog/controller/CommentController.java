@@ -2,6 +2,8 @@ package com._blog._blog.controller;
 
 import com._blog._blog.dto.CommentResponse;
 import com._blog._blog.dto.CreateCommentRequest;
+import com._blog._blog.dto.CommentPage;
+import com._blog._blog.dto.CursorPage;
 import com._blog._blog.service.CommentService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -23,6 +25,7 @@ public class CommentController {
     public ResponseEntity<CommentResponse> addComment(
             @RequestParam("content") String content,
             @RequestParam("postId") Long postId,
+            @RequestParam(value = "parentId", required = false) Long parentId,
             @RequestParam(value = "file", required = false) org.springframework.web.multipart.MultipartFile file,
             Principal principal) {
         
@@ -33,6 +36,7 @@ public class CommentController {
         CreateCommentRequest request = new CreateCommentRequest();
         request.setContent(content);
         request.setPostId(postId);
+        request.setParentId(parentId);
 
         CommentResponse response = commentService.addCommentWithMedia(request, file, principal.getName());
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
@@ -44,6 +48,34 @@ public class CommentController {
         return ResponseEntity.ok(comments);
     }
 
+    // Cursor-paged variant, selected when `limit` is present; also returns the post's commentCount
+    @GetMapping(value = "/post/{postId}", params = "limit")
+    public ResponseEntity<CommentPage> getCommentsByPostBefore(
+            @PathVariable Long postId,
+            @RequestParam(required = false) String before,
+            @RequestParam int limit) {
+        return ResponseEntity.ok(commentService.getCommentsByPostBefore(postId, before, limit));
+    }
+
+    // Threaded view: top-level comments newest first, each with its first `replies` replies and replyCount
+    @GetMapping("/post/{postId}/threads")
+    public ResponseEntity<CommentPage> getThreadsByPost(
+            @PathVariable Long postId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "3") int replies) {
+        return ResponseEntity.ok(commentService.getThreadsByPost(postId, before, limit, replies));
+    }
+
+    // Expands a thread one level at a time: direct replies of a comment, oldest first
+    @GetMapping("/{id}/replies")
+    public ResponseEntity<CursorPage<CommentResponse>> getReplies(
+            @PathVariable Long id,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(commentService.getReplies(id, after, limit));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteComment(@PathVariable Long id, Principal principal) {
         if (principal == null) {
@@ -1,29 +1,76 @@
 package com._blog._blog.controller;
 
-import com._blog._blog.model.Notification;
+import com._blog._blog.dto.CursorPage;
+import com._blog._blog.dto.NotificationResponse;
+import com._blog._blog.model.User;
+import com._blog._blog.repository.UserRepository;
 import com._blog._blog.service.NotificationService;
+import com._blog._blog.service.NotificationStreamService;
+import com._blog._blog.service.StreamTicketService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.security.Principal;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/notifications")
 public class NotificationController {
     
     private final NotificationService notificationService;
+    private final NotificationStreamService notificationStreamService;
+    private final StreamTicketService streamTicketService;
+    private final UserRepository userRepository;
 
-    public NotificationController(NotificationService notificationService) {
+    public NotificationController(NotificationService notificationService,
+                                  NotificationStreamService notificationStreamService,
+                                  StreamTicketService streamTicketService,
+                                  UserRepository userRepository) {
         this.notificationService = notificationService;
+        this.notificationStreamService = notificationStreamService;
+        this.streamTicketService = streamTicketService;
+        this.userRepository = userRepository;
+    }
+
+    // Single-use ticket for opening the stream: GET /api/notifications/stream?ticket=<ticket> within a few seconds
+    @PostMapping("/stream-ticket")
+    public ResponseEntity<Map<String, String>> streamTicket(Principal principal) {
+        if (principal == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        Long userId = userRepository.findIdByUsername(principal.getName())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+        return ResponseEntity.ok(Map.of("ticket", streamTicketService.issue(userId)));
+    }
+
+    // Push channel replacing unread-count polling; EventSource resends the last seen id as Last-Event-ID on reconnect
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(Principal principal,
+                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        if (principal == null) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        User user = userRepository.findByUsername(principal.getName())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+        return notificationStreamService.subscribe(user.getId(), lastEventId);
     }
 
     @GetMapping
-    public ResponseEntity<List<Notification>> getNotifications(Principal principal) {
+    public ResponseEntity<List<NotificationResponse>> getNotifications(Principal principal) {
         if (principal == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         return ResponseEntity.ok(notificationService.getUserNotifications(principal.getName()));
     }
 
+    // Keyset-paged variant: GET /api/notifications?limit=20[&before=<nextCursor>]
+    @GetMapping(params = "limit")
+    public ResponseEntity<CursorPage<NotificationResponse>> getNotificationsPage(
+            Principal principal,
+            @RequestParam(required = false) String before,
+            @RequestParam int limit) {
+        if (principal == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        return ResponseEntity.ok(notificationService.getUserNotificationsBefore(principal.getName(), before, limit));
+    }
+
     @GetMapping("/unread-count")
     public ResponseEntity<Long> getUnreadCount(Principal principal) {
         if (principal == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
@@ -31,8 +78,9 @@ public class NotificationController {
     }
 
     @PutMapping("/{id}/read")
-    public ResponseEntity<Void> markAsRead(@PathVariable Long id) {
-        notificationService.markAsRead(id);
+    public ResponseEntity<Void> markAsRead(@PathVariable Long id, Principal principal) {
+        if (principal == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        notificationService.markAsRead(id, principal.getName());
         return ResponseEntity.ok().build();
     }
 
@@ -1,12 +1,14 @@
 package com._blog._blog.controller;
 
 import com._blog._blog.dto.CreatePostRequest;
+import com._blog._blog.dto.CursorPage;
 import com._blog._blog.dto.PostResponse;
 import com._blog._blog.service.PostService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.util.List;
 import org.springframework.web.multipart.MultipartFile;
 
 import org.springframework.data.domain.Page;
@@ -86,6 +88,38 @@ public class PostController {
         return ResponseEntity.ok(posts);
     }
 
+    // Cursor-paged feed: selected when the client sends `limit` (?before=<cursor>&limit=)
+    @GetMapping(params = "limit")
+    public ResponseEntity<CursorPage<PostResponse>> getFeed(
+            @RequestParam(required = false) String before,
+            @RequestParam int limit
+    ) {
+        return ResponseEntity.ok(postService.getFeed(before, limit));
+    }
+
+    // Trending posts (time-decayed likes, comments and views), best first
+    @GetMapping("/trending")
+    public ResponseEntity<List<PostResponse>> getTrending(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(postService.getTrending(limit));
+    }
+
+    // View signal for trending; counted in memory once per viewer and window, 404 for missing or hidden posts
+    @PostMapping("/{id}/view")
+    public ResponseEntity<Void> recordView(@PathVariable Long id) {
+        postService.recordView(id);
+        return ResponseEntity.accepted().build();
+    }
+
+    // Full-text search over titles and content, ranked (?q=&after=<cursor>&limit=)
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<PostResponse>> searchPosts(
+            @RequestParam String q,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(postService.searchPosts(q, after, limit));
+    }
+
     @GetMapping("/user/{userId}")
     public ResponseEntity<Page<PostResponse>> getPostsByUserId(
             @PathVariable Long userId,
@@ -95,4 +129,13 @@ public class PostController {
         Page<PostResponse> posts = postService.getPostsByUserId(userId, page, size);
         return ResponseEntity.ok(posts);
     }
-}
\ No newline at end of file
+
+    @GetMapping(value = "/user/{userId}", params = "limit")
+    public ResponseEntity<CursorPage<PostResponse>> getPostsByUserIdBefore(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String before,
+            @RequestParam int limit
+    ) {
+        return ResponseEntity.ok(postService.getPostsByUserIdBefore(userId, before, limit));
+    }
+}
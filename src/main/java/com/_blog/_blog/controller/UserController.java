@@ -1,7 +1,6 @@
 package com._blog._blog.controller;
 
 import com._blog._blog.service.UserService;
-import com._blog._blog.service.MediaService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import com._blog._blog.dto.UserProfileDto;
@@ -11,18 +10,16 @@ import org.springframework.web.multipart.MultipartFile;
 import com._blog._blog.model.User;
 import java.util.List;
 import java.util.Map;
-import java.io.IOException;
+import org.springframework.http.HttpStatus;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
 
     private final UserService userService;
-    private final MediaService mediaService;
 
-    public UserController(UserService userService, MediaService mediaService) {
+    public UserController(UserService userService) {
         this.userService = userService;
-        this.mediaService = mediaService;
     }
 
     // Public endpoint: allows viewing any user profile ( Public Profile Viewing)
@@ -90,8 +87,9 @@ public class UserController {
         return ResponseEntity.ok(updatedUser);
     }
 
+    // Answers 202 once the file is staged; the upload finishes in the media pipeline and the client polls GET /avatar
     @PostMapping("/avatar")
-    public ResponseEntity<Map> uploadAvatar(
+    public ResponseEntity<Map<String, Object>> uploadAvatar(
             @RequestParam("file") MultipartFile file, 
             @AuthenticationPrincipal String username) {
         
@@ -104,25 +102,19 @@ public class UserController {
              return ResponseEntity.badRequest().body(Map.of("message", "Only image files are allowed."));
         }
 
-        try {
-            User user = userService.getUserByUsername(username);
-            String customName = "avatar_" + user.getId() + "_" + System.currentTimeMillis();
-            Map uploadResult = mediaService.uploadFile(file, "avatars", customName);
-            
-            String url = (String) uploadResult.get("url");
-            String secureUrl = (String) uploadResult.get("secure_url");
-            
-            userService.updateProfile(user.getId(), null, secureUrl);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(userService.startAvatarUpload(username, file));
+    }
 
-            return ResponseEntity.ok(uploadResult);
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError().build();
-        }
+    // Status of the caller's latest avatar upload: PENDING, READY (avatarUrl is the new avatar) or FAILED
+    @GetMapping("/avatar")
+    public ResponseEntity<Map<String, Object>> getAvatarState(@AuthenticationPrincipal String username) {
+        return ResponseEntity.ok(userService.getAvatarState(username));
     }
 
     // Search Users Endpoint
     @GetMapping("/search")
-    public ResponseEntity<List<UserProfileDto>> searchUsers(@RequestParam("query") String query) {
-        return ResponseEntity.ok(userService.searchUsers(query));
+    public ResponseEntity<List<UserProfileDto>> searchUsers(@RequestParam("query") String query,
+                                                            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(userService.searchUsers(query, limit));
     }
 }
@@ -0,0 +1,17 @@
+package com._blog._blog.dto;
+
+import java.util.List;
+
+// Cursor page of a post's comments plus its denormalized comment count, so no COUNT query is needed ( Pagination)
+public class CommentPage extends CursorPage<CommentResponse> {
+
+    private long commentCount;
+
+    public CommentPage(List<CommentResponse> items, String nextCursor, boolean hasNext, long commentCount) {
+        super(items, nextCursor, hasNext);
+        this.commentCount = commentCount;
+    }
+
+    public long getCommentCount() { return commentCount; }
+    public void setCommentCount(long commentCount) { this.commentCount = commentCount; }
+}
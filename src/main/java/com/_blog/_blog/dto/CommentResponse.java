@@ -1,6 +1,8 @@
 package com._blog._blog.dto;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 public class CommentResponse {
     private Long id;
@@ -8,9 +10,14 @@ public class CommentResponse {
     private String username;
     private LocalDateTime createdAt;
     private String mediaType;
+    private String mediaStatus;
+    private Map<String, String> mediaVariants;
     private String mediaUrl;
     private String avatarUrl; 
     private Long userId; // NEW FIELD
+    private Long parentId;
+    private long replyCount;
+    private List<CommentResponse> replies;
 
     public CommentResponse(Long id, String content, String username, LocalDateTime createdAt, String avatarUrl, Long userId) {
         this.id = id;
@@ -32,6 +39,16 @@ public class CommentResponse {
         this.userId = userId;
     }
 
+    // Listing projection (CommentRepository.RESPONSE); mediaVariants arrives as the stored JSON
+    public CommentResponse(Long id, String content, String username, LocalDateTime createdAt, String mediaUrl, String mediaType,
+                           String mediaStatus, String mediaVariants, String avatarUrl, Long userId, Long parentId, long replyCount) {
+        this(id, content, username, createdAt, mediaUrl, mediaType, avatarUrl, userId);
+        this.mediaStatus = mediaStatus;
+        this.mediaVariants = MediaVariants.fromJson(mediaVariants);
+        this.parentId = parentId;
+        this.replyCount = replyCount;
+    }
+
     public Long getUserId() { return userId; }
     public void setUserId(Long userId) { this.userId = userId; }
 
@@ -75,6 +92,24 @@ public class CommentResponse {
         this.mediaType = mediaType;
     }
 
+    // PENDING while the upload is still processing; mediaUrl is filled in once READY
+    public String getMediaStatus() {
+        return mediaStatus;
+    }
+
+    public void setMediaStatus(String mediaStatus) {
+        this.mediaStatus = mediaStatus;
+    }
+
+    // Smaller renditions of the media ("thumb", "w640", "w1280", "poster" for videos); null when none exist
+    public Map<String, String> getMediaVariants() {
+        return mediaVariants;
+    }
+
+    public void setMediaVariants(Map<String, String> mediaVariants) {
+        this.mediaVariants = mediaVariants;
+    }
+
     public String getMediaUrl() {
         return mediaUrl;
     }
@@ -83,6 +118,31 @@ public class CommentResponse {
         this.mediaUrl = mediaUrl;
     }
 
+    // Threading: null parentId for top-level comments; replies is only filled by the threaded listing
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public long getReplyCount() {
+        return replyCount;
+    }
+
+    public void setReplyCount(long replyCount) {
+        this.replyCount = replyCount;
+    }
+
+    public List<CommentResponse> getReplies() {
+        return replies;
+    }
+
+    public void setReplies(List<CommentResponse> replies) {
+        this.replies = replies;
+    }
+
     public String getAvatarUrl() {
         return avatarUrl;
     }
@@ -11,6 +11,9 @@ public class CreateCommentRequest {
     @NotNull(message = "Post ID is required")
     private Long postId;
 
+    // Optional: the comment being replied to (must belong to the same post)
+    private Long parentId;
+
     public String getContent() {
         return content;
     }
@@ -26,4 +29,12 @@ public class CreateCommentRequest {
     public void setPostId(Long postId) {
         this.postId = postId;
     }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
 }
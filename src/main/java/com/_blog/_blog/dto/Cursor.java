@@ -0,0 +1,72 @@
+package com._blog._blog.dto;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Keyset position (createdAt, id) for cursor-paged listings ( Pagination)
+// Clients only ever see the opaque token from encode()
+public class Cursor {
+
+    // Sentinel used for the first page so every keyset query can share the same predicate
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final LocalDateTime BEGINNING_OF_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    private Cursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public static Cursor of(LocalDateTime createdAt, Long id) {
+        return new Cursor(createdAt, id);
+    }
+
+    public static Cursor start() {
+        return new Cursor(END_OF_TIME, Long.MAX_VALUE);
+    }
+
+    // Accepts the opaque token, or a raw "createdAt,id" pair; a missing token means the first page
+    public static Cursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return start();
+        }
+        String raw = token;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            // Not base64: treat as a raw pair
+        }
+        int comma = raw.lastIndexOf(',');
+        if (comma < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        try {
+            return new Cursor(LocalDateTime.parse(raw.substring(0, comma)), Long.parseLong(raw.substring(comma + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    // Same token format for oldest-first listings (?after=); a missing token starts before everything
+    public static Cursor decodeAfter(String token) {
+        if (token == null || token.isBlank()) {
+            return new Cursor(BEGINNING_OF_TIME, 0L);
+        }
+        return decode(token);
+    }
+
+    public String encode() {
+        String raw = createdAt + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public Long getId() { return id; }
+}
@@ -0,0 +1,43 @@
+package com._blog._blog.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Keyset page response: the items and where to continue, no total count ( Pagination)
+public class CursorPage<T> {
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+
+    private List<T> items;
+    private String nextCursor; // null on the last page
+    private boolean hasNext;
+
+    public CursorPage(List<T> items, String nextCursor, boolean hasNext) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    // Builds the page and derives the next cursor from the last item
+    public static <T> CursorPage<T> of(List<T> items, boolean hasNext, Function<T, Cursor> cursorOf) {
+        String next = (hasNext && !items.isEmpty()) ? cursorOf.apply(items.get(items.size() - 1)).encode() : null;
+        return new CursorPage<>(items, next, next != null);
+    }
+
+    public static int clampLimit(int limit) {
+        if (limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+}
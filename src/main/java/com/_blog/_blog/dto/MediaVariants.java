@@ -0,0 +1,39 @@
+package com._blog._blog.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+
+// JSON form of a media variant map (name -> URL) in the media_variants columns ( Media Variants)
+public final class MediaVariants {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private MediaVariants() {}
+
+    // Null for no variants, so rows without any keep a null column
+    public static String toJson(Map<String, String> variants) {
+        if (variants == null || variants.isEmpty()) {
+            return null;
+        }
+        try {
+            return JSON.writeValueAsString(variants);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Null for a missing or unreadable column; clients then fall back to mediaUrl
+    public static Map<String, String> fromJson(String json) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try {
+            return JSON.readValue(json, new TypeReference<Map<String, String>>() {});
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
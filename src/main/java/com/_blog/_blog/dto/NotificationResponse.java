@@ -0,0 +1,69 @@
+package com._blog._blog.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+// Notification as sent to clients: only the fields the UI renders, no user entities
+public class NotificationResponse {
+
+    public static class Actor {
+        private final Long id;
+        private final String username;
+        private final String avatarUrl;
+
+        public Actor(Long id, String username, String avatarUrl) {
+            this.id = id;
+            this.username = username;
+            this.avatarUrl = avatarUrl;
+        }
+
+        public Long getId() { return id; }
+        public String getUsername() { return username; }
+        public String getAvatarUrl() { return avatarUrl; }
+    }
+
+    private final Long id;
+    private final String message;
+    private final String type;
+    private final Long relatedId;
+    private final boolean read;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt; // when a coalesced group last gained an actor; the list order
+    private final int actorCount; // > 1 for coalesced notifications; actor is the most recent one
+    private final Actor actor;
+    private final Long changeSeq; // stream position, sent as the SSE event id rather than in the body
+
+    // Flat constructor so JPQL "SELECT new ..." can build it straight from a join
+    public NotificationResponse(Long id, String message, String type, Long relatedId, boolean read,
+                                LocalDateTime createdAt, LocalDateTime updatedAt, int actorCount, Long actorId, String actorUsername, String actorAvatarUrl) {
+        this(id, message, type, relatedId, read, createdAt, updatedAt, actorCount, actorId, actorUsername, actorAvatarUrl, null);
+    }
+
+    public NotificationResponse(Long id, String message, String type, Long relatedId, boolean read,
+                                LocalDateTime createdAt, LocalDateTime updatedAt, int actorCount, Long actorId, String actorUsername, String actorAvatarUrl,
+                                Long changeSeq) {
+        this.id = id;
+        this.message = message;
+        this.type = type;
+        this.relatedId = relatedId;
+        this.read = read;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.actorCount = actorCount;
+        this.actor = actorId == null ? null : new Actor(actorId, actorUsername, actorAvatarUrl);
+        this.changeSeq = changeSeq;
+    }
+
+    public Long getId() { return id; }
+    public String getMessage() { return message; }
+    public String getType() { return type; }
+    public Long getRelatedId() { return relatedId; }
+    public boolean isRead() { return read; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public int getActorCount() { return actorCount; }
+    public Actor getActor() { return actor; }
+    @JsonIgnore
+    public Long getChangeSeq() { return changeSeq; }
+}
@@ -1,6 +1,7 @@
 package com._blog._blog.dto;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 public class PostResponse {
     
@@ -11,14 +12,17 @@ public class PostResponse {
     private String username; // The author's username
     private LocalDateTime createdAt;
     private String mediaType; // NEW FIELD
+    private String mediaStatus;
+    private Map<String, String> mediaVariants;
     private String mediaUrl;  // NEW FIELD
     private String avatarUrl; 
     private boolean hidden;
     private long likeCount; // NEW FIELD
     private boolean likedByCurrentUser; // NEW FIELD
+    private long commentCount;
 
-    // UPDATED CONSTRUCTOR: Now takes 12 arguments
-    public PostResponse(Long id, String title, String content, Long userId, String username, LocalDateTime createdAt, String mediaUrl, String mediaType, String avatarUrl, boolean hidden, long likeCount, boolean likedByCurrentUser) {
+    // UPDATED CONSTRUCTOR: Now takes 13 arguments
+    public PostResponse(Long id, String title, String content, Long userId, String username, LocalDateTime createdAt, String mediaUrl, String mediaType, String avatarUrl, boolean hidden, long likeCount, boolean likedByCurrentUser, long commentCount) {
         this.id = id;
         this.title = title;
         this.content = content;
@@ -31,10 +35,12 @@ public class PostResponse {
         this.hidden = hidden;
         this.likeCount = likeCount;
         this.likedByCurrentUser = likedByCurrentUser;
+        this.commentCount = commentCount;
     }
 
     public long getLikeCount() { return likeCount; }
     public boolean isLikedByCurrentUser() { return likedByCurrentUser; }
+    public long getCommentCount() { return commentCount; }
     
     // Getters and Setters
     public Long getId() {
@@ -93,6 +99,24 @@ public class PostResponse {
         this.mediaType = mediaType;
     }
 
+    // PENDING while the upload is still processing; mediaUrl is filled in once READY
+    public String getMediaStatus() {
+        return mediaStatus;
+    }
+
+    public void setMediaStatus(String mediaStatus) {
+        this.mediaStatus = mediaStatus;
+    }
+
+    // Smaller renditions of the media ("thumb", "w640", "w1280", "poster" for videos); null when none exist
+    public Map<String, String> getMediaVariants() {
+        return mediaVariants;
+    }
+
+    public void setMediaVariants(Map<String, String> mediaVariants) {
+        this.mediaVariants = mediaVariants;
+    }
+
     public String getMediaUrl() {
         return mediaUrl;
     }
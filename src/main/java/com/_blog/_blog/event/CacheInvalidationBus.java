@@ -0,0 +1,102 @@
+package com._blog._blog.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Cluster-wide eviction of in-process caches ( Cluster Messaging)
+// invalidate() evicts on this node right away and sends NOTIFY cache_invalidation '<TYPE>:<key>' so every node,
+// this one included, evicts again when the change commits. Keys: USER = username, POST = post id,
+// FOLLOW = "followerId:followingId". A type nobody registers for costs one map lookup per message. After a LISTEN
+// outage every registered cache is flushed.
+@Component
+public class CacheInvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    static final String CHANNEL = "cache_invalidation";
+
+    public enum Type { USER, POST, FOLLOW }
+
+    private static final class Handler {
+        final Consumer<String> evict;
+        final Runnable flush;
+
+        Handler(Consumer<String> evict, Runnable flush) {
+            this.evict = evict;
+            this.flush = flush;
+        }
+    }
+
+    private final Map<Type, List<Handler>> handlers = new ConcurrentHashMap<>();
+    private final PgNotifyBus pgNotifyBus;
+
+    public CacheInvalidationBus(PgNotifyBus pgNotifyBus) {
+        this.pgNotifyBus = pgNotifyBus;
+        pgNotifyBus.register(CHANNEL, this::onMessage, this::flushAll);
+    }
+
+    // Caches register once at startup: evict drops one key, flush drops everything
+    public void register(Type type, Consumer<String> evict, Runnable flush) {
+        handlers.computeIfAbsent(type, t -> new CopyOnWriteArrayList<>()).add(new Handler(evict, flush));
+    }
+
+    public void invalidateUser(String username) {
+        invalidate(Type.USER, username);
+    }
+
+    public void invalidatePost(Long postId) {
+        invalidate(Type.POST, String.valueOf(postId));
+    }
+
+    public void invalidateFollow(Long followerId, Long followingId) {
+        invalidate(Type.FOLLOW, followerId + ":" + followingId);
+    }
+
+    public void invalidate(Type type, String key) {
+        evictLocal(type, key);
+        pgNotifyBus.publish(CHANNEL, type.name() + ":" + key);
+    }
+
+    // Bulk variant for deletions that touch many keys: one NOTIFY statement for all of them
+    public void invalidateAll(Type type, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        keys.forEach(key -> evictLocal(type, key));
+        pgNotifyBus.publishAll(CHANNEL, keys.stream().map(key -> type.name() + ":" + key).toList());
+    }
+
+    private void onMessage(String payload) {
+        int sep = payload.indexOf(':');
+        if (sep < 0) {
+            return;
+        }
+        Type type;
+        try {
+            type = Type.valueOf(payload.substring(0, sep));
+        } catch (IllegalArgumentException e) {
+            log.debug("Ignoring unknown invalidation type: {}", payload);
+            return;
+        }
+        evictLocal(type, payload.substring(sep + 1));
+    }
+
+    private void evictLocal(Type type, String key) {
+        for (Handler handler : handlers.getOrDefault(type, List.of())) {
+            handler.evict.accept(key);
+        }
+    }
+
+    // Messages may have been missed while disconnected, so nothing cached can be trusted
+    void flushAll() {
+        handlers.values().forEach(list -> list.forEach(h -> h.flush.run()));
+    }
+}
@@ -0,0 +1,63 @@
+package com._blog._blog.event;
+
+import com._blog._blog.model.OutboxEvent;
+import com._blog._blog.repository.PostRepository;
+import com._blog._blog.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+// Keeps the denormalized like, comment and follow counters in step with outbox events ( Event Outbox)
+@Component
+public class CounterEventSubscriber implements EventSubscriber {
+
+    private static final Set<String> TYPES = Set.of(
+            DomainEvents.POST_LIKED, DomainEvents.POST_UNLIKED,
+            DomainEvents.COMMENT_ADDED, DomainEvents.COMMENT_DELETED,
+            DomainEvents.USER_FOLLOWED, DomainEvents.USER_UNFOLLOWED);
+
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+
+    public CounterEventSubscriber(PostRepository postRepository, UserRepository userRepository) {
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public String name() {
+        return "counters";
+    }
+
+    @Override
+    public boolean supports(String eventType) {
+        return TYPES.contains(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event, JsonNode payload) {
+        if (DomainEvents.countApplied(payload)) {
+            return;
+        }
+        switch (event.getEventType()) {
+            case DomainEvents.POST_LIKED ->
+                    postRepository.incrementLikeCount(payload.get("postId").asLong(), payload.get("userIds").size());
+            case DomainEvents.POST_UNLIKED ->
+                    postRepository.incrementLikeCount(payload.get("postId").asLong(), -payload.get("userIds").size());
+            case DomainEvents.COMMENT_ADDED ->
+                    postRepository.incrementCommentCount(payload.get("postId").asLong(), 1);
+            case DomainEvents.COMMENT_DELETED ->
+                    postRepository.incrementCommentCount(payload.get("postId").asLong(), -DomainEvents.deletedComments(payload));
+            case DomainEvents.USER_FOLLOWED -> {
+                userRepository.incrementFollowingCount(payload.get("followerId").asLong(), 1);
+                userRepository.incrementFollowerCount(payload.get("followingId").asLong(), 1);
+            }
+            case DomainEvents.USER_UNFOLLOWED -> {
+                userRepository.incrementFollowingCount(payload.get("followerId").asLong(), -1);
+                userRepository.incrementFollowerCount(payload.get("followingId").asLong(), -1);
+            }
+            default -> { }
+        }
+    }
+}
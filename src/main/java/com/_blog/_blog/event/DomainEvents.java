@@ -0,0 +1,32 @@
+package com._blog._blog.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+// Event and aggregate names stored in outbox_events ( Event Outbox)
+public final class DomainEvents {
+
+    public static final String POST = "POST";
+    public static final String USER = "USER";
+
+    public static final String POST_CREATED = "PostCreated";
+    public static final String POST_LIKED = "PostLiked";
+    public static final String POST_UNLIKED = "PostUnliked";
+    public static final String COMMENT_ADDED = "CommentAdded";
+    public static final String COMMENT_DELETED = "CommentDeleted";
+    public static final String USER_FOLLOWED = "UserFollowed";
+    public static final String USER_UNFOLLOWED = "UserUnfollowed";
+
+    // Payload flag of PostLiked/PostUnliked events whose like_count change was applied by the writer (LikeBuffer flush)
+    public static final String COUNT_APPLIED = "countApplied";
+
+    // Comments removed by a CommentDeleted event: the comment plus its replies; events written before threading carry no count
+    public static int deletedComments(JsonNode payload) {
+        return payload.has("count") ? payload.get("count").asInt() : 1;
+    }
+
+    public static boolean countApplied(JsonNode payload) {
+        return payload.path(COUNT_APPLIED).asBoolean(false);
+    }
+
+    private DomainEvents() {}
+}
@@ -0,0 +1,17 @@
+package com._blog._blog.event;
+
+import com._blog._blog.model.OutboxEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+
+// Asynchronous consumer of outbox events ( Event Outbox)
+// Delivery is at-least-once; handle() runs in the same transaction as the processed_events marker for
+// (name(), event id), so database side effects are applied once per subscriber.
+public interface EventSubscriber {
+
+    // Stable key for processed_events; changing it replays history to the subscriber
+    String name();
+
+    boolean supports(String eventType);
+
+    void handle(OutboxEvent event, JsonNode payload);
+}
@@ -0,0 +1,100 @@
+package com._blog._blog.event;
+
+import com._blog._blog.model.OutboxEvent;
+import com._blog._blog.repository.NotificationRepository;
+import com._blog._blog.repository.UserRepository;
+import com._blog._blog.service.NotificationFanoutService;
+import com._blog._blog.service.NotificationGroupService;
+import com._blog._blog.service.NotificationService;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Turns outbox events into user notifications ( Event Outbox)
+@Component
+public class NotificationEventSubscriber implements EventSubscriber {
+
+    private static final Set<String> TYPES = Set.of(
+            DomainEvents.POST_CREATED, DomainEvents.POST_LIKED,
+            DomainEvents.COMMENT_ADDED, DomainEvents.USER_FOLLOWED);
+
+    private final NotificationService notificationService;
+    private final NotificationFanoutService notificationFanoutService;
+    private final NotificationGroupService notificationGroupService;
+    private final NotificationRepository notificationRepository;
+    private final UserRepository userRepository;
+
+    public NotificationEventSubscriber(NotificationService notificationService,
+                                       NotificationFanoutService notificationFanoutService,
+                                       NotificationGroupService notificationGroupService,
+                                       NotificationRepository notificationRepository,
+                                       UserRepository userRepository) {
+        this.notificationService = notificationService;
+        this.notificationFanoutService = notificationFanoutService;
+        this.notificationGroupService = notificationGroupService;
+        this.notificationRepository = notificationRepository;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public String name() {
+        return "notifications";
+    }
+
+    @Override
+    public boolean supports(String eventType) {
+        return TYPES.contains(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event, JsonNode payload) {
+        switch (event.getEventType()) {
+            case DomainEvents.POST_CREATED -> notificationFanoutService.fanOutNewPost(
+                    payload.get("postId").asLong(),
+                    payload.get("authorId").asLong(),
+                    payload.get("authorUsername").asText(),
+                    payload.get("title").asText());
+            case DomainEvents.POST_LIKED -> {
+                List<Long> likerIds = new ArrayList<>();
+                payload.get("userIds").forEach(id -> likerIds.add(id.asLong()));
+                Long authorId = payload.get("authorId").asLong();
+                Long postId = payload.get("postId").asLong();
+                if (notificationGroupService.isEnabled()) {
+                    notificationGroupService.notify(authorId, likerIds, "LIKE", "LIKE:" + postId, postId, " liked your post.");
+                } else {
+                    notificationRepository.insertLikeNotifications(authorId, postId, likerIds);
+                }
+            }
+            case DomainEvents.COMMENT_ADDED -> {
+                Long ownerId = payload.get("postOwnerId").asLong();
+                Long actorId = payload.get("actorId").asLong();
+                if (!ownerId.equals(actorId)) {
+                    notifyIfUsersExist(ownerId, actorId,
+                            payload.get("actorUsername").asText() + " commented on your post.", "COMMENT", payload.get("postId").asLong());
+                }
+            }
+            case DomainEvents.USER_FOLLOWED -> {
+                Long followerId = payload.get("followerId").asLong();
+                Long followingId = payload.get("followingId").asLong();
+                if (notificationGroupService.isEnabled()) {
+                    // One "bob and 12 others started following you" row; relatedId points at the newest follower
+                    notificationGroupService.notify(followingId, List.of(followerId), "FOLLOW", "FOLLOW", followerId, " started following you.");
+                } else {
+                    notifyIfUsersExist(followingId, followerId,
+                            payload.get("followerUsername").asText() + " started following you.", "FOLLOW", followerId);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    // Either side may have been deleted before the event was delivered
+    private void notifyIfUsersExist(Long recipientId, Long actorId, String message, String type, Long relatedId) {
+        if (userRepository.existsById(recipientId) && userRepository.existsById(actorId)) {
+            notificationService.createNotification(recipientId, actorId, message, type, relatedId);
+        }
+    }
+}
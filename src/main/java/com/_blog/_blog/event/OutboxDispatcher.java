@@ -0,0 +1,183 @@
+package com._blog._blog.event;
+
+import com._blog._blog.model.OutboxEvent;
+import com._blog._blog.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Drains the outbox and hands events to subscribers ( Event Outbox)
+// A poll leases the oldest due events in a short transaction under the dispatcher lock, so one node leases at a time,
+// and commits before any subscriber runs. Leased events are split into lanes by aggregate (e.g. one post) that run in
+// parallel on the dispatcher pool while each lane stays in order; a poll never leases more than the pool has room
+// for, and a lane the pool still rejects is handed back. A lease that is never settled (crash) expires after
+// outbox.lease-seconds and the event is delivered again, which the processed_events markers make harmless.
+// A failing event blocks the rest of its aggregate until it is retried with backoff or marked DEAD after max attempts.
+@Component
+public class OutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    // pg advisory lock key reserved for the outbox dispatcher
+    private static final long DISPATCHER_LOCK_KEY = 0x0B10_0001L;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final List<EventSubscriber> subscribers;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor executor;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Counter delivered;
+    private final Counter retried;
+    private final Counter dead;
+
+    @Value("${outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${outbox.retention-days:7}")
+    private int retentionDays;
+
+    @Value("${outbox.lease-seconds:60}")
+    private int leaseSeconds;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            List<EventSubscriber> subscribers,
+                            TransactionTemplate transactionTemplate,
+                            @Qualifier("outboxDispatchExecutor") ThreadPoolTaskExecutor executor,
+                            ObjectMapper objectMapper,
+                            JdbcTemplate jdbcTemplate,
+                            MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.subscribers = subscribers;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.delivered = Counter.builder("outbox.events").tag("result", "delivered").register(meterRegistry);
+        this.retried = Counter.builder("outbox.events").tag("result", "retried").register(meterRegistry);
+        this.dead = Counter.builder("outbox.events").tag("result", "dead").register(meterRegistry);
+    }
+
+    // Partial index behind leaseDue: only pending rows, ordered the way they become due. Hibernate cannot declare it
+    @EventListener(ApplicationReadyEvent.class)
+    public void installIndexes() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_outbox_due ON outbox_events (available_at, id) WHERE status = 'PENDING'");
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:250}")
+    public void poll() {
+        int room = Math.min(batchSize, executor.getThreadPoolExecutor().getQueue().remainingCapacity());
+        if (room <= 0) {
+            return;
+        }
+        List<OutboxEvent> batch = transactionTemplate.execute(status ->
+                outboxEventRepository.tryDispatcherLock(DISPATCHER_LOCK_KEY)
+                        ? outboxEventRepository.leaseDue(room, leaseSeconds)
+                        : List.<OutboxEvent>of());
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<OutboxEvent>> lanes = new LinkedHashMap<>();
+        batch.stream().sorted(Comparator.comparing(OutboxEvent::getId)).forEach(event ->
+                lanes.computeIfAbsent(event.getAggregateType() + ":" + event.getAggregateId(), k -> new ArrayList<>()).add(event));
+
+        for (List<OutboxEvent> lane : lanes.values()) {
+            try {
+                executor.execute(() -> runLane(lane));
+            } catch (TaskRejectedException e) {
+                transactionTemplate.executeWithoutResult(status ->
+                        outboxEventRepository.releaseLease(lane.stream().map(OutboxEvent::getId).toList()));
+            }
+        }
+    }
+
+    private void runLane(List<OutboxEvent> lane) {
+        for (OutboxEvent event : lane) {
+            if (!deliver(event)) {
+                // Later events of this aggregate keep their lease and are skipped until this one is due again
+                List<Long> rest = lane.subList(lane.indexOf(event) + 1, lane.size()).stream().map(OutboxEvent::getId).toList();
+                if (!rest.isEmpty()) {
+                    transactionTemplate.executeWithoutResult(status -> outboxEventRepository.releaseLease(rest));
+                }
+                return;
+            }
+        }
+    }
+
+    // Returns true when the lane may continue with the next event
+    private boolean deliver(OutboxEvent event) {
+        try {
+            JsonNode payload = objectMapper.readTree(event.getPayload());
+            for (EventSubscriber subscriber : subscribers) {
+                if (!subscriber.supports(event.getEventType())) {
+                    continue;
+                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (outboxEventRepository.markProcessed(subscriber.name(), event.getId()) > 0) {
+                        subscriber.handle(event, payload);
+                    }
+                });
+            }
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.markDone(event.getId()));
+            delivered.increment();
+            return true;
+        } catch (Exception e) {
+            return fail(event, e);
+        }
+    }
+
+    private boolean fail(OutboxEvent event, Exception e) {
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        int attempt = event.getAttempts() + 1;
+        if (attempt >= maxAttempts) {
+            log.error("Outbox event {} ({}) is dead after {} attempts: {}", event.getId(), event.getEventType(), attempt, error);
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.markDead(event.getId(), error));
+            dead.increment();
+            return true;
+        }
+        long backoffSeconds = Math.min(300, 1L << attempt);
+        log.warn("Outbox event {} ({}) failed, retry {} in {}s: {}", event.getId(), event.getEventType(), attempt, backoffSeconds, error);
+        transactionTemplate.executeWithoutResult(status ->
+                outboxEventRepository.markRetry(event.getId(), LocalDateTime.now().plusSeconds(backoffSeconds), error));
+        retried.increment();
+        return false;
+    }
+
+    // Delivered events and their idempotency markers are only kept for a while
+    @Scheduled(cron = "${outbox.purge-cron:0 30 3 * * *}")
+    public void purge() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        transactionTemplate.executeWithoutResult(status -> {
+            int markers = outboxEventRepository.purgeProcessedBefore(before);
+            int events = outboxEventRepository.purgeDoneBefore(before);
+            if (events > 0) {
+                log.info("Purged {} delivered outbox events and {} processed markers", events, markers);
+            }
+        });
+    }
+}
@@ -0,0 +1,171 @@
+package com._blog._blog.event;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Cross-node signals over Postgres LISTEN/NOTIFY ( Cluster Messaging)
+// publish() runs pg_notify on the caller's connection, so a signal sent inside a transaction is only delivered when
+// it commits. One daemon thread per node keeps a dedicated (non-pooled) connection LISTENing on every registered
+// channel and reconnects with backoff. NOTIFY is not durable: handlers get onReconnect() after an outage so they can
+// resynchronize whatever they may have missed.
+@Component
+public class PgNotifyBus implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PgNotifyBus.class);
+
+    private static final class Channel {
+        final Consumer<String> handler;
+        final Runnable onReconnect;
+
+        Channel(Consumer<String> handler, Runnable onReconnect) {
+            this.handler = handler;
+            this.onReconnect = onReconnect;
+        }
+    }
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @Value("${pg-notify.poll-timeout-ms:1000}")
+    private int pollTimeoutMs;
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread thread;
+
+    public PgNotifyBus(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Register during bean initialization; channels are LISTENed when the bus starts
+    public void register(String channel, Consumer<String> handler, Runnable onReconnect) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid channel name: " + channel);
+        }
+        channels.put(channel, new Channel(handler, onReconnect));
+    }
+
+    public void publish(String channel, String payload) {
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, payload);
+    }
+
+    public void publishAll(String channel, List<String> payloads) {
+        jdbcTemplate.queryForList("SELECT pg_notify(?, p) FROM unnest(?::text[]) p", channel, payloads.toArray(new String[0]));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::listenLoop, "pg-notify-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        closeQuietly();
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listenLoop() {
+        boolean reconnecting = false;
+        long backoffMs = 1000;
+        while (running) {
+            try {
+                connection = DriverManager.getConnection(url, username, password);
+                try (Statement statement = connection.createStatement()) {
+                    for (String channel : channels.keySet()) {
+                        statement.execute("LISTEN " + channel);
+                    }
+                }
+                if (reconnecting) {
+                    log.info("LISTEN connection restored, resynchronizing {} channels", channels.size());
+                    channels.values().forEach(c -> runSafely(c.onReconnect));
+                }
+                backoffMs = 1000;
+
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(pollTimeoutMs);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        Channel channel = channels.get(notification.getName());
+                        if (channel != null) {
+                            String payload = notification.getParameter();
+                            runSafely(() -> channel.handler.accept(payload));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("LISTEN connection lost ({}), retrying in {} ms", e.getMessage(), backoffMs);
+                closeQuietly();
+                reconnecting = true;
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoffMs = Math.min(backoffMs * 2, 30000);
+            }
+        }
+        closeQuietly();
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.warn("pg-notify handler failed: {}", e.getMessage());
+        }
+    }
+
+    private void closeQuietly() {
+        Connection current = connection;
+        connection = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException ignored) {
+                // already broken
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com._blog._blog.event;
+
+import com._blog._blog.model.OutboxEvent;
+import com._blog._blog.service.TrendingService;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+
+// Feeds likes and comments into the trending scores ( Trending Posts)
+// Scores live in memory until TrendingService flushes them, so they are only added once the
+// processed_events marker commits; a retried delivery would otherwise count twice.
+@Component
+public class TrendingEventSubscriber implements EventSubscriber {
+
+    private static final Set<String> TYPES = Set.of(
+            DomainEvents.POST_LIKED, DomainEvents.POST_UNLIKED,
+            DomainEvents.COMMENT_ADDED, DomainEvents.COMMENT_DELETED);
+
+    private final TrendingService trendingService;
+
+    public TrendingEventSubscriber(TrendingService trendingService) {
+        this.trendingService = trendingService;
+    }
+
+    @Override
+    public String name() {
+        return "trending";
+    }
+
+    @Override
+    public boolean supports(String eventType) {
+        return TYPES.contains(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event, JsonNode payload) {
+        Long postId = payload.get("postId").asLong();
+        Runnable apply = switch (event.getEventType()) {
+            case DomainEvents.POST_LIKED -> () -> trendingService.recordLikes(postId, payload.get("userIds").size());
+            case DomainEvents.POST_UNLIKED -> () -> trendingService.recordLikes(postId, -payload.get("userIds").size());
+            case DomainEvents.COMMENT_ADDED -> () -> trendingService.recordComments(postId, 1);
+            case DomainEvents.COMMENT_DELETED -> () -> trendingService.recordComments(postId, -DomainEvents.deletedComments(payload));
+            default -> null;
+        };
+        if (apply == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+}
@@ -3,8 +3,14 @@ package com._blog._blog.model;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
+// Subtree lookups by path prefix use idx_comments_post_path (post_id, path text_pattern_ops), created at startup
+// by CommentService because @Index cannot name an operator class
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+    @Index(name = "idx_comments_post_created", columnList = "post_id, created_at DESC, id DESC"),
+    @Index(name = "idx_comments_post_toplevel", columnList = "post_id, parent_id, created_at DESC, id DESC"),
+    @Index(name = "idx_comments_parent_created", columnList = "parent_id, created_at, id")
+})
 public class Comment {
 
     @Id
@@ -27,6 +33,17 @@ public class Comment {
     @Column
     private String publicId;
 
+    // Media pipeline state: null (no media), PENDING (upload queued), READY or FAILED ( Media Pipeline)
+    @Column(name = "media_status", length = 16)
+    private String mediaStatus;
+
+    @Column(name = "media_updated_at")
+    private LocalDateTime mediaUpdatedAt;
+
+    // Generated thumbnails/widths as JSON (variant name -> URL), set when the upload completes ( Media Variants)
+    @Column(name = "media_variants", columnDefinition = "text")
+    private String mediaVariants;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -36,6 +53,23 @@ public class Comment {
     @JoinColumn(name = "post_id", nullable = false)
     private Post post;
 
+    // Reply threading ( Threaded Comments): null parent for top-level comments
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "parent_id")
+    private Comment parent;
+
+    // Materialized path: zero-padded ids from the thread root down to this comment, each followed by '/'.
+    // A subtree is every comment of the post whose path starts with this one, so it is read or deleted in one statement
+    @Column(length = 400)
+    private String path;
+
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private int depth = 0;
+
+    // Direct replies; maintained by single-statement increments like the Post counters
+    @Column(nullable = false, updatable = false, columnDefinition = "bigint default 0")
+    private long replyCount = 0;
+
     public Comment() {
         this.createdAt = LocalDateTime.now();
     }
@@ -84,6 +118,27 @@ public class Comment {
         this.publicId = publicId;
     }
 
+    public String getMediaStatus() {
+        return mediaStatus;
+    }
+
+    public void setMediaStatus(String mediaStatus) {
+        this.mediaStatus = mediaStatus;
+        this.mediaUpdatedAt = LocalDateTime.now();
+    }
+
+    public LocalDateTime getMediaUpdatedAt() {
+        return mediaUpdatedAt;
+    }
+
+    public String getMediaVariants() {
+        return mediaVariants;
+    }
+
+    public void setMediaVariants(String mediaVariants) {
+        this.mediaVariants = mediaVariants;
+    }
+
     public User getUser() {
         return user;
     }
@@ -99,4 +154,37 @@ public class Comment {
     public void setPost(Post post) {
         this.post = post;
     }
+
+    public Comment getParent() {
+        return parent;
+    }
+
+    public void setParent(Comment parent) {
+        this.parent = parent;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public long getReplyCount() {
+        return replyCount;
+    }
+
+    // Path segment of one comment id (fixed width, so lexical order of paths is thread order)
+    public static String pathSegment(Long id) {
+        return String.format("%019d/", id);
+    }
 }
@@ -6,6 +6,9 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "follows", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"follower_id", "following_id"})
+}, indexes = {
+    // Follower lookups by followed user (notification fan-out, timeline fan-out)
+    @Index(name = "idx_follows_following_follower", columnList = "following_id, follower_id")
 })
 public class Follow {
     @Id
@@ -0,0 +1,38 @@
+package com._blog._blog.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Journal of buffered like/unlike intents not flushed to post_likes yet ( Post Interactions)
+// LikeBuffer upserts a row per toggle before acknowledging it, deletes it in the transaction that flushes it and
+// replays whatever is left on startup. No foreign keys: rows of deleted posts or users are dropped by the buffer.
+@Entity
+@Table(name = "like_intents", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"post_id", "user_id"})
+})
+public class LikeIntent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "post_id", nullable = false)
+    private Long postId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // State the user asked for: true = liked
+    @Column(nullable = false)
+    private boolean liked;
+
+    @Column(name = "recorded_at", nullable = false)
+    private LocalDateTime recordedAt;
+
+    public LikeIntent() {}
+
+    public Long getId() { return id; }
+    public Long getPostId() { return postId; }
+    public Long getUserId() { return userId; }
+    public boolean isLiked() { return liked; }
+    public LocalDateTime getRecordedAt() { return recordedAt; }
+}
@@ -0,0 +1,47 @@
+package com._blog._blog.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// One stored asset per distinct upload content; posts and comments with identical files share it ( Media Deduplication)
+@Entity
+@Table(name = "media_blobs", indexes = {
+    @Index(name = "idx_media_blobs_public_id", columnList = "public_id", unique = true)
+})
+public class MediaBlob {
+
+    // Hex SHA-256 of the uploaded bytes
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(name = "public_id", nullable = false)
+    private String publicId;
+
+    @Column(name = "secure_url", nullable = false)
+    private String secureUrl;
+
+    @Column(name = "resource_type", nullable = false, length = 16)
+    private String resourceType;
+
+    // Variant name -> URL JSON of the asset, copied onto rows that reuse it
+    @Column(columnDefinition = "text")
+    private String variants;
+
+    // Number of posts/comments pointing at the asset; it is queued for deletion when this reaches zero
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public MediaBlob() {}
+
+    public String getSha256() { return sha256; }
+    public String getPublicId() { return publicId; }
+    public String getSecureUrl() { return secureUrl; }
+    public String getResourceType() { return resourceType; }
+    public String getVariants() { return variants; }
+    public int getRefCount() { return refCount; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,52 @@
+package com._blog._blog.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Media asset waiting to be deleted from storage; written in the same transaction as the row that referenced it ( Media Deletion Queue)
+@Entity
+@Table(name = "media_deletions", indexes = {
+    @Index(name = "idx_media_deletions_due", columnList = "status, next_attempt_at, id")
+})
+public class MediaDeletion {
+
+    public static final String PENDING = "PENDING";
+    public static final String DEAD = "DEAD";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "public_id", nullable = false)
+    private String publicId;
+
+    // Storage resource type ("image", "video", "raw"); bulk deletes are issued per type
+    @Column(name = "resource_type", nullable = false, length = 16)
+    private String resourceType;
+
+    @Column(nullable = false, length = 16)
+    private String status = PENDING;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    @Column(name = "last_error", columnDefinition = "text")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public MediaDeletion() {}
+
+    public Long getId() { return id; }
+    public String getPublicId() { return publicId; }
+    public String getResourceType() { return resourceType; }
+    public String getStatus() { return status; }
+    public int getAttempts() { return attempts; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public String getLastError() { return lastError; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
@@ -4,9 +4,16 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+    @Index(name = "idx_notifications_recipient_read", columnList = "recipient_id, is_read"),
+    @Index(name = "idx_notifications_recipient_updated", columnList = "recipient_id, updated_at DESC, id DESC"),
+    @Index(name = "idx_notifications_recipient_group", columnList = "recipient_id, group_key, id"),
+    @Index(name = "idx_notifications_recipient_change", columnList = "recipient_id, change_seq")
+})
 public class Notification {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -34,6 +41,29 @@ public class Notification {
 
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Last time a coalesced group gained an actor (created_at for everything else); lists sort by it so an active
+    // group moves to the top while created_at stays put
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = createdAt;
+
+    // Coalesced rows ("alice and 41 others liked your post") share a group key such as "LIKE:42";
+    // null for notifications that are never grouped
+    @Column(name = "group_key", length = 64)
+    private String groupKey;
+
+    @Column(name = "actor_count", nullable = false, columnDefinition = "integer default 1")
+    private int actorCount = 1;
+
+    // Most recent distinct actors of a group, newest first, bounded by notifications.coalesce.recent-actors
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "recent_actor_ids", columnDefinition = "bigint[]")
+    private Long[] recentActorIds;
+
+    // Position in the stream: drawn from notification_change_seq by a trigger on insert and whenever a group gains an
+    // actor (see NotificationStreamService); the SSE event id, so a reconnect replays both kinds of change
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    private Long changeSeq;
+
     public Notification() {}
 
     public Notification(User recipient, User actor, String message, String type, Long relatedId) {
@@ -43,6 +73,7 @@ public class Notification {
         this.type = type;
         this.relatedId = relatedId;
         this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
     }
 
     public Long getId() { return id; }
@@ -61,4 +92,9 @@ public class Notification {
     public void setRead(boolean read) { isRead = read; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public String getGroupKey() { return groupKey; }
+    public int getActorCount() { return actorCount; }
+    public Long[] getRecentActorIds() { return recentActorIds; }
+    public Long getChangeSeq() { return changeSeq; }
 }
@@ -0,0 +1,61 @@
+package com._blog._blog.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// "New post" fan-out still to be written, with a cursor over the author's follower ids ( Notifications)
+// Inserted in the same transaction that consumes the PostCreated event and deleted once the last follower is reached.
+@Entity
+@Table(name = "notification_fanout_jobs", indexes = {
+    @Index(name = "idx_fanout_jobs_due", columnList = "status, next_attempt_at, id")
+})
+public class NotificationFanoutJob {
+
+    public static final String PENDING = "PENDING";
+    public static final String DEAD = "DEAD";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "post_id", nullable = false)
+    private Long postId;
+
+    @Column(name = "author_id", nullable = false)
+    private Long authorId;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String message;
+
+    // Highest follower id already notified; batches resume after it
+    @Column(name = "last_follower_id", nullable = false)
+    private long lastFollowerId = 0;
+
+    @Column(nullable = false, length = 16)
+    private String status = PENDING;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    @Column(name = "last_error", columnDefinition = "text")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public NotificationFanoutJob() {}
+
+    public Long getId() { return id; }
+    public Long getPostId() { return postId; }
+    public Long getAuthorId() { return authorId; }
+    public String getMessage() { return message; }
+    public long getLastFollowerId() { return lastFollowerId; }
+    public String getStatus() { return status; }
+    public int getAttempts() { return attempts; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public String getLastError() { return lastError; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,32 @@
+package com._blog._blog.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+// Every distinct actor folded into a coalesced notification, so actor_count is exact ( Notifications)
+// recent_actor_ids on the notification only keeps the newest few for display; dedup is done against this table.
+@Entity
+@Table(name = "notification_group_actors", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"notification_id", "actor_id"})
+})
+public class NotificationGroupActor {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Rows go with their notification, whichever path deletes it
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "notification_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Notification notification;
+
+    @Column(name = "actor_id", nullable = false)
+    private Long actorId;
+
+    public NotificationGroupActor() {}
+
+    public Long getId() { return id; }
+    public Notification getNotification() { return notification; }
+    public Long getActorId() { return actorId; }
+}
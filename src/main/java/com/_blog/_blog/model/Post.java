@@ -6,7 +6,11 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+    // Keyset pagination indexes for the global and profile listings
+    @Index(name = "idx_posts_created", columnList = "created_at DESC, id DESC"),
+    @Index(name = "idx_posts_user_created", columnList = "user_id, created_at DESC, id DESC")
+})
 public class Post {
 
     @Id
@@ -32,6 +36,17 @@ public class Post {
     @Column
     private String publicId;
 
+    // Media pipeline state: null (no media), PENDING (upload queued), READY or FAILED ( Media Pipeline)
+    @Column(name = "media_status", length = 16)
+    private String mediaStatus;
+
+    @Column(name = "media_updated_at")
+    private LocalDateTime mediaUpdatedAt;
+
+    // Generated thumbnails/widths as JSON (variant name -> URL), set when the upload completes ( Media Variants)
+    @Column(name = "media_variants", columnDefinition = "text")
+    private String mediaVariants;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -93,6 +108,27 @@ public class Post {
         this.publicId = publicId;
     }
 
+    public String getMediaStatus() {
+        return mediaStatus;
+    }
+
+    public void setMediaStatus(String mediaStatus) {
+        this.mediaStatus = mediaStatus;
+        this.mediaUpdatedAt = LocalDateTime.now();
+    }
+
+    public LocalDateTime getMediaUpdatedAt() {
+        return mediaUpdatedAt;
+    }
+
+    public String getMediaVariants() {
+        return mediaVariants;
+    }
+
+    public void setMediaVariants(String mediaVariants) {
+        this.mediaVariants = mediaVariants;
+    }
+
     public User getUser() {
         return user;
     }
@@ -146,6 +182,22 @@ public class Post {
     @Column(nullable = false, columnDefinition = "boolean default false")
     private boolean hidden = false;
 
+    // Denormalized counters: only changed by single-statement increments in the repositories (and the
+    // reconciliation job), never by entity saves, so a stale loaded Post can't overwrite a concurrent update
+    @Column(nullable = false, updatable = false, columnDefinition = "bigint default 0")
+    private long likeCount = 0;
+
+    @Column(nullable = false, updatable = false, columnDefinition = "bigint default 0")
+    private long commentCount = 0;
+
+    public long getLikeCount() {
+        return likeCount;
+    }
+
+    public long getCommentCount() {
+        return commentCount;
+    }
+
     public boolean isHidden() {
         return hidden;
     }
@@ -0,0 +1,28 @@
+package com._blog._blog.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Time-decayed engagement score of a post, maintained by TrendingService ( Trending Posts)
+// score is exact as of score_at and decays with the configured half-life from there; no foreign key, rows of
+// deleted or long-quiet posts are pruned by the service.
+@Entity
+@Table(name = "post_trending")
+public class PostTrending {
+
+    @Id
+    @Column(name = "post_id")
+    private Long postId;
+
+    @Column(nullable = false)
+    private double score;
+
+    @Column(name = "score_at", nullable = false)
+    private LocalDateTime scoreAt;
+
+    public PostTrending() {}
+
+    public Long getPostId() { return postId; }
+    public double getScore() { return score; }
+    public LocalDateTime getScoreAt() { return scoreAt; }
+}
@@ -0,0 +1,31 @@
+package com._blog._blog.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Which subscriber has already applied which outbox event; makes redelivery harmless ( Event Outbox)
+@Entity
+@Table(name = "processed_events", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"subscriber", "event_id"})
+})
+public class ProcessedEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String subscriber;
+
+    @Column(name = "event_id", nullable = false)
+    private Long eventId;
+
+    @Column(name = "processed_at", nullable = false)
+    private LocalDateTime processedAt = LocalDateTime.now();
+
+    public ProcessedEvent() {}
+
+    public Long getId() { return id; }
+    public String getSubscriber() { return subscriber; }
+    public Long getEventId() { return eventId; }
+    public LocalDateTime getProcessedAt() { return processedAt; }
+}
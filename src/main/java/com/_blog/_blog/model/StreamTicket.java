@@ -0,0 +1,31 @@
+package com._blog._blog.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Single-use credential for opening the notification stream ( Real-time Notifications)
+// EventSource cannot send an Authorization header, and a JWT in the query string ends up in access logs. The client
+// trades its JWT for a ticket that is only stored hashed, expires within seconds and is deleted when the stream opens.
+@Entity
+@Table(name = "stream_tickets", indexes = {
+    @Index(name = "idx_stream_tickets_expires", columnList = "expires_at")
+})
+public class StreamTicket {
+
+    // Hex SHA-256 of the ticket handed to the client
+    @Id
+    @Column(name = "ticket_hash", length = 64)
+    private String ticketHash;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public StreamTicket() {}
+
+    public String getTicketHash() { return ticketHash; }
+    public Long getUserId() { return userId; }
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+}
@@ -0,0 +1,53 @@
+package com._blog._blog.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Materialized home timeline row: one entry per (reader, post), written when the post is fanned out ( Personal Feed)
+// createdAt mirrors the post's createdAt so a feed page is a single range scan on (owner_id, created_at, post_id)
+@Entity
+@Table(name = "timeline_entries",
+    uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"owner_id", "post_id"})
+    },
+    indexes = {
+        @Index(name = "idx_timeline_owner_created", columnList = "owner_id, created_at DESC, post_id DESC"),
+        @Index(name = "idx_timeline_author", columnList = "author_id"),
+        @Index(name = "idx_timeline_post", columnList = "post_id")
+    })
+public class TimelineEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // The user whose home feed this entry belongs to
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", nullable = false)
+    private User owner;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "post_id", nullable = false)
+    private Post post;
+
+    // Denormalized author so unfollow can drop entries without joining posts
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "author_id", nullable = false)
+    private User author;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public TimelineEntry() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public User getOwner() { return owner; }
+    public void setOwner(User owner) { this.owner = owner; }
+    public Post getPost() { return post; }
+    public void setPost(Post post) { this.post = post; }
+    public User getAuthor() { return author; }
+    public void setAuthor(User author) { this.author = author; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
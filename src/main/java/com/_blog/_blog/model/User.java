@@ -35,9 +35,41 @@ public class User implements UserDetails {
     private String lastName;
     private java.time.LocalDate dateOfBirth;
     private String avatarUrl;
+
+    // Avatar upload in flight ( Media Pipeline): PENDING/READY/FAILED, and the public id the pending upload will get.
+    // Only the pipeline's guarded UPDATEs write these, so an older upload finishing late cannot replace a newer avatar
+    @Column(name = "avatar_status", length = 16, insertable = false, updatable = false)
+    private String avatarStatus;
+
+    @Column(name = "avatar_pending_id", insertable = false, updatable = false)
+    @JsonIgnore
+    private String avatarPendingId;
+
+    @Column(name = "avatar_updated_at", insertable = false, updatable = false)
+    @JsonIgnore
+    private java.time.LocalDateTime avatarUpdatedAt;
+
     private String nickname;
     private String aboutMe;
 
+    // High-follower authors are not fanned out on write; their posts are merged into feeds at read time ( Personal Feed)
+    // Only flipped by TimelineService's bulk update, never by entity saves
+    @Column(nullable = false, updatable = false, columnDefinition = "boolean default false")
+    @JsonIgnore
+    private boolean highFanout = false;
+
+    // Denormalized follow counters maintained by FollowService with atomic increments ( Follow System)
+    @Column(nullable = false, updatable = false, columnDefinition = "bigint default 0")
+    private long followerCount = 0;
+
+    @Column(nullable = false, updatable = false, columnDefinition = "bigint default 0")
+    private long followingCount = 0;
+
+    // Unread notifications, maintained by statement triggers on notifications (see NotificationService) ( Real-time Notifications)
+    @Column(nullable = false, updatable = false, columnDefinition = "bigint default 0")
+    @JsonIgnore
+    private long unreadNotificationCount = 0;
+
     // One user has many posts; JsonIgnore prevents DTO circular dependency during serialization ( Database Relationships)
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
@@ -88,12 +120,20 @@ public class User implements UserDetails {
     public String getAvatarUrl() { return avatarUrl; }
     public void setAvatarUrl(String avatarUrl) { this.avatarUrl = avatarUrl; }
 
+    public String getAvatarStatus() { return avatarStatus; }
+    public String getAvatarPendingId() { return avatarPendingId; }
+
     public String getNickname() { return nickname; }
     public void setNickname(String nickname) { this.nickname = nickname; }
 
     public String getAboutMe() { return aboutMe; }
     public void setAboutMe(String aboutMe) { this.aboutMe = aboutMe; }
 
+    public long getFollowerCount() { return followerCount; }
+    public long getFollowingCount() { return followingCount; }
+
+    public boolean isHighFanout() { return highFanout; }
+
 
     // UserDetails implementation: integrates with Spring Security for authentication ( Spring Security Integration)
     @Override
@@ -1,9 +1,87 @@
 package com._blog._blog.repository;
 
+import com._blog._blog.dto.CommentResponse;
 import com._blog._blog.model.Comment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findByPostId(Long postId);
+    // Listing projection: author columns come from the same join, so no entity or lazy User is loaded per row
+    String RESPONSE = "SELECT new com._blog._blog.dto.CommentResponse(c.id, c.content, u.username, c.createdAt, " +
+            "c.mediaUrl, c.mediaType, c.mediaStatus, c.mediaVariants, u.avatarUrl, u.id, c.parent.id, c.replyCount) FROM Comment c JOIN c.user u ";
+
+    // Whole thread, oldest first (legacy list endpoint)
+    @Query(RESPONSE + "WHERE c.post.id = :postId ORDER BY c.createdAt ASC, c.id ASC")
+    List<CommentResponse> findResponsesByPostId(Long postId);
+
+    // Keyset page of a post's comments, newest first (served by idx_comments_post_created)
+    @Query(RESPONSE + "WHERE c.post.id = :postId AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) ORDER BY c.createdAt DESC, c.id DESC")
+    Slice<CommentResponse> findResponsesByPostIdBefore(Long postId, LocalDateTime createdAt, Long id, Pageable pageable);
+
+    // Keyset page of a post's top-level comments, newest first (idx_comments_post_toplevel)
+    @Query(RESPONSE + "WHERE c.post.id = :postId AND c.parent IS NULL AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) ORDER BY c.createdAt DESC, c.id DESC")
+    Slice<CommentResponse> findTopLevelResponsesByPostIdBefore(Long postId, LocalDateTime createdAt, Long id, Pageable pageable);
+
+    // Keyset page of one comment's direct replies, oldest first (idx_comments_parent_created)
+    @Query(RESPONSE + "WHERE c.parent.id = :parentId AND (c.createdAt > :createdAt OR (c.createdAt = :createdAt AND c.id > :id)) ORDER BY c.createdAt ASC, c.id ASC")
+    Slice<CommentResponse> findReplyResponsesAfter(Long parentId, LocalDateTime createdAt, Long id, Pageable pageable);
+
+    // First :limit replies of each given comment: one index range scan per parent, however long the threads are
+    @Query(value = "SELECT r.id FROM comments p CROSS JOIN LATERAL " +
+            "(SELECT c.id FROM comments c WHERE c.parent_id = p.id ORDER BY c.created_at, c.id LIMIT :limit) r " +
+            "WHERE p.id IN (:parentIds)", nativeQuery = true)
+    List<Long> findFirstReplyIds(List<Long> parentIds, int limit);
+
+    @Query(RESPONSE + "WHERE c.id IN :ids ORDER BY c.createdAt ASC, c.id ASC")
+    List<CommentResponse> findResponsesByIdIn(List<Long> ids);
+
+    // Media of a whole subtree (publicId, mediaType), released before the subtree is deleted
+    @Query("SELECT c.publicId, c.mediaType FROM Comment c WHERE c.post.id = :postId AND c.path LIKE CONCAT(:pathPrefix, '%') AND c.publicId <> ''")
+    List<Object[]> findSubtreeMedia(Long postId, String pathPrefix);
+
+    // Deletes a comment and all its replies in one statement (the parent_id FK is checked at the end of it)
+    @Modifying
+    @Query(value = "DELETE FROM comments WHERE post_id = :postId AND path LIKE :pathPrefix || '%'", nativeQuery = true)
+    int deleteSubtree(Long postId, String pathPrefix);
+
+    @Modifying
+    @Query(value = "UPDATE comments SET reply_count = reply_count + :delta WHERE id = :commentId", nativeQuery = true)
+    int incrementReplyCount(Long commentId, long delta);
+
+    // Prefix index behind findSubtreeMedia and deleteSubtree (path LIKE prefix || '%'); Hibernate cannot declare the operator class
+    @Modifying
+    @Query(value = "CREATE INDEX IF NOT EXISTS idx_comments_post_path ON comments (post_id, path text_pattern_ops)", nativeQuery = true)
+    void createPathPrefixIndex();
+
+    // Comments created before threading existed become thread roots
+    @Modifying
+    @Query(value = "UPDATE comments SET path = lpad(id::text, 19, '0') || '/', depth = 0 WHERE path IS NULL", nativeQuery = true)
+    int backfillPaths();
+
+    // "null" + segments below a pre-threading root: the first segment is the root's direct reply, whose parent is the root
+    @Modifying
+    @Query(value = "UPDATE comments c SET path = lpad(a.parent_id::text, 19, '0') || '/' || substring(c.path FROM 5) " +
+            "FROM comments a WHERE c.path LIKE 'null%' AND a.id = substring(c.path FROM 5 FOR 19)::bigint AND a.parent_id IS NOT NULL", nativeQuery = true)
+    int repairNullPrefixedPaths();
+
+    // Media pipeline completion, same contract as PostRepository.completeMedia
+    @Modifying
+    @Query(value = "UPDATE comments SET media_url = :mediaUrl, media_type = :mediaType, public_id = :publicId, " +
+            "media_variants = :mediaVariants, media_status = 'READY', media_updated_at = now() WHERE id = :commentId AND public_id = :pendingPublicId", nativeQuery = true)
+    int completeMedia(Long commentId, String pendingPublicId, String mediaUrl, String mediaType, String publicId, String mediaVariants);
+
+    @Modifying
+    @Query(value = "UPDATE comments SET public_id = NULL, media_status = 'FAILED', media_updated_at = now() " +
+            "WHERE id = :commentId AND public_id = :pendingPublicId", nativeQuery = true)
+    int failMedia(Long commentId, String pendingPublicId);
+
+    @Modifying
+    @Query(value = "UPDATE comments SET public_id = NULL, media_status = 'FAILED', media_updated_at = now() " +
+            "WHERE media_status = 'PENDING' AND media_updated_at < :before", nativeQuery = true)
+    int failStaleMedia(LocalDateTime before);
 }
@@ -15,4 +15,8 @@ public interface FollowRepository extends JpaRepository<Follow, Long> {
 
     @org.springframework.data.jpa.repository.Query("SELECT f.follower.id FROM Follow f WHERE f.following.id = :followingId")
     java.util.List<Long> findFollowerIds(Long followingId);
-}
\ No newline at end of file
+
+    // Followed authors whose posts are not fanned out and must be merged into the feed at read time
+    @org.springframework.data.jpa.repository.Query("SELECT f.following.id FROM Follow f WHERE f.follower.id = :followerId AND f.following.highFanout = true")
+    java.util.List<Long> findHighFanoutFollowingIds(Long followerId);
+}
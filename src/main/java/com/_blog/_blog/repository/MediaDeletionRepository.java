@@ -0,0 +1,32 @@
+package com._blog._blog.repository;
+
+import com._blog._blog.model.MediaDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MediaDeletionRepository extends JpaRepository<MediaDeletion, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO media_deletions (public_id, resource_type, status, attempts, next_attempt_at, created_at) " +
+            "VALUES (:publicId, :resourceType, 'PENDING', 0, now(), now())", nativeQuery = true)
+    int enqueue(String publicId, String resourceType);
+
+    @Modifying
+    @Query(value = "DELETE FROM media_deletions WHERE id IN (:ids)", nativeQuery = true)
+    int deleteDone(List<Long> ids);
+
+    @Modifying
+    @Query(value = "UPDATE media_deletions SET next_attempt_at = :nextAttemptAt, last_error = :error WHERE id IN (:ids)", nativeQuery = true)
+    int scheduleRetry(List<Long> ids, LocalDateTime nextAttemptAt, String error);
+
+    @Modifying
+    @Query(value = "UPDATE media_deletions SET status = 'DEAD', last_error = :error WHERE id IN (:ids)", nativeQuery = true)
+    int markDead(List<Long> ids, String error);
+
+    @Query(value = "SELECT count(*) FROM media_deletions WHERE status = 'PENDING'", nativeQuery = true)
+    long countPending();
+}
@@ -1,10 +1,47 @@
 package com._blog._blog.repository;
 
+import com._blog._blog.dto.NotificationResponse;
 import com._blog._blog.model.Notification;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
-    List<Notification> findByRecipientIdOrderByCreatedAtDesc(Long recipientId);
-    long countByRecipientIdAndIsReadFalse(Long recipientId);
+
+    // One statement for a batch of flushed likes (see LikeBuffer); skips self-likes
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "INSERT INTO notifications (recipient_id, actor_id, message, type, related_id, is_read, created_at, updated_at) " +
+            "SELECT :recipientId, u.id, u.username || ' liked your post.', 'LIKE', :postId, false, now(), now() " +
+            "FROM users u WHERE u.id IN (:actorIds) AND u.id <> :recipientId", nativeQuery = true)
+    int insertLikeNotifications(Long recipientId, Long postId, List<Long> actorIds);
+
+    // Stream replay and pushes: what changed for a recipient after a change_seq (new rows and groups that gained an
+    // actor), oldest change first
+    @Query("SELECT new com._blog._blog.dto.NotificationResponse(n.id, n.message, n.type, n.relatedId, n.isRead, n.createdAt, n.updatedAt, n.actorCount, a.id, a.username, a.avatarUrl, n.changeSeq) " +
+           "FROM Notification n LEFT JOIN n.actor a WHERE n.recipient.id = :recipientId AND n.changeSeq > :afterSeq ORDER BY n.changeSeq ASC")
+    List<NotificationResponse> findResponsesChangedAfter(Long recipientId, Long afterSeq, Pageable pageable);
+
+    // All notifications of a user as projections, newest first (legacy unpaged list)
+    @Query("SELECT new com._blog._blog.dto.NotificationResponse(n.id, n.message, n.type, n.relatedId, n.isRead, n.createdAt, n.updatedAt, n.actorCount, a.id, a.username, a.avatarUrl) " +
+           "FROM Notification n LEFT JOIN n.actor a WHERE n.recipient.id = :recipientId ORDER BY n.updatedAt DESC, n.id DESC")
+    List<NotificationResponse> findResponsesByRecipient(Long recipientId);
+
+    // Keyset page strictly older than (updatedAt, id), most recently active first
+    @Query("SELECT new com._blog._blog.dto.NotificationResponse(n.id, n.message, n.type, n.relatedId, n.isRead, n.createdAt, n.updatedAt, n.actorCount, a.id, a.username, a.avatarUrl) " +
+           "FROM Notification n LEFT JOIN n.actor a WHERE n.recipient.id = :recipientId " +
+           "AND (n.updatedAt < :updatedAt OR (n.updatedAt = :updatedAt AND n.id < :id)) ORDER BY n.updatedAt DESC, n.id DESC")
+    Slice<NotificationResponse> findResponsesBefore(Long recipientId, LocalDateTime updatedAt, Long id, Pageable pageable);
+
+    // Single-statement read updates; the recipient check keeps users from touching each other's notifications
+    @Modifying
+    @Query(value = "UPDATE notifications SET is_read = true WHERE id = :id AND recipient_id = :recipientId AND is_read = false", nativeQuery = true)
+    int markRead(Long id, Long recipientId);
+
+    @Modifying
+    @Query(value = "UPDATE notifications SET is_read = true WHERE recipient_id = :recipientId AND is_read = false", nativeQuery = true)
+    int markAllRead(Long recipientId);
 }
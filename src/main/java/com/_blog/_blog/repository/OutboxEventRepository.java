@@ -0,0 +1,59 @@
+package com._blog._blog.repository;
+
+import com._blog._blog.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Claims the oldest due events by pushing available_at past the lease. An event whose aggregate has an earlier
+    // pending event that is not due (backing off, or leased and still in flight) is skipped, which keeps each
+    // aggregate in order without letting events that are not due fill the batch. Rows come back in no particular order
+    @Query(value = "UPDATE outbox_events SET available_at = now() + make_interval(secs => :leaseSeconds) " +
+            "WHERE id IN (SELECT o.id FROM outbox_events o WHERE o.status = 'PENDING' AND o.available_at <= now() " +
+            "AND NOT EXISTS (SELECT 1 FROM outbox_events e WHERE e.status = 'PENDING' AND e.aggregate_type = o.aggregate_type " +
+            "AND e.aggregate_id = o.aggregate_id AND e.id < o.id AND e.available_at > now()) " +
+            "ORDER BY o.id LIMIT :limit) " +
+            "RETURNING *", nativeQuery = true)
+    List<OutboxEvent> leaseDue(int limit, int leaseSeconds);
+
+    // Hands leased events back for the next poll
+    @Modifying
+    @Query(value = "UPDATE outbox_events SET available_at = now() WHERE id IN (:ids) AND status = 'PENDING'", nativeQuery = true)
+    int releaseLease(List<Long> ids);
+
+    // Only one dispatcher per cluster leases at a time; the lock is released when the leasing transaction ends
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryDispatcherLock(long key);
+
+    // Idempotency guard: 1 when this subscriber sees the event for the first time, 0 on redelivery
+    @Modifying
+    @Query(value = "INSERT INTO processed_events (subscriber, event_id, processed_at) VALUES (:subscriber, :eventId, now()) " +
+            "ON CONFLICT (subscriber, event_id) DO NOTHING", nativeQuery = true)
+    int markProcessed(String subscriber, Long eventId);
+
+    @Modifying
+    @Query(value = "UPDATE outbox_events SET status = 'DONE', attempts = attempts + 1, last_error = NULL WHERE id = :id", nativeQuery = true)
+    int markDone(Long id);
+
+    @Modifying
+    @Query(value = "UPDATE outbox_events SET attempts = attempts + 1, available_at = :availableAt, last_error = :error WHERE id = :id", nativeQuery = true)
+    int markRetry(Long id, LocalDateTime availableAt, String error);
+
+    @Modifying
+    @Query(value = "UPDATE outbox_events SET status = 'DEAD', attempts = attempts + 1, last_error = :error WHERE id = :id", nativeQuery = true)
+    int markDead(Long id, String error);
+
+    @Modifying
+    @Query(value = "DELETE FROM processed_events pe USING outbox_events o " +
+            "WHERE pe.event_id = o.id AND o.status = 'DONE' AND o.created_at < :before", nativeQuery = true)
+    int purgeProcessedBefore(LocalDateTime before);
+
+    @Modifying
+    @Query(value = "DELETE FROM outbox_events WHERE status = 'DONE' AND created_at < :before", nativeQuery = true)
+    int purgeDoneBefore(LocalDateTime before);
+}
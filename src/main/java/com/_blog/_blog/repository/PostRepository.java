@@ -1,6 +1,7 @@
 package com._blog._blog.repository;
 
 import com._blog._blog.model.Post;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
@@ -8,19 +9,121 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     // For Admins (or global view) - though findAll(Pageable) works, we want explicit ordering if not passed in Pageable, 
     // but Pageable usually handles sort. We can just use findAll(Pageable) for admins.
 
+    // Admin listing; author fetched in the same query so mapping a page does not lazy-load each author
+    @EntityGraph(attributePaths = "user")
+    org.springframework.data.domain.Page<Post> findAll(org.springframework.data.domain.Pageable pageable);
+
     // For Guests (only public posts)
+    @EntityGraph(attributePaths = "user")
     org.springframework.data.domain.Page<Post> findByHiddenFalseOrderByCreatedAtDesc(org.springframework.data.domain.Pageable pageable);
 
     // For Logged-in Users (public posts + their own hidden posts)
+    @EntityGraph(attributePaths = "user")
     org.springframework.data.domain.Page<Post> findByHiddenFalseOrUserUsernameOrderByCreatedAtDesc(String username, org.springframework.data.domain.Pageable pageable);
 
     // Find by User ID (for profile) - All posts (for owner/admin)
+    @EntityGraph(attributePaths = "user")
     org.springframework.data.domain.Page<Post> findByUserIdOrderByCreatedAtDesc(Long userId, org.springframework.data.domain.Pageable pageable);
 
     // Find by User ID - Public only (for visitors)
+    @EntityGraph(attributePaths = "user")
     org.springframework.data.domain.Page<Post> findByUserIdAndHiddenFalseOrderByCreatedAtDesc(Long userId, org.springframework.data.domain.Pageable pageable);
 
-    // Custom Feed Query: Followed Public Posts + My All Posts
-    @org.springframework.data.jpa.repository.Query("SELECT p FROM Post p WHERE (p.user.id IN :userIds AND p.hidden = false) OR (p.user.id = :currentUserId) ORDER BY p.createdAt DESC")
-    org.springframework.data.domain.Page<Post> findFeedPosts(java.util.List<Long> userIds, Long currentUserId, org.springframework.data.domain.Pageable pageable);
-}
\ No newline at end of file
+    // Read-time merge for high-follower authors that are not fanned out into timelines
+    @EntityGraph(attributePaths = "user")
+    org.springframework.data.domain.Page<Post> findByUserIdInAndHiddenFalseOrderByCreatedAtDesc(java.util.List<Long> userIds, org.springframework.data.domain.Pageable pageable);
+
+    // Keyset (cursor) pagination: (createdAt, id) strictly before the cursor, newest first, never counted
+
+    @EntityGraph(attributePaths = "user")
+    @org.springframework.data.jpa.repository.Query("SELECT p FROM Post p WHERE (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) ORDER BY p.createdAt DESC, p.id DESC")
+    org.springframework.data.domain.Slice<Post> findAllBefore(java.time.LocalDateTime createdAt, Long id, org.springframework.data.domain.Pageable pageable);
+
+    @EntityGraph(attributePaths = "user")
+    @org.springframework.data.jpa.repository.Query("SELECT p FROM Post p WHERE p.hidden = false AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) ORDER BY p.createdAt DESC, p.id DESC")
+    org.springframework.data.domain.Slice<Post> findPublicBefore(java.time.LocalDateTime createdAt, Long id, org.springframework.data.domain.Pageable pageable);
+
+    @EntityGraph(attributePaths = "user")
+    @org.springframework.data.jpa.repository.Query("SELECT p FROM Post p WHERE p.user.id = :userId AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) ORDER BY p.createdAt DESC, p.id DESC")
+    org.springframework.data.domain.Slice<Post> findByUserIdBefore(Long userId, java.time.LocalDateTime createdAt, Long id, org.springframework.data.domain.Pageable pageable);
+
+    @EntityGraph(attributePaths = "user")
+    @org.springframework.data.jpa.repository.Query("SELECT p FROM Post p WHERE p.user.id = :userId AND p.hidden = false AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) ORDER BY p.createdAt DESC, p.id DESC")
+    org.springframework.data.domain.Slice<Post> findPublicByUserIdBefore(Long userId, java.time.LocalDateTime createdAt, Long id, org.springframework.data.domain.Pageable pageable);
+
+    @EntityGraph(attributePaths = "user")
+    @org.springframework.data.jpa.repository.Query("SELECT p FROM Post p WHERE p.user.id IN :userIds AND p.hidden = false AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) ORDER BY p.createdAt DESC, p.id DESC")
+    org.springframework.data.domain.Slice<Post> findPublicByUserIdsBefore(java.util.List<Long> userIds, java.time.LocalDateTime createdAt, Long id, org.springframework.data.domain.Pageable pageable);
+
+    // Denormalized counter only, for comment pages
+    @org.springframework.data.jpa.repository.Query("SELECT p.commentCount FROM Post p WHERE p.id = :postId")
+    java.util.Optional<Long> findCommentCount(Long postId);
+
+    // Rows for a page of search hits (author fetched too); callers restore the ranked order
+    @EntityGraph(attributePaths = "user")
+    @org.springframework.data.jpa.repository.Query("SELECT p FROM Post p WHERE p.id IN :ids")
+    java.util.List<Post> findAllWithUserByIdIn(java.util.Collection<Long> ids);
+
+    // Batched "liked by me" lookup for a page of posts (see PostService.mapToDtos)
+    @org.springframework.data.jpa.repository.Query(value = "SELECT pl.post_id FROM post_likes pl WHERE pl.user_id = :userId AND pl.post_id IN (:postIds)", nativeQuery = true)
+    java.util.List<Long> findLikedPostIds(Long userId, java.util.List<Long> postIds);
+
+    // Current like_count of a page of posts as (id, like_count), read past the persistence context
+    @org.springframework.data.jpa.repository.Query(value = "SELECT p.id, p.like_count FROM posts p WHERE p.id IN (:postIds)", nativeQuery = true)
+    java.util.List<Object[]> findLikeCounts(java.util.List<Long> postIds);
+
+    @org.springframework.data.jpa.repository.Query(value = "SELECT EXISTS (SELECT 1 FROM post_likes WHERE post_id = :postId AND user_id = :userId)", nativeQuery = true)
+    boolean existsLike(Long postId, Long userId);
+
+    // The viewer's id, or empty when the post does not exist or is hidden (one round trip per view)
+    @org.springframework.data.jpa.repository.Query(value = "SELECT u.id FROM users u JOIN posts p ON p.id = :postId AND p.hidden = false WHERE u.username = :username", nativeQuery = true)
+    java.util.Optional<Long> findViewerIdForVisiblePost(Long postId, String username);
+
+    // Like rows are written directly so toggling never loads the likes collection
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "INSERT INTO post_likes (post_id, user_id) VALUES (:postId, :userId) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertLike(Long postId, Long userId);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "DELETE FROM post_likes WHERE post_id = :postId AND user_id = :userId", nativeQuery = true)
+    int deleteLike(Long postId, Long userId);
+
+    // Atomic counter updates (single statement, no read-modify-write)
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE posts SET like_count = like_count + :delta WHERE id = :postId", nativeQuery = true)
+    int incrementLikeCount(Long postId, long delta);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE posts SET comment_count = comment_count + :delta WHERE id = :postId", nativeQuery = true)
+    int incrementCommentCount(Long postId, long delta);
+
+    // Media pipeline completion; matching on the pending public_id drops results of superseded or deleted uploads
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE posts SET media_url = :mediaUrl, media_type = :mediaType, public_id = :publicId, " +
+            "media_variants = :mediaVariants, media_status = 'READY', media_updated_at = now() WHERE id = :postId AND public_id = :pendingPublicId", nativeQuery = true)
+    int completeMedia(Long postId, String pendingPublicId, String mediaUrl, String mediaType, String publicId, String mediaVariants);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE posts SET public_id = NULL, media_status = 'FAILED', media_updated_at = now() " +
+            "WHERE id = :postId AND public_id = :pendingPublicId", nativeQuery = true)
+    int failMedia(Long postId, String pendingPublicId);
+
+    // Uploads lost with a crashed node never complete; give up on them after a while
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE posts SET public_id = NULL, media_status = 'FAILED', media_updated_at = now() " +
+            "WHERE media_status = 'PENDING' AND media_updated_at < :before", nativeQuery = true)
+    int failStaleMedia(java.time.LocalDateTime before);
+
+    // Reconciliation: rewrite only the rows whose counter drifted from the source tables
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE posts p SET like_count = c.cnt FROM " +
+            "(SELECT p2.id, COUNT(pl.user_id) AS cnt FROM posts p2 LEFT JOIN post_likes pl ON pl.post_id = p2.id GROUP BY p2.id) c " +
+            "WHERE c.id = p.id AND p.like_count <> c.cnt", nativeQuery = true)
+    int reconcileLikeCounts();
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE posts p SET comment_count = c.cnt FROM " +
+            "(SELECT p2.id, COUNT(cm.id) AS cnt FROM posts p2 LEFT JOIN comments cm ON cm.post_id = p2.id GROUP BY p2.id) c " +
+            "WHERE c.id = p.id AND p.comment_count <> c.cnt", nativeQuery = true)
+    int reconcileCommentCounts();
+}
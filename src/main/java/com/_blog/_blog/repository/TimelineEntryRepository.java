@@ -0,0 +1,84 @@
+package com._blog._blog.repository;
+
+import com._blog._blog.model.Post;
+import com._blog._blog.model.TimelineEntry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface TimelineEntryRepository extends JpaRepository<TimelineEntry, Long> {
+
+    // Home feed read: single range scan over idx_timeline_owner_created
+    @Query(value = "SELECT p FROM TimelineEntry te JOIN te.post p JOIN FETCH p.user WHERE te.owner.id = :ownerId ORDER BY te.createdAt DESC, p.id DESC",
+           countQuery = "SELECT count(te) FROM TimelineEntry te WHERE te.owner.id = :ownerId")
+    Page<Post> findTimelinePosts(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    // Keyset variant of the home feed read; Slice means no count query
+    @Query("SELECT p FROM TimelineEntry te JOIN te.post p JOIN FETCH p.user WHERE te.owner.id = :ownerId " +
+           "AND (te.createdAt < :createdAt OR (te.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY te.createdAt DESC, p.id DESC")
+    Slice<Post> findTimelinePostsBefore(@Param("ownerId") Long ownerId, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    // Fan-out on write: one INSERT ... SELECT over the author's followers
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO timeline_entries (owner_id, post_id, author_id, created_at) " +
+                   "SELECT f.follower_id, :postId, :authorId, :createdAt FROM follows f WHERE f.following_id = :authorId " +
+                   "ON CONFLICT (owner_id, post_id) DO NOTHING", nativeQuery = true)
+    int fanOutToFollowers(@Param("postId") Long postId, @Param("authorId") Long authorId, @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO timeline_entries (owner_id, post_id, author_id, created_at) " +
+                   "VALUES (:ownerId, :postId, :authorId, :createdAt) ON CONFLICT (owner_id, post_id) DO NOTHING", nativeQuery = true)
+    int insertEntry(@Param("ownerId") Long ownerId, @Param("postId") Long postId, @Param("authorId") Long authorId, @Param("createdAt") LocalDateTime createdAt);
+
+    // Follow backfill: copy the newest public posts of the followed author into the follower's timeline
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO timeline_entries (owner_id, post_id, author_id, created_at) " +
+                   "SELECT :ownerId, p.id, p.user_id, p.created_at FROM posts p " +
+                   "WHERE p.user_id = :authorId AND p.hidden = false ORDER BY p.created_at DESC LIMIT :limit " +
+                   "ON CONFLICT (owner_id, post_id) DO NOTHING", nativeQuery = true)
+    int backfillFromAuthor(@Param("ownerId") Long ownerId, @Param("authorId") Long authorId, @Param("limit") int limit);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM timeline_entries WHERE owner_id = :ownerId AND author_id = :authorId", nativeQuery = true)
+    int deleteByOwnerAndAuthor(@Param("ownerId") Long ownerId, @Param("authorId") Long authorId);
+
+    // Used on hide and when an author switches to read-time merging: keeps only the author's own entry
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM timeline_entries WHERE post_id = :postId AND owner_id <> author_id", nativeQuery = true)
+    int deleteFannedOutByPost(@Param("postId") Long postId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM timeline_entries WHERE author_id = :authorId AND owner_id <> author_id", nativeQuery = true)
+    int deleteFannedOutByAuthor(@Param("authorId") Long authorId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM timeline_entries WHERE post_id = :postId", nativeQuery = true)
+    int deleteByPost(@Param("postId") Long postId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM timeline_entries WHERE owner_id = :userId OR author_id = :userId", nativeQuery = true)
+    int deleteByUser(@Param("userId") Long userId);
+
+    // One-off rebuild for rows that predate the timeline table
+    @Modifying
+    @Query(value = "INSERT INTO timeline_entries (owner_id, post_id, author_id, created_at) " +
+                   "SELECT p.user_id, p.id, p.user_id, p.created_at FROM posts p " +
+                   "ON CONFLICT (owner_id, post_id) DO NOTHING", nativeQuery = true)
+    int rebuildAuthorEntries();
+
+    @Modifying
+    @Query(value = "INSERT INTO timeline_entries (owner_id, post_id, author_id, created_at) " +
+                   "SELECT f.follower_id, p.id, p.user_id, p.created_at FROM posts p " +
+                   "JOIN follows f ON f.following_id = p.user_id " +
+                   "JOIN users u ON u.id = p.user_id " +
+                   "WHERE p.hidden = false AND u.high_fanout = false " +
+                   "ON CONFLICT (owner_id, post_id) DO NOTHING", nativeQuery = true)
+    int rebuildFollowerEntries();
+}
@@ -11,9 +11,71 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // making this query return more than one result.
     Optional<User> findByUsername(String username);
 
+    // ID-only lookup for callers that never need the entity (notifications)
+    @org.springframework.data.jpa.repository.Query("SELECT u.id FROM User u WHERE u.username = :username")
+    Optional<Long> findIdByUsername(String username);
+
     // Used during registration to check if a username is already taken.
     boolean existsByUsername(String username);
 
-    // Search users by partial username (Case Insensitive)
-    java.util.List<User> findByUsernameContainingIgnoreCase(String username);
-}
\ No newline at end of file
+    // Search users by partial username (Case Insensitive); fallback while the search index loads
+    java.util.List<User> findByUsernameContainingIgnoreCase(String username, org.springframework.data.domain.Pageable pageable);
+
+    // Switches an author to read-time merging once their follower count passes the fan-out limit
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE users SET high_fanout = true WHERE id = :userId", nativeQuery = true)
+    int markHighFanout(Long userId);
+
+    // Atomic follow counter updates used by FollowService
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE users SET follower_count = follower_count + :delta WHERE id = :userId", nativeQuery = true)
+    int incrementFollowerCount(Long userId, long delta);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE users SET following_count = following_count + :delta WHERE id = :userId", nativeQuery = true)
+    int incrementFollowingCount(Long userId, long delta);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE users u SET follower_count = c.cnt FROM " +
+            "(SELECT u2.id, COUNT(f.id) AS cnt FROM users u2 LEFT JOIN follows f ON f.following_id = u2.id GROUP BY u2.id) c " +
+            "WHERE c.id = u.id AND u.follower_count <> c.cnt", nativeQuery = true)
+    int reconcileFollowerCounts();
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE users u SET following_count = c.cnt FROM " +
+            "(SELECT u2.id, COUNT(f.id) AS cnt FROM users u2 LEFT JOIN follows f ON f.follower_id = u2.id GROUP BY u2.id) c " +
+            "WHERE c.id = u.id AND u.following_count <> c.cnt", nativeQuery = true)
+    int reconcileFollowingCounts();
+
+    // Denormalized counter; transient negative values (reads racing the reconciliation) are shown as 0
+    @org.springframework.data.jpa.repository.Query(value = "SELECT greatest(unread_notification_count, 0) FROM users WHERE id = :userId", nativeQuery = true)
+    java.util.Optional<Long> findUnreadNotificationCount(Long userId);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE users u SET unread_notification_count = c.cnt FROM " +
+            "(SELECT u2.id, COUNT(n.id) AS cnt FROM users u2 LEFT JOIN notifications n ON n.recipient_id = u2.id AND n.is_read = false GROUP BY u2.id) c " +
+            "WHERE c.id = u.id AND u.unread_notification_count <> c.cnt", nativeQuery = true)
+    int reconcileUnreadNotificationCounts();
+
+    // Avatar uploads ( Media Pipeline): each new upload takes over avatar_pending_id, and completions only apply
+    // while it still names their upload
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE users SET avatar_status = 'PENDING', avatar_pending_id = :pendingId, " +
+            "avatar_updated_at = now() WHERE id = :userId", nativeQuery = true)
+    int beginAvatarUpload(Long userId, String pendingId);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE users SET avatar_url = :avatarUrl, avatar_status = 'READY', avatar_pending_id = NULL, " +
+            "avatar_updated_at = now() WHERE id = :userId AND avatar_pending_id = :pendingId", nativeQuery = true)
+    int completeAvatar(Long userId, String pendingId, String avatarUrl);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE users SET avatar_status = 'FAILED', avatar_pending_id = NULL, " +
+            "avatar_updated_at = now() WHERE id = :userId AND avatar_pending_id = :pendingId", nativeQuery = true)
+    int failAvatar(Long userId, String pendingId);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query(value = "UPDATE users SET avatar_status = 'FAILED', avatar_pending_id = NULL, avatar_updated_at = now() " +
+            "WHERE avatar_status = 'PENDING' AND avatar_updated_at < :before", nativeQuery = true)
+    int failStaleAvatars(java.time.LocalDateTime before);
+}
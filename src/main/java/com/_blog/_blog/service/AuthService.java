@@ -1,6 +1,7 @@
 package com._blog._blog.service;
 
 import com._blog._blog.dto.LoginRequest;
+import com._blog._blog.event.CacheInvalidationBus;
 import com._blog._blog.dto.RegisterRequest;
 import com._blog._blog.dto.AuthenticationResponse;
 import com._blog._blog.model.User;
@@ -25,6 +26,7 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder; 
     private final AuthenticationManager authenticationManager;
+    private final CacheInvalidationBus cacheInvalidationBus;
 
     // JWT secret key shared with JwtAuthFilter for token generation and validation ( Secure Token Management)
     private final String jwtSecretBase64 = "L7mF9tA5bG1cE3dU2iJ6kH0vQ4sO8rI7uW6xV9zY1wE3tD2gC5jB4kF7tP8oQ0rN9sM1v7hC6aG2bF1yT5uR3oP0wN8jK4dL7mF9tA5bG1cE3dU2iJ6kH0vQ4sO8rI7uW6xV9zY1wE3tD2gC5jB4kF7tP8oQ0rN9sM1v7hC6aG2bF1yT5uR3oP0wN8jK4dL7mF9tA5bG1cE3dU2iJ6kH0vQ4sO8rI7uW6xV9zY1wE3tD";
@@ -33,10 +35,11 @@ public class AuthService {
     @Value("${jwt.expiration-ms}")
     private long jwtExpirationMs; 
 
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager) {
+    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager, CacheInvalidationBus cacheInvalidationBus) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
+        this.cacheInvalidationBus = cacheInvalidationBus;
     }
 
     // User registration with BCrypt password hashing and automatic admin assignment for first user ( Password Security, Role-based Access Control)
@@ -64,6 +67,8 @@ public class AuthService {
         user.setAboutMe(request.getAboutMe());
 
         userRepository.save(user);
+        // New name becomes searchable on every node (UserSearchIndex)
+        cacheInvalidationBus.invalidateUser(user.getUsername());
     }
 
     // Login with sequential validation: provides specific error messages (username vs password vs banned) for better UX ( Error Handling)
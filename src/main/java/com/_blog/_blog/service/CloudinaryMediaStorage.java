@@ -0,0 +1,77 @@
+package com._blog._blog.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.api.ApiResponse;
+import com.cloudinary.utils.ObjectUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Default backend: Cloudinary upload and Admin APIs
+@Service
+@ConditionalOnProperty(name = "media.storage", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryMediaStorage implements MediaStorage {
+
+    private final Cloudinary cloudinary;
+
+    // Cloudinary requires at least 5MB per chunk (except the last one)
+    @Value("${media.upload.chunk-size:6291456}")
+    private int chunkSize;
+
+    public CloudinaryMediaStorage(Cloudinary cloudinary) {
+        this.cloudinary = cloudinary;
+    }
+
+    // upload_large sends the file in fixed-size chunks, so heap per upload stays at one chunk buffer
+    @Override
+    public Map upload(Path file, String folder, String name, String resourceType) throws IOException {
+        return cloudinary.uploader().uploadLarge(file.toFile(),
+                ObjectUtils.asMap(
+                        "folder", folder,
+                        "public_id", name,
+                        "resource_type", resourceType,
+                        "chunk_size", chunkSize
+                ));
+    }
+
+    @Override
+    public void delete(String publicId) throws IOException {
+        cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
+    }
+
+    @Override
+    public Map<String, String> deleteBatch(List<String> publicIds, String resourceType) throws IOException {
+        ApiResponse response;
+        try {
+            response = cloudinary.api().deleteResources(publicIds, ObjectUtils.asMap("resource_type", resourceType));
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        Map<String, String> outcomes = new HashMap<>();
+        Object deleted = response.get("deleted");
+        if (deleted instanceof Map<?, ?> map) {
+            map.forEach((id, outcome) -> outcomes.put(String.valueOf(id), String.valueOf(outcome)));
+        }
+        return outcomes;
+    }
+
+    // Delivery URLs of videos turn into a middle-frame JPEG when the extension is swapped
+    @Override
+    public String posterUrl(Map uploadResult) {
+        Object url = uploadResult.get("secure_url");
+        if (!(url instanceof String secureUrl)) {
+            return null;
+        }
+        int slash = secureUrl.lastIndexOf('/');
+        int dot = secureUrl.lastIndexOf('.');
+        return dot > slash ? secureUrl.substring(0, dot) + ".jpg" : secureUrl + ".jpg";
+    }
+}
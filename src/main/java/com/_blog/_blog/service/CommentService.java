@@ -2,36 +2,62 @@ package com._blog._blog.service;
 
 import com._blog._blog.dto.CommentResponse;
 import com._blog._blog.dto.CreateCommentRequest;
+import com._blog._blog.dto.Cursor;
+import com._blog._blog.dto.CommentPage;
+import com._blog._blog.dto.CursorPage;
+import com._blog._blog.dto.MediaVariants;
+import com._blog._blog.event.DomainEvents;
+import com._blog._blog.event.EventPublisher;
 import com._blog._blog.model.Comment;
 import com._blog._blog.model.Post;
 import com._blog._blog.model.User;
 import com._blog._blog.repository.CommentRepository;
 import com._blog._blog.repository.PostRepository;
 import com._blog._blog.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 public class CommentService {
 
+    private static final Logger log = LoggerFactory.getLogger(CommentService.class);
+
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
 
     private final MediaService mediaService;
-    private final NotificationService notificationService;
+    private final MediaPipeline mediaPipeline;
+    private final MediaBlobService mediaBlobService;
+    private final EventPublisher eventPublisher;
+
+    // Deepest reply level; keeps materialized paths short ( Threaded Comments)
+    @Value("${comments.max-depth:8}")
+    private int maxDepth;
 
-    public CommentService(CommentRepository commentRepository, PostRepository postRepository, UserRepository userRepository, MediaService mediaService, NotificationService notificationService) {
+    public CommentService(CommentRepository commentRepository, PostRepository postRepository, UserRepository userRepository, MediaService mediaService, MediaPipeline mediaPipeline, MediaBlobService mediaBlobService, EventPublisher eventPublisher) {
         this.commentRepository = commentRepository;
         this.postRepository = postRepository;
         this.userRepository = userRepository;
         this.mediaService = mediaService;
-        this.notificationService = notificationService;
+        this.mediaPipeline = mediaPipeline;
+        this.mediaBlobService = mediaBlobService;
+        this.eventPublisher = eventPublisher;
     }
 
+    @org.springframework.transaction.annotation.Transactional
     public CommentResponse addCommentWithMedia(CreateCommentRequest request, org.springframework.web.multipart.MultipartFile file, String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
@@ -39,72 +65,185 @@ public class CommentService {
         Post post = postRepository.findById(request.getPostId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found"));
 
+        Comment parent = null;
+        if (request.getParentId() != null) {
+            parent = commentRepository.findById(request.getParentId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Parent comment not found"));
+            if (!parent.getPost().getId().equals(post.getId())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Parent comment belongs to another post");
+            }
+            if (parent.getDepth() >= maxDepth) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Reply thread is too deep");
+            }
+        }
+
         Comment comment = new Comment();
         comment.setContent(request.getContent());
         comment.setUser(user);
         comment.setPost(post);
+        comment.setParent(parent);
+        comment.setDepth(parent == null ? 0 : parent.getDepth() + 1);
         // createdAt is set in constructor
         
         // Save first to generate ID
         Comment savedComment = commentRepository.save(comment);
+        // The path ends with the comment's own id, so it is written with the same flush as the media fields
+        savedComment.setPath((parent == null ? "" : pathOf(parent)) + Comment.pathSegment(savedComment.getId()));
+        if (parent != null) {
+            commentRepository.incrementReplyCount(parent.getId(), 1);
+        }
 
-        // Handle File Upload
+        // Handle File Upload: staged now, uploaded by the media pipeline after commit
         if (file != null && !file.isEmpty()) {
-            try {
-                // Name: comment{id}_{timestamp}
-                String customName = "comment" + savedComment.getId() + "_" + System.currentTimeMillis();
-                java.util.Map uploadResult = mediaService.uploadFile(file, "01blog/comments", customName);
-
-                savedComment.setMediaUrl((String) uploadResult.get("secure_url"));
-                savedComment.setPublicId((String) uploadResult.get("public_id"));
-                savedComment.setMediaType((String) uploadResult.get("resource_type"));
-
-                savedComment = commentRepository.save(savedComment);
-            } catch (java.io.IOException e) {
-                System.err.println("Comment Media Upload Error: " + e.getMessage());
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload media for comment");
-            }
+            // Name: comment{id}_{timestamp}
+            String customName = "comment" + savedComment.getId() + "_" + System.currentTimeMillis();
+            submitCommentMedia(savedComment, file, customName);
         }
+        savedComment = commentRepository.save(savedComment);
+
+        // Comment counter and owner notification are applied by outbox subscribers after commit
+        eventPublisher.publish(DomainEvents.POST, post.getId(), DomainEvents.COMMENT_ADDED, Map.of(
+                "postId", post.getId(),
+                "commentId", savedComment.getId(),
+                "postOwnerId", post.getUser().getId(),
+                "actorId", user.getId(),
+                "actorUsername", user.getUsername()));
+
+        CommentResponse response = toResponse(savedComment);
+        response.setParentId(parent == null ? null : parent.getId());
+        return response;
+    }
 
-        // Trigger Notification if commenter is not the post owner
-        if (!savedComment.getUser().getId().equals(post.getUser().getId())) {
-            notificationService.createNotification(
-                    post.getUser(),
-                    savedComment.getUser(), // Actor
-                    savedComment.getUser().getUsername() + " commented on your post.",
-                    "COMMENT",
-                    post.getId()
-            );
+    private void submitCommentMedia(Comment comment, org.springframework.web.multipart.MultipartFile file, String customName) {
+        String folder = "01blog/comments";
+        String pendingPublicId = MediaPipeline.expectedPublicId(folder, customName);
+        MediaService.StagedMedia staged;
+        try {
+            staged = mediaService.stage(file);
+        } catch (java.io.IOException e) {
+            log.error("Comment media staging failed: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload media for comment");
+        }
+        // Identical content already stored: point at it, nothing to upload
+        MediaBlobService.Blob existing = mediaBlobService.acquire(staged.getSha256()).orElse(null);
+        if (existing != null) {
+            mediaService.discard(staged);
+            comment.setMediaUrl(existing.secureUrl());
+            comment.setMediaType(existing.resourceType());
+            comment.setPublicId(existing.publicId());
+            comment.setMediaVariants(existing.variants());
+            comment.setMediaStatus(MediaPipeline.READY);
+            return;
         }
+        comment.setPublicId(pendingPublicId);
+        comment.setMediaVariants(null);
+        comment.setMediaStatus(MediaPipeline.PENDING);
+
+        Long commentId = comment.getId();
+        String sha256 = staged.getSha256();
+        mediaPipeline.submit("comment", staged, folder, customName, new MediaPipeline.Completion() {
+            @Override
+            public void ready(Map result) {
+                MediaBlobService.Blob blob = mediaBlobService.register(sha256, result);
+                int updated = commentRepository.completeMedia(commentId, pendingPublicId, blob.secureUrl(),
+                        blob.resourceType(), blob.publicId(), blob.variants());
+                if (updated == 0) {
+                    // comment deleted meanwhile
+                    mediaBlobService.release(blob.publicId(), blob.resourceType());
+                }
+            }
+
+            @Override
+            public void failed() {
+                commentRepository.failMedia(commentId, pendingPublicId);
+            }
+        });
+    }
 
-        return new CommentResponse(
-                savedComment.getId(),
-                savedComment.getContent(),
-                savedComment.getUser().getUsername(),
-                savedComment.getCreatedAt(),
-                savedComment.getMediaUrl(),
-                savedComment.getMediaType(),
-                savedComment.getUser().getAvatarUrl(), // New: Avatar URL
-                savedComment.getUser().getId() // NEW: User ID
+    private CommentResponse toResponse(Comment comment) {
+        CommentResponse response = new CommentResponse(
+                comment.getId(),
+                comment.getContent(),
+                comment.getUser().getUsername(),
+                comment.getCreatedAt(),
+                comment.getMediaUrl(),
+                comment.getMediaType(),
+                comment.getUser().getAvatarUrl(),
+                comment.getUser().getId()
         );
+        response.setMediaStatus(comment.getMediaStatus());
+        response.setMediaVariants(MediaVariants.fromJson(comment.getMediaVariants()));
+        return response;
     }
 
+    // Whole thread in one projection query (authors joined, no per-row lazy loads)
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public List<CommentResponse> getCommentsByPost(Long postId) {
-        List<Comment> comments = commentRepository.findByPostId(postId);
-        return comments.stream()
-                .map(comment -> new CommentResponse(
-                        comment.getId(),
-                        comment.getContent(),
-                        comment.getUser().getUsername(),
-                        comment.getCreatedAt(),
-                        comment.getMediaUrl(),
-                        comment.getMediaType(),
-                        comment.getUser().getAvatarUrl(),
-                        comment.getUser().getId() // NEW: User ID
-                ))
-                .collect(Collectors.toList());
+        return commentRepository.findResponsesByPostId(postId);
+    }
+
+    // Keyset page of a post's comments (?before=<cursor>&limit=), newest first, with the post's comment count
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public CommentPage getCommentsByPostBefore(Long postId, String before, int limit) {
+        long commentCount = postRepository.findCommentCount(postId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found"));
+        Cursor cursor = Cursor.decode(before);
+        Slice<CommentResponse> slice = commentRepository.findResponsesByPostIdBefore(postId, cursor.getCreatedAt(), cursor.getId(),
+                PageRequest.of(0, CursorPage.clampLimit(limit)));
+
+        CursorPage<CommentResponse> page = CursorPage.of(slice.getContent(), slice.hasNext(), c -> Cursor.of(c.getCreatedAt(), c.getId()));
+        return new CommentPage(page.getItems(), page.getNextCursor(), page.isHasNext(), commentCount);
+    }
+
+    // Keyset page of a post's top-level comments (?before=<cursor>&limit=), newest first, each carrying its first
+    // `replies` replies oldest first. Three queries plus the counter read, whatever the page size or thread lengths;
+    // the rest of a thread is expanded through getReplies
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public CommentPage getThreadsByPost(Long postId, String before, int limit, int replies) {
+        long commentCount = postRepository.findCommentCount(postId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found"));
+        Cursor cursor = Cursor.decode(before);
+        Slice<CommentResponse> slice = commentRepository.findTopLevelResponsesByPostIdBefore(postId, cursor.getCreatedAt(), cursor.getId(),
+                PageRequest.of(0, CursorPage.clampLimit(limit)));
+        List<CommentResponse> threads = slice.getContent();
+        attachFirstReplies(threads, Math.min(Math.max(replies, 0), CursorPage.MAX_LIMIT));
+
+        CursorPage<CommentResponse> page = CursorPage.of(threads, slice.hasNext(), c -> Cursor.of(c.getCreatedAt(), c.getId()));
+        return new CommentPage(page.getItems(), page.getNextCursor(), page.isHasNext(), commentCount);
+    }
+
+    // Lazy expansion: keyset page of one comment's direct replies (?after=<cursor>&limit=), oldest first
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public CursorPage<CommentResponse> getReplies(Long commentId, String after, int limit) {
+        if (!commentRepository.existsById(commentId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Comment not found");
+        }
+        Cursor cursor = Cursor.decodeAfter(after);
+        Slice<CommentResponse> slice = commentRepository.findReplyResponsesAfter(commentId, cursor.getCreatedAt(), cursor.getId(),
+                PageRequest.of(0, CursorPage.clampLimit(limit)));
+        return CursorPage.of(slice.getContent(), slice.hasNext(), c -> Cursor.of(c.getCreatedAt(), c.getId()));
+    }
+
+    private void attachFirstReplies(List<CommentResponse> threads, int perThread) {
+        List<Long> parentIds = threads.stream()
+                .filter(c -> c.getReplyCount() > 0)
+                .map(CommentResponse::getId)
+                .toList();
+        Map<Long, List<CommentResponse>> byParent = new HashMap<>();
+        if (perThread > 0 && !parentIds.isEmpty()) {
+            List<Long> replyIds = commentRepository.findFirstReplyIds(parentIds, perThread);
+            if (!replyIds.isEmpty()) {
+                for (CommentResponse reply : commentRepository.findResponsesByIdIn(replyIds)) {
+                    byParent.computeIfAbsent(reply.getParentId(), k -> new ArrayList<>()).add(reply);
+                }
+            }
+        }
+        for (CommentResponse thread : threads) {
+            thread.setReplies(byParent.getOrDefault(thread.getId(), List.of()));
+        }
     }
 
+    @org.springframework.transaction.annotation.Transactional
     public void deleteComment(Long id, String username) {
         Comment comment = commentRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Comment not found"));
@@ -118,14 +257,47 @@ public class CommentService {
              throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not authorized to delete this comment");
         }
 
-        if (comment.getPublicId() != null && !comment.getPublicId().isEmpty()) {
-            try {
-                mediaService.deleteFile(comment.getPublicId());
-            } catch (java.io.IOException e) {
-                System.err.println("Warning: Failed to delete media for Comment ID: " + id);
-            }
+        // Replies go with the comment: media of the whole subtree is released, then one DELETE by path prefix
+        Long postId = comment.getPost().getId();
+        String path = pathOf(comment);
+        commentRepository.flush();
+        mediaBlobService.releaseAll(commentRepository.findSubtreeMedia(postId, path).stream()
+                .map(media -> new MediaBlobService.MediaRef((String) media[0], (String) media[1]))
+                .toList());
+        int deleted = commentRepository.deleteSubtree(postId, path);
+        if (deleted == 0) {
+            // The row was just read, so its path must match it; never announce a deletion that did not happen
+            throw new IllegalStateException("Comment " + id + " was not deleted: no row under path " + path);
+        }
+        if (comment.getParent() != null) {
+            commentRepository.incrementReplyCount(comment.getParent().getId(), -1);
         }
+        eventPublisher.publish(DomainEvents.POST, postId, DomainEvents.COMMENT_DELETED, Map.of(
+                "postId", postId,
+                "commentId", id,
+                "count", deleted));
+    }
 
-        commentRepository.delete(comment);
+    // Path of a managed comment; rows that predate the backfill (or were written by a node without it) get theirs
+    // computed from their ancestors here and stored with the surrounding transaction
+    private String pathOf(Comment comment) {
+        if (comment.getPath() == null) {
+            Comment parent = comment.getParent();
+            comment.setPath((parent == null ? "" : pathOf(parent)) + Comment.pathSegment(comment.getId()));
+        }
+        return comment.getPath();
+    }
+
+    // Comments created before threading existed become thread roots; replies that were given a "null" prefix
+    // because their root had no path yet get the root's segment instead. Also installs the subtree prefix index
+    @EventListener(ApplicationReadyEvent.class)
+    @org.springframework.transaction.annotation.Transactional
+    public void backfillThreadPaths() {
+        commentRepository.createPathPrefixIndex();
+        commentRepository.backfillPaths();
+        int repaired = commentRepository.repairNullPrefixedPaths();
+        if (repaired > 0) {
+            log.info("Repaired {} comment paths", repaired);
+        }
     }
 }
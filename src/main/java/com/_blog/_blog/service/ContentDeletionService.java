@@ -0,0 +1,145 @@
+package com._blog._blog.service;
+
+import com._blog._blog.event.CacheInvalidationBus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+// Set-based removal of posts and users ( Deleted Content Removal)
+// Nothing is loaded into the persistence context: every child table is cleared with one DELETE per table, in
+// foreign key order (comments, reports, likes, timeline rows, then the post or user itself), and the media of
+// the removed rows is collected with a projection query and released in one batch. Counters of surviving
+// posts, comments and users are adjusted in the same statements, so no reconciliation is needed afterwards.
+// Like intents still buffered in memory (LikeBuffer) for the removed post or user are dropped once this commits.
+// Callers must not hold unflushed changes to the affected rows: these statements bypass the JPA session.
+@Service
+public class ContentDeletionService {
+
+    // A deleted user's comments on other people's posts, each with its whole reply subtree (replies of other
+    // users included, as when the comment itself is deleted). Parameters: userId, userId
+    private static final String USER_COMMENT_SUBTREES =
+            "SELECT DISTINCT c.id, c.post_id, c.parent_id, c.public_id, c.media_type FROM comments r " +
+            "JOIN posts p ON p.id = r.post_id AND p.user_id <> ? " +
+            "JOIN comments c ON c.post_id = r.post_id AND c.path LIKE r.path || '%' " +
+            "WHERE r.user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MediaBlobService mediaBlobService;
+    private final TimelineService timelineService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final LikeBuffer likeBuffer;
+
+    public ContentDeletionService(JdbcTemplate jdbcTemplate,
+                                  MediaBlobService mediaBlobService,
+                                  TimelineService timelineService,
+                                  CacheInvalidationBus cacheInvalidationBus,
+                                  LikeBuffer likeBuffer) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mediaBlobService = mediaBlobService;
+        this.timelineService = timelineService;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.likeBuffer = likeBuffer;
+    }
+
+    @Transactional
+    public void deletePost(Long postId) {
+        mediaBlobService.releaseAll(jdbcTemplate.query(
+                "SELECT public_id, media_type FROM posts WHERE id = ? AND public_id <> '' " +
+                "UNION ALL SELECT public_id, media_type FROM comments WHERE post_id = ? AND public_id <> ''",
+                (rs, i) -> new MediaBlobService.MediaRef(rs.getString("public_id"), rs.getString("media_type")),
+                postId, postId));
+
+        // One statement for all comments, so reply threads never violate the parent_id foreign key
+        jdbcTemplate.update("DELETE FROM comments WHERE post_id = ?", postId);
+        jdbcTemplate.update("DELETE FROM reports WHERE post_id = ?", postId);
+        jdbcTemplate.update("DELETE FROM post_likes WHERE post_id = ?", postId);
+        jdbcTemplate.update("DELETE FROM post_trending WHERE post_id = ?", postId);
+        jdbcTemplate.update("DELETE FROM notification_fanout_jobs WHERE post_id = ?", postId);
+        timelineService.onPostDeleted(postId);
+        jdbcTemplate.update("DELETE FROM posts WHERE id = ?", postId);
+        cacheInvalidationBus.invalidatePost(postId);
+        afterCommit(() -> likeBuffer.evictPost(postId));
+    }
+
+    @Transactional
+    public void deleteUser(Long userId, String username) {
+        mediaBlobService.releaseAll(jdbcTemplate.query(
+                "SELECT public_id, media_type FROM posts WHERE user_id = ? AND public_id <> '' " +
+                "UNION ALL SELECT c.public_id, c.media_type FROM comments c JOIN posts p ON p.id = c.post_id " +
+                "WHERE p.user_id = ? AND c.public_id <> '' " +
+                "UNION ALL SELECT s.public_id, s.media_type FROM (" + USER_COMMENT_SUBTREES + ") s WHERE s.public_id <> ''",
+                (rs, i) -> new MediaBlobService.MediaRef(rs.getString("public_id"), rs.getString("media_type")),
+                userId, userId, userId, userId));
+
+        // Comment threads on other posts: comment counts of those posts and reply counts of surviving parents
+        // drop by what goes away
+        jdbcTemplate.update(
+                "WITH doomed AS (" + USER_COMMENT_SUBTREES + "), " +
+                "posts_adjusted AS (UPDATE posts p SET comment_count = p.comment_count - d.n " +
+                "FROM (SELECT post_id, count(*) AS n FROM doomed GROUP BY post_id) d WHERE p.id = d.post_id), " +
+                "parents_adjusted AS (UPDATE comments p SET reply_count = p.reply_count - d.n " +
+                "FROM (SELECT parent_id, count(*) AS n FROM doomed WHERE parent_id NOT IN (SELECT id FROM doomed) GROUP BY parent_id) d " +
+                "WHERE p.id = d.parent_id) " +
+                "DELETE FROM comments c USING doomed d WHERE c.id = d.id",
+                userId, userId);
+
+        // Likes given to other posts
+        jdbcTemplate.update(
+                "WITH gone AS (DELETE FROM post_likes WHERE user_id = ? RETURNING post_id) " +
+                "UPDATE posts p SET like_count = p.like_count - 1 FROM gone g WHERE p.id = g.post_id AND p.user_id <> ?",
+                userId, userId);
+
+        // Follow edges in both directions; one UPDATE per counterpart even when they followed each other. The removed
+        // edges come back for the FOLLOW invalidations
+        List<String> follows = jdbcTemplate.queryForList(
+                "WITH gone AS (DELETE FROM follows WHERE follower_id = ? OR following_id = ? RETURNING follower_id, following_id), " +
+                "adj AS (SELECT CASE WHEN follower_id = ? THEN following_id ELSE follower_id END AS user_id, " +
+                "count(*) FILTER (WHERE follower_id = ?) AS lost_followers, " +
+                "count(*) FILTER (WHERE following_id = ?) AS lost_following FROM gone GROUP BY 1), " +
+                "adjusted AS (UPDATE users u SET follower_count = u.follower_count - adj.lost_followers, " +
+                "following_count = u.following_count - adj.lost_following FROM adj WHERE u.id = adj.user_id AND u.id <> ?) " +
+                "SELECT follower_id || ':' || following_id FROM gone",
+                String.class, userId, userId, userId, userId, userId, userId);
+
+        // The user's own posts with everything hanging off them
+        jdbcTemplate.update("DELETE FROM comments c USING posts p WHERE c.post_id = p.id AND p.user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM reports r WHERE r.reporter_id = ? OR r.reported_user_id = ? " +
+                "OR r.post_id IN (SELECT id FROM posts WHERE user_id = ?)", userId, userId, userId);
+        jdbcTemplate.update("DELETE FROM post_likes pl USING posts p WHERE pl.post_id = p.id AND p.user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM post_trending t USING posts p WHERE t.post_id = p.id AND p.user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM notifications WHERE recipient_id = ? OR actor_id = ?", userId, userId);
+        // Groups where the user was an earlier actor survive; their actor lists must not point at the user any more
+        jdbcTemplate.update("DELETE FROM notification_group_actors WHERE actor_id = ?", userId);
+        jdbcTemplate.update("UPDATE notifications SET recent_actor_ids = array_remove(recent_actor_ids, ?) " +
+                "WHERE recent_actor_ids @> ARRAY[?]::bigint[]", userId, userId);
+        jdbcTemplate.update("DELETE FROM notification_fanout_jobs WHERE author_id = ?", userId);
+        timelineService.onUserDeleted(userId);
+        List<Long> postIds = jdbcTemplate.queryForList("DELETE FROM posts WHERE user_id = ? RETURNING id", Long.class, userId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+
+        cacheInvalidationBus.invalidateUser(username);
+        cacheInvalidationBus.invalidateAll(CacheInvalidationBus.Type.POST, postIds.stream().map(String::valueOf).toList());
+        cacheInvalidationBus.invalidateAll(CacheInvalidationBus.Type.FOLLOW, follows);
+        afterCommit(() -> {
+            likeBuffer.evictUser(userId);
+            postIds.forEach(likeBuffer::evictPost);
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
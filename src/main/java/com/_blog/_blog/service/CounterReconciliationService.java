@@ -0,0 +1,42 @@
+package com._blog._blog.service;
+
+import com._blog._blog.repository.PostRepository;
+import com._blog._blog.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Repairs drift in the denormalized like/comment/follow/unread-notification counters ( Counters)
+// The hot paths only ever apply +1/-1; this job recomputes from the source tables and rewrites mismatched rows,
+// which also fills in counters for rows that existed before the columns were added.
+@Service
+public class CounterReconciliationService {
+
+    private static final Logger log = LoggerFactory.getLogger(CounterReconciliationService.class);
+
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+
+    public CounterReconciliationService(PostRepository postRepository, UserRepository userRepository) {
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+    }
+
+    @Scheduled(initialDelayString = "${counters.reconcile.initial-delay-ms:60000}",
+               fixedDelayString = "${counters.reconcile.interval-ms:3600000}")
+    @Transactional
+    public void reconcile() {
+        int likes = postRepository.reconcileLikeCounts();
+        int comments = postRepository.reconcileCommentCounts();
+        int followers = userRepository.reconcileFollowerCounts();
+        int following = userRepository.reconcileFollowingCounts();
+        int unread = userRepository.reconcileUnreadNotificationCounts();
+
+        if (likes + comments + followers + following + unread > 0) {
+            log.info("Counter reconciliation repaired {} like, {} comment, {} follower, {} following and {} unread counters",
+                    likes, comments, followers, following, unread);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com._blog._blog.service;
 
+import com._blog._blog.event.CacheInvalidationBus;
+import com._blog._blog.event.DomainEvents;
+import com._blog._blog.event.EventPublisher;
 import com._blog._blog.model.Follow;
 import com._blog._blog.model.User;
 import com._blog._blog.repository.FollowRepository;
@@ -7,17 +10,24 @@ import com._blog._blog.repository.UserRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Map;
+
 @Service
 public class FollowService {
 
     private final FollowRepository followRepository;
     private final UserRepository userRepository;
-    private final NotificationService notificationService;
+    private final TimelineService timelineService;
+    private final EventPublisher eventPublisher;
+    private final CacheInvalidationBus cacheInvalidationBus;
 
-    public FollowService(FollowRepository followRepository, UserRepository userRepository, NotificationService notificationService) {
+    public FollowService(FollowRepository followRepository, UserRepository userRepository, TimelineService timelineService,
+                         EventPublisher eventPublisher, CacheInvalidationBus cacheInvalidationBus) {
         this.followRepository = followRepository;
         this.userRepository = userRepository;
-        this.notificationService = notificationService;
+        this.timelineService = timelineService;
+        this.eventPublisher = eventPublisher;
+        this.cacheInvalidationBus = cacheInvalidationBus;
     }
 
     @Transactional
@@ -38,14 +48,15 @@ public class FollowService {
         Follow follow = new Follow(follower, following);
         followRepository.save(follow);
 
-        // Trigger Notification
-        notificationService.createNotification(
-                following,
-                follower, // Actor
-                follower.getUsername() + " started following you.",
-                "FOLLOW",
-                follower.getId() // relatedId is the follower's user ID
-        );
+        // Pull the followed author's recent posts into the follower's timeline
+        timelineService.onFollow(follower.getId(), following);
+
+        // Follow counters and the notification are applied by outbox subscribers after commit
+        eventPublisher.publish(DomainEvents.USER, following.getId(), DomainEvents.USER_FOLLOWED, Map.of(
+                "followerId", follower.getId(),
+                "followingId", following.getId(),
+                "followerUsername", follower.getUsername()));
+        cacheInvalidationBus.invalidateFollow(follower.getId(), following.getId());
     }
 
     @Transactional
@@ -57,6 +68,11 @@ public class FollowService {
                 .orElseThrow(() -> new RuntimeException("Follow relationship not found"));
 
         followRepository.delete(follow);
+        timelineService.onUnfollow(follower.getId(), followingId);
+        eventPublisher.publish(DomainEvents.USER, followingId, DomainEvents.USER_UNFOLLOWED, Map.of(
+                "followerId", follower.getId(),
+                "followingId", followingId));
+        cacheInvalidationBus.invalidateFollow(follower.getId(), followingId);
     }
 
     public boolean isFollowing(String followerUsername, Long followingId) {
@@ -0,0 +1,507 @@
+package com._blog._blog.service;
+
+import com._blog._blog.event.DomainEvents;
+import com._blog._blog.event.EventPublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+// Write-behind buffer for likes on hot posts ( Post Interactions)
+// With likes.write-behind.enabled=true, PostService.toggleLike only records a like/unlike intent here. Intents are
+// kept per post in a ConcurrentHashMap keyed by user, so concurrent likers of the same post update different bins
+// instead of queueing on the post row. A scheduled flush writes each post's intents as one multi-row INSERT and one
+// DELETE on post_likes plus one PostLiked/PostUnliked outbox event carrying all affected users.
+// Failures are classified: an integrity violation (post or user deleted meanwhile) can never succeed, so the intents
+// it concerns are dropped and counted; anything else keeps the intents and retries that post with backoff.
+// The buffer is capped at likes.write-behind.max-pending intents; beyond that new likers are written synchronously.
+// Durability: a toggle is acknowledged only once its intent is in the like_intents journal. Concurrent toggles share
+// one upsert (whoever holds the journal lock writes everything queued meanwhile), the flush deletes the rows it wrote
+// in the same transaction, and rows left over by a crash are replayed and flushed on startup.
+// A flush also applies the like_count change itself, so the counter and post_likes move together: the persisted
+// state plus the pending deltas is what readers show (see flushGeneration for reading both consistently).
+@Service
+public class LikeBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(LikeBuffer.class);
+
+    // Latest intent of one user on one post, plus the persisted state it applies to. persistedLiked is moved to
+    // what a flush wrote when the intent changed while that flush ran; journaled is set once it is in like_intents
+    static final class Intent {
+        final boolean liked;
+        volatile boolean persistedLiked;
+        volatile boolean journaled;
+
+        Intent(boolean liked, boolean persistedLiked) {
+            this.liked = liked;
+            this.persistedLiked = persistedLiked;
+        }
+
+        long delta() {
+            if (liked == persistedLiked) {
+                return 0;
+            }
+            return liked ? 1 : -1;
+        }
+    }
+
+    static final class PostBuffer {
+        final ConcurrentHashMap<Long, Intent> intents = new ConcurrentHashMap<>();
+        // Set by the flusher while it drops an empty buffer; writers that raced with it retry on a fresh one
+        volatile boolean retired;
+        // Consecutive failed flushes and when the next one may run; only touched by the flusher
+        int failures;
+        long retryAt;
+    }
+
+    // A toggle waiting for its intent to reach the journal
+    static final class JournalEntry {
+        final Long postId;
+        final Long userId;
+        boolean done;
+        RuntimeException failure;
+
+        JournalEntry(Long postId, Long userId) {
+            this.postId = postId;
+            this.userId = userId;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, PostBuffer> pending = new ConcurrentHashMap<>();
+    // Intents across all posts, checked against maxPending
+    private final AtomicInteger size = new AtomicInteger();
+    // Odd while a flush is writing or settling a post, bumped again when it is done
+    private final AtomicLong flushGeneration = new AtomicLong();
+
+    private final ConcurrentLinkedQueue<JournalEntry> journalQueue = new ConcurrentLinkedQueue<>();
+    private final Object journalLock = new Object();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EventPublisher eventPublisher;
+
+    private final Counter dropped;
+    private final Counter overflow;
+
+    @Value("${likes.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${likes.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${likes.write-behind.max-pending:100000}")
+    private int maxPending;
+
+    @Value("${likes.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${likes.write-behind.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+
+    public LikeBuffer(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, EventPublisher eventPublisher,
+                      MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.dropped = Counter.builder("likes.write-behind.dropped")
+                .description("Intents discarded because their post or user no longer exists")
+                .register(meterRegistry);
+        this.overflow = Counter.builder("likes.write-behind.overflow")
+                .description("Toggles written synchronously because the buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("likes.write-behind.pending", size, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // False when this toggle must go to the database directly: the buffer is full and holds nothing for this
+    // user and post (a pending intent is always updated in place, so it never races a synchronous write)
+    public boolean accepts(Long postId, Long userId) {
+        if (currentIntent(postId, userId) != null || size.get() < maxPending) {
+            return true;
+        }
+        overflow.increment();
+        return false;
+    }
+
+    // Records a toggle and returns the new liked state once it is journaled; persistedLiked is only queried when no
+    // intent is pending. Call it outside a transaction: the journal write commits on its own. Fails with 503 (and
+    // leaves the intent as it was) when the journal cannot be written.
+    public boolean toggle(Long postId, Long userId, BooleanSupplier persistedLiked) {
+        Intent existing = currentIntent(postId, userId);
+        boolean persisted = existing != null ? existing.persistedLiked : persistedLiked.getAsBoolean();
+
+        while (true) {
+            PostBuffer buffer = pending.computeIfAbsent(postId, k -> new PostBuffer());
+            Intent[] previous = new Intent[1];
+            Intent updated = buffer.intents.compute(userId, (k, current) -> {
+                previous[0] = current;
+                return current == null
+                        ? new Intent(!persisted, persisted)
+                        : new Intent(!current.liked, current.persistedLiked);
+            });
+            if (!buffer.retired) {
+                if (previous[0] == null) {
+                    size.incrementAndGet();
+                }
+                journal(postId, userId, buffer, updated, previous[0]);
+                return updated.liked;
+            }
+            // The flusher dropped this buffer concurrently: undo and retry on the replacement
+            if (previous[0] == null) {
+                buffer.intents.remove(userId, updated);
+            } else {
+                buffer.intents.replace(userId, updated, previous[0]);
+            }
+        }
+    }
+
+    // Read-your-writes: the pending state for this user, or null when the database is authoritative
+    public Boolean pendingLikeState(Long postId, Long userId) {
+        Intent intent = currentIntent(postId, userId);
+        return intent == null ? null : intent.liked;
+    }
+
+    // Net change to like_count that has not been flushed yet
+    public long pendingDelta(Long postId) {
+        PostBuffer buffer = pending.get(postId);
+        if (buffer == null) {
+            return 0;
+        }
+        long delta = 0;
+        for (Intent intent : buffer.intents.values()) {
+            delta += intent.delta();
+        }
+        return delta;
+    }
+
+    // Drops pending intents of a deleted post or user, so they are not flushed into an integrity violation (and
+    // dropped then) or kept in memory until the next flush. Empty buffers are left to the flusher to retire.
+    public void evictPost(Long postId) {
+        PostBuffer buffer = pending.get(postId);
+        if (buffer != null) {
+            discard(buffer, new HashMap<>(buffer.intents));
+        }
+        jdbcTemplate.update("DELETE FROM like_intents WHERE post_id = ?", postId);
+    }
+
+    public void evictUser(Long userId) {
+        for (PostBuffer buffer : pending.values()) {
+            Intent intent = buffer.intents.get(userId);
+            if (intent != null) {
+                discard(buffer, Map.of(userId, intent));
+            }
+        }
+        jdbcTemplate.update("DELETE FROM like_intents WHERE user_id = ?", userId);
+    }
+
+    // Readers that combine persisted like state with the pending one take this before reading the database and
+    // check unchangedSince afterwards; a flush in between moved intents from one side to the other, so read again
+    public long flushGeneration() {
+        return flushGeneration.get();
+    }
+
+    public boolean unchangedSince(long generation) {
+        return (generation & 1) == 0 && flushGeneration.get() == generation;
+    }
+
+    private Intent currentIntent(Long postId, Long userId) {
+        PostBuffer buffer = pending.get(postId);
+        return buffer == null ? null : buffer.intents.get(userId);
+    }
+
+    // Group commit: queue the toggle, then whoever gets the lock first writes every queued intent in one upsert
+    private void journal(Long postId, Long userId, PostBuffer buffer, Intent updated, Intent previous) {
+        JournalEntry entry = new JournalEntry(postId, userId);
+        journalQueue.add(entry);
+        synchronized (journalLock) {
+            if (!entry.done) {
+                writeJournal();
+            }
+        }
+        if (entry.failure != null) {
+            // Not acknowledged, so not applied either
+            if (previous == null) {
+                if (buffer.intents.remove(userId, updated)) {
+                    size.decrementAndGet();
+                }
+            } else {
+                buffer.intents.replace(userId, updated, previous);
+            }
+            log.warn("Could not journal like intent for post {}: {}", postId, entry.failure.getMessage());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Like could not be recorded, try again");
+        }
+    }
+
+    // Writes the current intent of every queued (post, user); later toggles of the same pair are covered by it
+    private void writeJournal() {
+        List<JournalEntry> entries = new ArrayList<>();
+        for (JournalEntry entry; (entry = journalQueue.poll()) != null; ) {
+            entries.add(entry);
+        }
+        Map<List<Long>, Intent> current = new LinkedHashMap<>();
+        for (JournalEntry entry : entries) {
+            Intent intent = currentIntent(entry.postId, entry.userId);
+            if (intent != null) {
+                current.put(List.of(entry.postId, entry.userId), intent);
+            }
+        }
+        RuntimeException failure = null;
+        if (!current.isEmpty()) {
+            Long[] postIds = new Long[current.size()];
+            Long[] userIds = new Long[current.size()];
+            Boolean[] liked = new Boolean[current.size()];
+            int i = 0;
+            for (Map.Entry<List<Long>, Intent> e : current.entrySet()) {
+                postIds[i] = e.getKey().get(0);
+                userIds[i] = e.getKey().get(1);
+                liked[i++] = e.getValue().liked;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                        "INSERT INTO like_intents (post_id, user_id, liked, recorded_at) " +
+                        "SELECT p, u, l, now() FROM unnest(?::bigint[], ?::bigint[], ?::boolean[]) AS t(p, u, l) " +
+                        "ON CONFLICT (post_id, user_id) DO UPDATE SET liked = excluded.liked, recorded_at = excluded.recorded_at",
+                        postIds, userIds, liked));
+                current.values().forEach(intent -> intent.journaled = true);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        for (JournalEntry entry : entries) {
+            entry.failure = failure;
+            entry.done = true;
+        }
+    }
+
+    // Intents left in the journal by a crash (or a shutdown whose final flush failed) go back into the buffer and
+    // are flushed right away, whether or not write-behind is still enabled
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayJournal() {
+        int[] replayed = new int[1];
+        jdbcTemplate.query("SELECT l.post_id, l.user_id, l.liked, EXISTS (SELECT 1 FROM post_likes pl " +
+                "WHERE pl.post_id = l.post_id AND pl.user_id = l.user_id) AS persisted FROM like_intents l", rs -> {
+            Intent intent = new Intent(rs.getBoolean("liked"), rs.getBoolean("persisted"));
+            intent.journaled = true;
+            // A toggle that arrived before the replay is newer and already journaled over this row
+            if (pending.computeIfAbsent(rs.getLong("post_id"), k -> new PostBuffer()).intents
+                    .putIfAbsent(rs.getLong("user_id"), intent) == null) {
+                size.incrementAndGet();
+                replayed[0]++;
+            }
+        });
+        if (replayed[0] > 0) {
+            log.info("Replaying {} journaled like intents", replayed[0]);
+            flush();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${likes.write-behind.flush-interval-ms:200}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Long postId : pending.keySet()) {
+            PostBuffer buffer = pending.get(postId);
+            if (buffer == null || buffer.retryAt > now) {
+                continue;
+            }
+
+            // Only acknowledged intents; one still being journaled goes out with the next flush
+            Map<Long, Intent> snapshot = new HashMap<>();
+            buffer.intents.forEach((userId, intent) -> {
+                if (intent.journaled) {
+                    snapshot.put(userId, intent);
+                }
+            });
+            if (snapshot.isEmpty()) {
+                if (buffer.intents.isEmpty()) {
+                    retireIfEmpty(postId, buffer);
+                }
+                continue;
+            }
+
+            flushGeneration.incrementAndGet();
+            try {
+                flushPost(postId, buffer, snapshot, now);
+            } finally {
+                flushGeneration.incrementAndGet();
+            }
+        }
+    }
+
+    private void flushPost(Long postId, PostBuffer buffer, Map<Long, Intent> snapshot, long now) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writePost(postId, snapshot));
+        } catch (DataIntegrityViolationException e) {
+            // Permanent: the post or some of the users were deleted. Drop what can never be written; the
+            // remaining intents go out with the next flush
+            Set<Long> writable;
+            try {
+                writable = writableUsers(postId, snapshot.keySet());
+            } catch (RuntimeException lookupFailure) {
+                backOff(postId, buffer, now, lookupFailure);
+                return;
+            }
+            Map<Long, Intent> unwritable = new HashMap<>(snapshot);
+            unwritable.keySet().removeAll(writable);
+            if (unwritable.isEmpty()) {
+                // Not explained by deleted rows: discard the batch rather than retry it forever
+                unwritable = snapshot;
+            }
+            log.warn("Dropping {} like intents for post {}: {}", unwritable.size(), postId, e.getMostSpecificCause().getMessage());
+            discard(buffer, unwritable);
+            dropped.increment(unwritable.size());
+            try {
+                jdbcTemplate.update("DELETE FROM like_intents WHERE post_id = ? AND user_id = ANY(?)",
+                        postId, unwritable.keySet().toArray(new Long[0]));
+            } catch (RuntimeException journalFailure) {
+                // Replayed and dropped again after a restart
+                log.warn("Could not remove dropped like intents of post {} from the journal: {}", postId, journalFailure.getMessage());
+            }
+            retireIfEmpty(postId, buffer);
+            return;
+        } catch (RuntimeException e) {
+            // Transient (connection, timeout, serialization): keep the intents and back off this post
+            backOff(postId, buffer, now, e);
+            return;
+        }
+
+        buffer.failures = 0;
+        buffer.retryAt = 0;
+        settle(buffer, snapshot);
+        retireIfEmpty(postId, buffer);
+    }
+
+    private void backOff(Long postId, PostBuffer buffer, long now, RuntimeException e) {
+        buffer.failures++;
+        buffer.retryAt = now + Math.min(maxBackoffMs, flushIntervalMs << Math.min(buffer.failures, 16));
+        if (buffer.failures == 1 || buffer.failures % 10 == 0) {
+            log.warn("Like flush failed for post {} ({} in a row): {}", postId, buffer.failures, e.getMessage());
+        }
+    }
+
+    // After a successful write: drop the intents that did not change meanwhile, and measure the ones that did against
+    // what was just written, not against the state before the flush
+    private void settle(PostBuffer buffer, Map<Long, Intent> written) {
+        written.forEach((userId, intent) -> buffer.intents.computeIfPresent(userId, (k, current) -> {
+            if (current == intent) {
+                size.decrementAndGet();
+                return null;
+            }
+            current.persistedLiked = intent.liked;
+            return current;
+        }));
+    }
+
+    private void discard(PostBuffer buffer, Map<Long, Intent> intents) {
+        intents.forEach((userId, intent) -> {
+            if (buffer.intents.remove(userId, intent)) {
+                size.decrementAndGet();
+            }
+        });
+    }
+
+    // Users of the batch that still exist, or none when the post itself is gone
+    private Set<Long> writableUsers(Long postId, Set<Long> userIds) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT u.id FROM users u WHERE u.id = ANY(?) AND EXISTS (SELECT 1 FROM posts p WHERE p.id = ?)",
+                Long.class, userIds.toArray(new Long[0]), postId));
+    }
+
+    private void retireIfEmpty(Long postId, PostBuffer buffer) {
+        buffer.retired = true;
+        if (buffer.intents.isEmpty()) {
+            pending.remove(postId, buffer);
+        } else {
+            buffer.retired = false;
+        }
+    }
+
+    private void writePost(Long postId, Map<Long, Intent> snapshot) {
+        List<Long> likers = new ArrayList<>();
+        List<Long> unlikers = new ArrayList<>();
+        snapshot.forEach((userId, intent) -> (intent.liked ? likers : unlikers).add(userId));
+
+        List<Long> inserted = new ArrayList<>();
+        for (List<Long> chunk : chunks(likers)) {
+            inserted.addAll(jdbcTemplate.queryForList(
+                    "INSERT INTO post_likes (post_id, user_id) SELECT ?, unnest(?::bigint[]) ON CONFLICT DO NOTHING RETURNING user_id",
+                    Long.class, postId, chunk.toArray(new Long[0])));
+        }
+
+        List<Long> deleted = new ArrayList<>();
+        for (List<Long> chunk : chunks(unlikers)) {
+            deleted.addAll(jdbcTemplate.queryForList(
+                    "DELETE FROM post_likes WHERE post_id = ? AND user_id = ANY(?) RETURNING user_id",
+                    Long.class, postId, chunk.toArray(new Long[0])));
+        }
+
+        // The flushed rows leave the journal with this transaction; a row re-journaled with the other state since stays
+        List<Long> users = new ArrayList<>(snapshot.keySet());
+        jdbcTemplate.update("DELETE FROM like_intents l USING unnest(?::bigint[], ?::boolean[]) AS f(user_id, liked) " +
+                        "WHERE l.post_id = ? AND l.user_id = f.user_id AND l.liked = f.liked",
+                users.toArray(new Long[0]), users.stream().map(userId -> snapshot.get(userId).liked).toArray(Boolean[]::new), postId);
+
+        // The counter is applied here, one update per flush, so it never lags the rows readers overlay pending
+        // intents on; notifications follow through the outbox, one event per direction for the whole flush
+        if (inserted.size() != deleted.size()) {
+            jdbcTemplate.update("UPDATE posts SET like_count = like_count + ? WHERE id = ?", inserted.size() - deleted.size(), postId);
+        }
+        if (!inserted.isEmpty()) {
+            Long authorId = jdbcTemplate.queryForObject("SELECT user_id FROM posts WHERE id = ?", Long.class, postId);
+            eventPublisher.publish(DomainEvents.POST, postId, DomainEvents.POST_LIKED, Map.of(
+                    "postId", postId,
+                    "authorId", authorId,
+                    "userIds", inserted,
+                    DomainEvents.COUNT_APPLIED, true));
+        }
+        if (!deleted.isEmpty()) {
+            eventPublisher.publish(DomainEvents.POST, postId, DomainEvents.POST_UNLIKED, Map.of(
+                    "postId", postId,
+                    "userIds", deleted,
+                    DomainEvents.COUNT_APPLIED, true));
+        }
+    }
+
+    private List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += batchSize) {
+            chunks.add(ids.subList(i, Math.min(i + batchSize, ids.size())));
+        }
+        return chunks;
+    }
+
+    // Final drain on a clean shutdown; after a crash the journal is replayed instead
+    @PreDestroy
+    public void drain() {
+        if (!pending.isEmpty()) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com._blog._blog.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Local disk media backend, served by MediaFileController under /media/** ( Secure Media Storage)
+// Files are written to a temp file and renamed into <root>/<public_id>, so readers never see a partial file
+@Service
+@ConditionalOnProperty(name = "media.storage", havingValue = "local")
+public class LocalMediaStorage implements MediaStorage {
+
+    private final Path root;
+    private final String publicBaseUrl;
+
+    public LocalMediaStorage(@Value("${media.local.root:./media-store}") String root,
+                             @Value("${media.local.public-base-url:http://localhost:8080/media}") String publicBaseUrl) throws IOException {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.publicBaseUrl = publicBaseUrl.endsWith("/") ? publicBaseUrl.substring(0, publicBaseUrl.length() - 1) : publicBaseUrl;
+        Files.createDirectories(this.root);
+    }
+
+    @Override
+    public Map upload(Path file, String folder, String name, String resourceType) throws IOException {
+        String publicId = folder + "/" + name;
+        Path target = resolve(publicId);
+        Files.createDirectories(target.getParent());
+
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".part");
+        long size;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += out.transferFrom(in, position, size - position);
+            }
+            out.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        String url = publicBaseUrl + "/" + publicId;
+        Map<String, Object> result = new HashMap<>();
+        result.put("public_id", publicId);
+        result.put("resource_type", resourceType);
+        result.put("secure_url", url);
+        result.put("url", url);
+        result.put("bytes", size);
+        return result;
+    }
+
+    @Override
+    public void delete(String publicId) throws IOException {
+        Files.deleteIfExists(resolve(publicId));
+    }
+
+    @Override
+    public Map<String, String> deleteBatch(List<String> publicIds, String resourceType) throws IOException {
+        Map<String, String> outcomes = new HashMap<>();
+        for (String publicId : publicIds) {
+            outcomes.put(publicId, Files.deleteIfExists(resolve(publicId)) ? "deleted" : "not_found");
+        }
+        return outcomes;
+    }
+
+    // Regular file for a public id, or NoSuchFileException
+    public Path open(String publicId) throws IOException {
+        Path path = resolve(publicId);
+        if (!Files.isRegularFile(path) || path.getFileName().toString().startsWith(".")) {
+            throw new NoSuchFileException(publicId);
+        }
+        return path;
+    }
+
+    // Public ids come from URLs on the serving side, so never let them escape the storage root
+    private Path resolve(String publicId) {
+        Path path = root.resolve(publicId).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid media id");
+        }
+        return path;
+    }
+}
@@ -0,0 +1,133 @@
+package com._blog._blog.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Content-addressed reference counting of stored media ( Media Deduplication)
+// Uploads are keyed by the SHA-256 computed while staging. A known hash reuses the existing asset without any
+// transfer; deleting a post or comment releases its reference and only the last release queues the asset for
+// deletion. All methods run inside the caller's transaction; the row lock taken by acquire/release serialises
+// concurrent users of one hash, so an asset is never reused after its last reference was dropped.
+@Service
+public class MediaBlobService {
+
+    // Asset that a post or comment should point at
+    public record Blob(String publicId, String secureUrl, String resourceType, String variants) {}
+
+    // One reference held by a post or comment row (its public_id and media_type)
+    public record MediaRef(String publicId, String resourceType) {}
+
+    private static final RowMapper<Blob> BLOB_ROW = (rs, i) -> new Blob(rs.getString("public_id"),
+            rs.getString("secure_url"), rs.getString("resource_type"), rs.getString("variants"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MediaDeletionQueue mediaDeletionQueue;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public MediaBlobService(JdbcTemplate jdbcTemplate, MediaDeletionQueue mediaDeletionQueue, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mediaDeletionQueue = mediaDeletionQueue;
+        this.hits = Counter.builder("media.dedup").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("media.dedup").tag("result", "miss").register(meterRegistry);
+    }
+
+    // Takes a reference on an existing asset with this content, if any
+    public Optional<Blob> acquire(String sha256) {
+        if (sha256 == null) {
+            return Optional.empty();
+        }
+        List<Blob> rows = jdbcTemplate.query(
+                "UPDATE media_blobs SET ref_count = ref_count + 1 WHERE sha256 = ? AND ref_count > 0 " +
+                "RETURNING public_id, secure_url, resource_type, variants",
+                BLOB_ROW, sha256);
+        (rows.isEmpty() ? misses : hits).increment();
+        return rows.stream().findFirst();
+    }
+
+    // Records a freshly uploaded asset with one reference. When the same content finished uploading concurrently,
+    // the earlier asset wins and the upload result is queued for deletion.
+    public Blob register(String sha256, Map result) {
+        Blob uploaded = new Blob((String) result.get("public_id"), (String) result.get("secure_url"),
+                (String) result.get("resource_type"), (String) result.get("variants"));
+        if (sha256 == null) {
+            return uploaded;
+        }
+        Blob blob = jdbcTemplate.queryForObject(
+                "INSERT INTO media_blobs (sha256, public_id, secure_url, resource_type, variants, ref_count, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, 1, now()) " +
+                "ON CONFLICT (sha256) DO UPDATE SET ref_count = media_blobs.ref_count + 1 " +
+                "RETURNING public_id, secure_url, resource_type, variants",
+                BLOB_ROW, sha256, uploaded.publicId(), uploaded.secureUrl(), uploaded.resourceType(), uploaded.variants());
+        if (!blob.publicId().equals(uploaded.publicId())) {
+            mediaDeletionQueue.enqueue(uploaded.publicId(), uploaded.resourceType());
+        }
+        return blob;
+    }
+
+    // Drops one reference; assets not tracked here (uploaded before deduplication) are deleted directly
+    public void release(String publicId, String resourceType) {
+        if (publicId == null || publicId.isEmpty()) {
+            return;
+        }
+        List<Integer> remaining = jdbcTemplate.queryForList(
+                "UPDATE media_blobs SET ref_count = ref_count - 1 WHERE public_id = ? RETURNING ref_count",
+                Integer.class, publicId);
+        if (remaining.isEmpty() || remaining.get(0) <= 0) {
+            jdbcTemplate.update("DELETE FROM media_blobs WHERE public_id = ? AND ref_count <= 0", publicId);
+            mediaDeletionQueue.enqueue(publicId, resourceType);
+        }
+    }
+
+    // release() for many references at once (a deleted subtree, post or user history): one UPDATE for the counts,
+    // one DELETE for the blobs that reached zero and a batched insert into the deletion queue
+    public void releaseAll(List<MediaRef> refs) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        Map<String, String> types = new HashMap<>();
+        for (MediaRef ref : refs) {
+            if (ref.publicId() == null || ref.publicId().isEmpty()) {
+                continue;
+            }
+            counts.merge(ref.publicId(), 1, Integer::sum);
+            types.putIfAbsent(ref.publicId(), ref.resourceType());
+        }
+        if (counts.isEmpty()) {
+            return;
+        }
+
+        Map<String, Integer> remaining = new HashMap<>();
+        jdbcTemplate.query(
+                "UPDATE media_blobs b SET ref_count = b.ref_count - r.n " +
+                "FROM unnest(?::text[], ?::int[]) AS r(public_id, n) WHERE b.public_id = r.public_id " +
+                "RETURNING b.public_id, b.ref_count",
+                rs -> {
+                    remaining.put(rs.getString("public_id"), rs.getInt("ref_count"));
+                },
+                counts.keySet().toArray(new String[0]), counts.values().toArray(new Integer[0]));
+
+        // Untracked assets (uploaded before deduplication) are deleted directly, like release()
+        Map<String, String> unreferenced = new LinkedHashMap<>();
+        counts.keySet().forEach(publicId -> {
+            Integer left = remaining.get(publicId);
+            if (left == null || left <= 0) {
+                unreferenced.put(publicId, types.get(publicId));
+            }
+        });
+        if (unreferenced.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM media_blobs WHERE public_id = ANY(?) AND ref_count <= 0",
+                (Object) unreferenced.keySet().toArray(new String[0]));
+        mediaDeletionQueue.enqueueAll(unreferenced);
+    }
+}
@@ -0,0 +1,187 @@
+package com._blog._blog.service;
+
+import com._blog._blog.repository.MediaDeletionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Durable queue of storage assets to delete ( Media Deletion Queue)
+// Delete paths only insert rows here, inside their own transaction, so they return without calling storage and an
+// asset is never forgotten if the surrounding change commits. A scheduled drainer leases due rows (SKIP LOCKED, so
+// several nodes can drain together), deletes them with the bulk API per resource type, and retries failures with
+// backoff until media.deletions.max-attempts, after which rows stay behind as DEAD for inspection.
+@Service
+public class MediaDeletionQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(MediaDeletionQueue.class);
+
+    private record Lease(Long id, String publicId, String resourceType, int attempts) {}
+
+    private final MediaDeletionRepository mediaDeletionRepository;
+    private final MediaService mediaService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter deleted;
+    private final Counter retried;
+    private final Counter dead;
+    private final AtomicLong pending = new AtomicLong();
+
+    @Value("${media.deletions.batch-size:100}")
+    private int batchSize;
+
+    @Value("${media.deletions.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${media.deletions.lease-seconds:300}")
+    private int leaseSeconds;
+
+    public MediaDeletionQueue(MediaDeletionRepository mediaDeletionRepository,
+                              MediaService mediaService,
+                              JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry) {
+        this.mediaDeletionRepository = mediaDeletionRepository;
+        this.mediaService = mediaService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.deleted = Counter.builder("media.deletions").tag("result", "deleted").register(meterRegistry);
+        this.retried = Counter.builder("media.deletions").tag("result", "retried").register(meterRegistry);
+        this.dead = Counter.builder("media.deletions").tag("result", "dead").register(meterRegistry);
+        Gauge.builder("media.deletions.pending", pending, AtomicLong::get).register(meterRegistry);
+    }
+
+    // Must run inside the transaction that drops the reference
+    public void enqueue(String publicId, String resourceType) {
+        if (publicId == null || publicId.isEmpty()) {
+            return;
+        }
+        String type = resourceType != null ? resourceType : "image";
+        mediaDeletionRepository.enqueue(publicId, type);
+        // Generated image variants; "not_found" counts as done, so assets without variants cost nothing extra
+        if ("image".equals(type)) {
+            for (String suffix : MediaVariantService.SUFFIXES) {
+                mediaDeletionRepository.enqueue(publicId + suffix, "image");
+            }
+        }
+    }
+
+    // enqueue() for many assets (public id -> resource type) in one batched insert
+    public void enqueueAll(Map<String, String> assets) {
+        List<Object[]> rows = new ArrayList<>();
+        assets.forEach((publicId, resourceType) -> {
+            String type = resourceType != null ? resourceType : "image";
+            rows.add(new Object[] { publicId, type });
+            if ("image".equals(type)) {
+                for (String suffix : MediaVariantService.SUFFIXES) {
+                    rows.add(new Object[] { publicId + suffix, "image" });
+                }
+            }
+        });
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO media_deletions (public_id, resource_type, status, attempts, next_attempt_at, created_at) " +
+                "VALUES (?, ?, 'PENDING', 0, now(), now())", rows);
+    }
+
+    @Scheduled(fixedDelayString = "${media.deletions.poll-ms:2000}")
+    public void drain() {
+        List<Lease> leased;
+        do {
+            leased = lease();
+            if (leased.isEmpty()) {
+                break;
+            }
+            Map<String, List<Lease>> byType = new LinkedHashMap<>();
+            for (Lease lease : leased) {
+                byType.computeIfAbsent(lease.resourceType(), t -> new ArrayList<>()).add(lease);
+            }
+            byType.forEach(this::deleteBatch);
+        } while (leased.size() == batchLimit());
+        pending.set(mediaDeletionRepository.countPending());
+    }
+
+    // Claims due rows by pushing their next attempt past the lease, so a crashed drainer's rows come back on their own
+    private List<Lease> lease() {
+        int limit = batchLimit();
+        return transactionTemplate.execute(status -> jdbcTemplate.query(
+                "UPDATE media_deletions SET attempts = attempts + 1, next_attempt_at = now() + make_interval(secs => ?) " +
+                "WHERE id IN (SELECT id FROM media_deletions WHERE status = 'PENDING' AND next_attempt_at <= now() " +
+                "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                "RETURNING id, public_id, resource_type, attempts",
+                (rs, i) -> new Lease(rs.getLong("id"), rs.getString("public_id"), rs.getString("resource_type"), rs.getInt("attempts")),
+                leaseSeconds, limit));
+    }
+
+    // The bulk delete endpoint accepts at most 100 public ids per call
+    private int batchLimit() {
+        return Math.max(1, Math.min(batchSize, 100));
+    }
+
+    private void deleteBatch(String resourceType, List<Lease> batch) {
+        List<String> publicIds = batch.stream().map(Lease::publicId).toList();
+        Map<String, String> results;
+        try {
+            results = mediaService.deleteBatch(publicIds, resourceType);
+        } catch (Exception e) {
+            fail(batch, e.getClass().getSimpleName() + ": " + e.getMessage());
+            return;
+        }
+
+        // "deleted" and "not_found" both mean the asset is gone
+        List<Long> done = new ArrayList<>();
+        List<Lease> failed = new ArrayList<>();
+        for (Lease lease : batch) {
+            String outcome = results.get(lease.publicId());
+            if ("deleted".equals(outcome) || "not_found".equals(outcome)) {
+                done.add(lease.id());
+            } else {
+                failed.add(lease);
+            }
+        }
+        if (!done.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> mediaDeletionRepository.deleteDone(done));
+            deleted.increment(done.size());
+        }
+        if (!failed.isEmpty()) {
+            fail(failed, "Storage did not confirm deletion");
+        }
+    }
+
+    private void fail(List<Lease> leases, String error) {
+        List<Long> retry = new ArrayList<>();
+        List<Long> give = new ArrayList<>();
+        int attempts = 1;
+        for (Lease lease : leases) {
+            (lease.attempts() >= maxAttempts ? give : retry).add(lease.id());
+            attempts = Math.max(attempts, lease.attempts());
+        }
+        long backoffSeconds = Math.min(3600, 5L << Math.min(attempts, 10));
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!retry.isEmpty()) {
+                mediaDeletionRepository.scheduleRetry(retry, LocalDateTime.now().plusSeconds(backoffSeconds), error);
+            }
+            if (!give.isEmpty()) {
+                mediaDeletionRepository.markDead(give, error);
+            }
+        });
+        retried.increment(retry.size());
+        dead.increment(give.size());
+        log.warn("Media deletion failed for {} assets ({} dead): {}", leases.size(), give.size(), error);
+    }
+}
@@ -0,0 +1,233 @@
+package com._blog._blog.service;
+
+import com._blog._blog.dto.MediaVariants;
+import com._blog._blog.repository.CommentRepository;
+import com._blog._blog.repository.PostRepository;
+import com._blog._blog.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Uploads staged media off the request path ( Media Pipeline)
+// Services stage the file, mark their row PENDING and submit a job. The job starts after the surrounding
+// transaction commits, so no DB connection is held during the upload. Workers retry failures with exponential
+// backoff and then run the job's completion in a short transaction that sets READY or FAILED.
+@Service
+public class MediaPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(MediaPipeline.class);
+
+    public static final String PENDING = "PENDING";
+    public static final String READY = "READY";
+    public static final String FAILED = "FAILED";
+
+    // Applies the outcome to the owning row; runs inside a transaction
+    public interface Completion {
+        void ready(Map result);
+
+        void failed();
+    }
+
+    private final class Job {
+        final String kind;
+        final MediaService.StagedMedia media;
+        final String folder;
+        final String customName;
+        final Completion completion;
+        final CompletableFuture<Map> future = new CompletableFuture<>();
+        final long submittedAt = System.nanoTime();
+        int attempts;
+
+        Job(String kind, MediaService.StagedMedia media, String folder, String customName, Completion completion) {
+            this.kind = kind;
+            this.media = media;
+            this.folder = folder;
+            this.customName = customName;
+            this.completion = completion;
+        }
+    }
+
+    private final MediaService mediaService;
+    private final MediaVariantService mediaVariantService;
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final UserRepository userRepository;
+    private final ThreadPoolTaskExecutor executor;
+    private final TaskScheduler taskScheduler;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger waitingRetries = new AtomicInteger();
+    private final Counter retries;
+
+    @Value("${media.pipeline.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${media.pipeline.backoff-ms:1000}")
+    private long backoffMs;
+
+    @Value("${media.pipeline.stale-after-minutes:30}")
+    private long staleAfterMinutes;
+
+    // Job kinds whose uploads get thumbnails/responsive variants (result key "variants", a JSON name -> URL map)
+    @Value("${media.variants.kinds:post,comment}")
+    private Set<String> variantKinds;
+
+    public MediaPipeline(MediaService mediaService,
+                         MediaVariantService mediaVariantService,
+                         PostRepository postRepository,
+                         CommentRepository commentRepository,
+                         UserRepository userRepository,
+                         @Qualifier("mediaPipelineExecutor") ThreadPoolTaskExecutor executor,
+                         TaskScheduler taskScheduler,
+                         TransactionTemplate transactionTemplate,
+                         MeterRegistry meterRegistry) {
+        this.mediaService = mediaService;
+        this.mediaVariantService = mediaVariantService;
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.userRepository = userRepository;
+        this.executor = executor;
+        this.taskScheduler = taskScheduler;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.retries = Counter.builder("media.pipeline.retries").register(meterRegistry);
+        Gauge.builder("media.pipeline.queue", this,
+                p -> p.executor.getThreadPoolExecutor().getQueue().size() + p.waitingRetries.get()).register(meterRegistry);
+        Gauge.builder("media.pipeline.active", executor, ThreadPoolTaskExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    // kind tags metrics ("post", "comment", "avatar"). The future completes with the upload result once the
+    // completion has been applied, or exceptionally when the job gives up.
+    public CompletableFuture<Map> submit(String kind, MediaService.StagedMedia media, String folder, String customName, Completion completion) {
+        Job job = new Job(kind, media, folder, customName, completion);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        enqueue(job);
+                    } else {
+                        mediaService.discard(job.media);
+                        job.future.cancel(false);
+                    }
+                }
+            });
+        } else {
+            enqueue(job);
+        }
+        return job.future;
+    }
+
+    // Public id Cloudinary will assign; stored on the row while PENDING so stale results can be recognised
+    public static String expectedPublicId(String folder, String customName) {
+        return folder + "/" + customName;
+    }
+
+    private void enqueue(Job job) {
+        try {
+            executor.execute(() -> attempt(job));
+        } catch (RejectedExecutionException e) {
+            log.warn("Media pipeline full, failing {} upload {}", job.kind, job.customName);
+            fail(job, e);
+        }
+    }
+
+    private void attempt(Job job) {
+        job.attempts++;
+        Map uploaded;
+        try {
+            uploaded = mediaService.upload(job.media, job.folder, job.customName);
+        } catch (Exception e) {
+            if (job.attempts >= maxAttempts) {
+                fail(job, e);
+                return;
+            }
+            long delay = backoffMs << (job.attempts - 1);
+            log.warn("{} upload {} failed (attempt {}), retrying in {} ms: {}", job.kind, job.customName, job.attempts, delay, e.getMessage());
+            retries.increment();
+            waitingRetries.incrementAndGet();
+            taskScheduler.schedule(() -> {
+                waitingRetries.decrementAndGet();
+                enqueue(job);
+            }, Instant.now().plusMillis(delay));
+            return;
+        }
+
+        // Variants are best effort: the original is already stored, so they never fail or retry the job
+        Map result = uploaded;
+        if (variantKinds.contains(job.kind)) {
+            Map<String, Object> withVariants = new HashMap<>();
+            ((Map<?, ?>) uploaded).forEach((key, value) -> withVariants.put(String.valueOf(key), value));
+            withVariants.put("variants", MediaVariants.toJson(
+                    mediaVariantService.generate(job.media, job.folder, job.customName, uploaded)));
+            result = withVariants;
+        }
+
+        Map completed = result;
+        try {
+            transactionTemplate.executeWithoutResult(status -> job.completion.ready(completed));
+            finish(job, "ready");
+            job.future.complete(completed);
+        } catch (RuntimeException e) {
+            log.error("Could not record {} upload {}: {}", job.kind, job.customName, e.getMessage());
+            finish(job, "failed");
+            job.future.completeExceptionally(e);
+        }
+    }
+
+    private void fail(Job job, Exception cause) {
+        log.error("{} upload {} failed after {} attempts: {}", job.kind, job.customName, job.attempts, cause.getMessage());
+        try {
+            transactionTemplate.executeWithoutResult(status -> job.completion.failed());
+        } catch (RuntimeException e) {
+            log.error("Could not mark {} upload {} as failed: {}", job.kind, job.customName, e.getMessage());
+        }
+        finish(job, "failed");
+        job.future.completeExceptionally(cause);
+    }
+
+    private void finish(Job job, String result) {
+        mediaService.discard(job.media);
+        Timer.builder("media.pipeline.latency").tag("kind", job.kind).tag("result", result)
+                .register(meterRegistry)
+                .record(System.nanoTime() - job.submittedAt, TimeUnit.NANOSECONDS);
+    }
+
+    // Jobs die with the node that staged them; rows left PENDING that long are marked FAILED
+    @Scheduled(fixedDelayString = "${media.pipeline.stale-check-ms:300000}")
+    public void failStaleUploads() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(staleAfterMinutes);
+        transactionTemplate.executeWithoutResult(status -> {
+            int posts = postRepository.failStaleMedia(before);
+            int comments = commentRepository.failStaleMedia(before);
+            int avatars = userRepository.failStaleAvatars(before);
+            if (posts + comments + avatars > 0) {
+                log.warn("Marked {} post, {} comment and {} avatar uploads as FAILED after {} minutes",
+                        posts, comments, avatars, staleAfterMinutes);
+            }
+        });
+    }
+}
@@ -1,38 +1,203 @@
 package com._blog._blog.service;
 
-import com.cloudinary.Cloudinary;
-import com.cloudinary.utils.ObjectUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class MediaService {
 
-    private final Cloudinary cloudinary;
+    private static final Logger log = LoggerFactory.getLogger(MediaService.class);
 
-    public MediaService(Cloudinary cloudinary) {
-        this.cloudinary = cloudinary;
+    // Callback for a blocking storage call made while holding a media permit
+    @FunctionalInterface
+    private interface MediaCall<T> {
+        T run() throws IOException;
     }
 
-    // Upload file to Cloudinary with folder organization and custom naming ( Secure Media Storage)
+    // An upload that passed validation and waits on local disk: "image" or "video", plus its content hash
+    public static final class StagedMedia {
+        private final Path path;
+        private final String resourceType;
+        private final String sha256;
+
+        public StagedMedia(Path path, String resourceType, String sha256) {
+            this.path = path;
+            this.resourceType = resourceType;
+            this.sha256 = sha256;
+        }
+
+        public Path getPath() { return path; }
+        public String getResourceType() { return resourceType; }
+        public String getSha256() { return sha256; }
+    }
+
+    private final MediaStorage storage;
+
+    // Bounds concurrent outbound media calls so slow uploads cannot occupy every request thread ( Media Throughput)
+    private final Semaphore permits;
+    private final Counter rejected;
+
+    @Value("${media.permit-timeout-ms:2000}")
+    private long permitTimeoutMs;
+
+    @Value("${media.upload.temp-dir:}")
+    private String tempDir;
+
+    public MediaService(MediaStorage storage,
+                        @Value("${media.max-concurrent-calls:8}") int maxConcurrentCalls,
+                        MeterRegistry meterRegistry) {
+        this.storage = storage;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.rejected = Counter.builder("media.calls.rejected").description("Media calls refused because all permits were busy").register(meterRegistry);
+        Gauge.builder("media.calls.in-flight", permits, p -> maxConcurrentCalls - p.availablePermits()).register(meterRegistry);
+    }
+
+    // Upload file to the configured MediaStorage with folder organization and custom naming ( Secure Media Storage)
+    // The part's type is sniffed from its first bytes, then it is moved to a temp file (Tomcat already spooled it to disk);
+    // the backend then streams it from disk, so heap per upload stays bounded.
     public Map uploadFile(MultipartFile file, String folder, String customName) throws IOException {
+        StagedMedia staged = stage(file);
+        try {
+            return withPermit(() -> storage.upload(staged.getPath(), folder, customName, staged.getResourceType()));
+        } finally {
+            discard(staged);
+        }
+    }
+
+    // Validates and moves the upload to a temp file that outlives the request (see MediaPipeline).
+    // transferTo renames the spooled part where possible; it never reads the content into the heap.
+    public StagedMedia stage(MultipartFile file) throws IOException {
         String contentType = file.getContentType();
         if (contentType == null || (!contentType.startsWith("image/") && !contentType.startsWith("video/"))) {
             throw new RuntimeException("Invalid file type. Only images and videos are allowed.");
         }
 
-        return cloudinary.uploader().upload(file.getBytes(),
-                ObjectUtils.asMap(
-                        "folder", folder,
-                        "public_id", customName,
-                        "resource_type", "auto"
-                ));
+        // Only the fixed-size header is read, and a rejected upload is never copied anywhere
+        String resourceType;
+        try (InputStream in = file.getInputStream()) {
+            resourceType = MediaTypeSniffer.sniff(in);
+        }
+        if (resourceType == null) {
+            throw new RuntimeException("Invalid file type. Only images and videos are allowed.");
+        }
+
+        Path dir = tempDir.isBlank() ? Path.of(System.getProperty("java.io.tmpdir")) : Path.of(tempDir);
+        Files.createDirectories(dir);
+        Path path = Files.createTempFile(dir, "upload-", ".part");
+        try {
+            file.transferTo(path);
+            return new StagedMedia(path, resourceType, sha256(path));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
     }
 
-    // Delete file from Cloudinary using publicId (called when post/comment is deleted) ( Secure Media Storage)
+    // Hex SHA-256 of the staged file, read once through a reusable buffer right after it landed (page cache is warm)
+    private static String sha256(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Background upload (MediaPipeline workers): waits for a permit instead of failing the attempt
+    public Map upload(StagedMedia media, String folder, String customName) throws IOException {
+        return withPermitWhenFree(() -> storage.upload(media.getPath(), folder, customName, media.getResourceType()));
+    }
+
+    public String posterUrl(Map uploadResult) {
+        return storage.posterUrl(uploadResult);
+    }
+
+    public void discard(StagedMedia media) {
+        try {
+            Files.deleteIfExists(media.getPath());
+        } catch (IOException e) {
+            log.warn("Failed to delete staged upload {}: {}", media.getPath(), e.getMessage());
+        }
+    }
+
+    // Delete file from storage using publicId (called when post/comment is deleted) ( Secure Media Storage)
     public void deleteFile(String publicId) throws IOException {
-        cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
+        withPermit(() -> {
+            storage.delete(publicId);
+            return null;
+        });
+    }
+
+    // Bulk delete of up to 100 assets of one resource type (see MediaDeletionQueue); returns public_id -> outcome
+    // Runs on the deletion drainer, so it waits for a permit like background uploads do
+    public Map<String, String> deleteBatch(List<String> publicIds, String resourceType) throws IOException {
+        return withPermitWhenFree(() -> storage.deleteBatch(publicIds, resourceType));
+    }
+
+    // Request-thread callers: waits briefly for a permit, then fails fast with 503 instead of parking another request thread
+    private <T> T withPermit(MediaCall<T> call) throws IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(permitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a media slot", e);
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Media service is busy, please retry");
+        }
+        try {
+            return call.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Background callers are already off the request thread: they queue for a permit (fairly, behind earlier waiters)
+    // instead of spending a retry attempt on a busy slot
+    private <T> T withPermitWhenFree(MediaCall<T> call) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a media slot", e);
+        }
+        try {
+            return call.run();
+        } finally {
+            permits.release();
+        }
     }
 }
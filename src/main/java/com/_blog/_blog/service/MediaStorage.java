@@ -0,0 +1,26 @@
+package com._blog._blog.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+// Backend that stores uploaded media ( Secure Media Storage)
+// Selected with media.storage (cloudinary | local). Upload results follow the Cloudinary response contract:
+// at least "secure_url", "url", "public_id" and "resource_type", which posts, comments and avatars persist as-is.
+// Implementations are called by MediaService, which already bounds concurrency, so they may block.
+public interface MediaStorage {
+
+    // Stores the staged file as folder/name; resourceType is "image" or "video"
+    Map upload(Path file, String folder, String name, String resourceType) throws IOException;
+
+    void delete(String publicId) throws IOException;
+
+    // Deletes up to 100 assets of one resource type; returns public_id -> "deleted" / "not_found" / other outcome
+    Map<String, String> deleteBatch(List<String> publicIds, String resourceType) throws IOException;
+
+    // URL of a still frame for an uploaded video, or null when the backend cannot derive one
+    default String posterUrl(Map uploadResult) {
+        return null;
+    }
+}
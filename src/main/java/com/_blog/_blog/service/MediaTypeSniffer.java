@@ -0,0 +1,140 @@
+package com._blog._blog.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Detects image/video uploads from their leading bytes instead of the client-supplied Content-Type ( Secure Media Storage)
+// Only a fixed-size header is ever read. Formats whose magic is short or shared with audio are checked further
+// inside that header: BMP by its file and DIB header fields, Ogg by the codec of its first logical streams.
+public final class MediaTypeSniffer {
+
+    // Room for a BMP header and the first Ogg pages (an Ogg Skeleton stream may precede the video stream)
+    public static final int HEAD_SIZE = 512;
+
+    private static final String UNKNOWN = "application/octet-stream";
+
+    private MediaTypeSniffer() {}
+
+    // "image", "video", or null when the format is not one we accept
+    public static String sniff(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return sniff(in);
+        }
+    }
+
+    // Reads at most HEAD_SIZE bytes; the caller owns the stream
+    public static String sniff(InputStream in) throws IOException {
+        byte[] head = new byte[HEAD_SIZE];
+        return sniff(head, in.readNBytes(head, 0, HEAD_SIZE));
+    }
+
+    public static String sniff(byte[] b, int len) {
+        String type = contentType(b, len);
+        if (type.startsWith("image/")) return "image";
+        if (type.startsWith("video/")) return "video";
+        return null;
+    }
+
+    // MIME type for serving stored files (local storage keeps no metadata beside the bytes)
+    public static String contentType(Path file) throws IOException {
+        byte[] head = new byte[HEAD_SIZE];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(head, 0, HEAD_SIZE);
+        }
+        return contentType(head, read);
+    }
+
+    public static String contentType(byte[] b, int len) {
+        len = Math.min(len, b.length);
+        if (len >= 3 && u(b[0]) == 0xFF && u(b[1]) == 0xD8 && u(b[2]) == 0xFF) return "image/jpeg";
+        if (len >= 8 && u(b[0]) == 0x89 && ascii(b, 1, "PNG")) return "image/png";
+        if (len >= 6 && (ascii(b, 0, "GIF87a") || ascii(b, 0, "GIF89a"))) return "image/gif";
+        if (len >= 12 && ascii(b, 0, "RIFF") && ascii(b, 8, "WEBP")) return "image/webp";
+        if (len >= 2 && ascii(b, 0, "BM")) return isBmp(b, len) ? "image/bmp" : UNKNOWN;
+        if (len >= 12 && ascii(b, 4, "ftyp")) {                                                            // ISO BMFF
+            // HEIC/AVIF stills share the container with MP4/MOV
+            if (ascii(b, 8, "heic") || ascii(b, 8, "heix") || ascii(b, 8, "mif1")) return "image/heic";
+            if (ascii(b, 8, "avif")) return "image/avif";
+            if (ascii(b, 8, "qt  ")) return "video/quicktime";
+            return "video/mp4";
+        }
+        if (len >= 4 && u(b[0]) == 0x1A && u(b[1]) == 0x45 && u(b[2]) == 0xDF && u(b[3]) == 0xA3) return "video/webm"; // WebM/MKV
+        if (len >= 12 && ascii(b, 0, "RIFF") && ascii(b, 8, "AVI ")) return "video/x-msvideo";
+        if (len >= 4 && ascii(b, 0, "OggS")) return oggContentType(b, len);
+        return UNKNOWN;
+    }
+
+    // "BM" alone matches plenty of text; require a known DIB header and sane fields behind it
+    static boolean isBmp(byte[] b, int len) {
+        if (len < 26) return false;
+        long dataOffset = le32(b, 10);
+        long dibSize = le32(b, 14);
+        if (dataOffset < 14 + dibSize) return false;
+        if (dibSize == 12) {                                                                               // BITMAPCOREHEADER
+            int bpp = le16(b, 24);
+            return le16(b, 18) > 0 && le16(b, 20) > 0 && le16(b, 22) == 1
+                    && (bpp == 1 || bpp == 4 || bpp == 8 || bpp == 24);
+        }
+        if (dibSize != 40 && dibSize != 52 && dibSize != 56 && dibSize != 64 && dibSize != 108 && dibSize != 124) return false;
+        if (len < 34) return false;
+        int width = (int) le32(b, 18);
+        int height = (int) le32(b, 22);
+        int bpp = le16(b, 28);
+        long compression = le32(b, 30);
+        return width > 0 && height != 0 && le16(b, 26) == 1
+                && (bpp == 1 || bpp == 4 || bpp == 8 || bpp == 16 || bpp == 24 || bpp == 32)
+                && compression <= 6;
+    }
+
+    // Ogg carries Vorbis/Opus/FLAC audio as often as Theora video. The beginning-of-stream pages come first and each
+    // holds the identification packet of one logical stream, so walk them and look for a video codec.
+    static String oggContentType(byte[] b, int len) {
+        int page = 0;
+        boolean audio = false;
+        while (page + 27 <= len && ascii(b, page, "OggS") && (b[page + 5] & 0x02) != 0) {
+            int segments = u(b[page + 26]);
+            int packet = page + 27 + segments;
+            if (packet > len) break;
+            int bodySize = 0;
+            for (int i = 0; i < segments; i++) {
+                bodySize += u(b[page + 27 + i]);
+            }
+            if ((packet + 7 <= len && u(b[packet]) == 0x80 && ascii(b, packet + 1, "theora"))
+                    || ascii(b, packet, "OVP80") || ascii(b, packet, "BBCD")) {
+                return "video/ogg";
+            }
+            if ((packet + 7 <= len && u(b[packet]) == 0x01 && ascii(b, packet + 1, "vorbis"))
+                    || ascii(b, packet, "OpusHead") || ascii(b, packet, "Speex   ")
+                    || (packet + 5 <= len && u(b[packet]) == 0x7F && ascii(b, packet + 1, "FLAC"))) {
+                audio = true;
+            }
+            page = packet + bodySize;
+        }
+        return audio ? "audio/ogg" : UNKNOWN;
+    }
+
+    private static int u(byte value) {
+        return value & 0xFF;
+    }
+
+    private static int le16(byte[] b, int offset) {
+        return u(b[offset]) | u(b[offset + 1]) << 8;
+    }
+
+    private static long le32(byte[] b, int offset) {
+        return (u(b[offset]) | u(b[offset + 1]) << 8 | u(b[offset + 2]) << 16 | (long) u(b[offset + 3]) << 24);
+    }
+
+    private static boolean ascii(byte[] b, int offset, String expected) {
+        byte[] bytes = expected.getBytes(StandardCharsets.US_ASCII);
+        if (offset + bytes.length > b.length) return false;
+        for (int i = 0; i < bytes.length; i++) {
+            if (b[offset + i] != bytes[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,203 @@
+package com._blog._blog.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Thumbnails and responsive widths for uploaded media, generated by the media pipeline ( Media Variants)
+// Images are decoded once (subsampled on read when far larger than the widest variant), scaled in pure Java and
+// stored next to the original as <public_id><suffix>, so they work with every MediaStorage backend. Videos get a
+// poster frame where the backend can derive one. The result is a name -> URL map that posts and comments keep
+// as JSON (dto.MediaVariants); variants wider than the original are skipped and clients fall back to mediaUrl.
+@Service
+public class MediaVariantService {
+
+    private static final Logger log = LoggerFactory.getLogger(MediaVariantService.class);
+
+    // square: center-cropped to size x size; otherwise scaled to width size
+    private record Variant(String name, String suffix, int size, boolean square) {}
+
+    private static final List<Variant> VARIANTS = List.of(
+            new Variant("thumb", "__thumb", 320, true),
+            new Variant("w640", "__w640", 640, false),
+            new Variant("w1280", "__w1280", 1280, false));
+
+    // Public id suffixes of generated image variants; MediaDeletionQueue deletes them along with the original
+    public static final List<String> SUFFIXES = VARIANTS.stream().map(Variant::suffix).toList();
+
+    private static final int MAX_WIDTH = 1280;
+
+    // Upper bounds on the decoded raster whatever the aspect ratio: 16 MP is 64 MB as TYPE_INT_ARGB
+    static final long MAX_DECODED_PIXELS = 16_000_000L;
+    static final int MAX_DECODED_SIDE = 8 * MAX_WIDTH;
+
+    private final MediaService mediaService;
+    private final Timer imageTimer;
+
+    public MediaVariantService(MediaService mediaService, MeterRegistry meterRegistry) {
+        this.mediaService = mediaService;
+        this.imageTimer = Timer.builder("media.variants.generate").tag("type", "image").register(meterRegistry);
+    }
+
+    // Variant name -> URL for an uploaded file; never throws, a failed variant is just left out
+    public Map<String, String> generate(MediaService.StagedMedia media, String folder, String customName, Map uploadResult) {
+        Map<String, String> variants = new LinkedHashMap<>();
+        if ("video".equals(media.getResourceType())) {
+            String poster = mediaService.posterUrl(uploadResult);
+            if (poster != null) {
+                variants.put("poster", poster);
+            }
+            return variants;
+        }
+
+        long start = System.nanoTime();
+        try {
+            BufferedImage source = read(media.getPath());
+            if (source == null) {
+                return variants; // format without an ImageIO reader (WebP, HEIC, ...)
+            }
+            boolean alpha = source.getColorModel().hasAlpha();
+            for (Variant variant : VARIANTS) {
+                if (!variant.square() && source.getWidth() <= variant.size()) {
+                    continue;
+                }
+                BufferedImage scaled = variant.square() ? cropSquare(source, variant.size()) : scaleToWidth(source, variant.size());
+                Path file = write(scaled, alpha);
+                try {
+                    Map result = mediaService.upload(new MediaService.StagedMedia(file, "image", null), folder, customName + variant.suffix());
+                    variants.put(variant.name(), (String) result.get("secure_url"));
+                } finally {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Variant generation for {}/{} stopped: {}", folder, customName, e.getMessage());
+        } finally {
+            imageTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return variants;
+    }
+
+    // Decodes with source subsampling so a 6000px photo never becomes a full-size raster on the heap
+    static BufferedImage read(Path path) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int factor = subsampling(reader.getWidth(0), reader.getHeight(0));
+                if (factor > 1) {
+                    param.setSourceSubsampling(factor, factor, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Keeps at least twice the widest variant (and of the thumbnail's short side) for clean downscaling, but never
+    // decodes more than MAX_DECODED_SIDE on the longest side or MAX_DECODED_PIXELS in total, so a 40000x300 strip
+    // is subsampled even though its short side leaves no room for quality
+    static int subsampling(int width, int height) {
+        int quality = Math.min(width / (2 * MAX_WIDTH), Math.min(width, height) / (2 * 320));
+        int side = ceilDiv(Math.max(width, height), MAX_DECODED_SIDE);
+        int pixels = (int) Math.ceil(Math.sqrt((double) width * height / MAX_DECODED_PIXELS));
+        return Math.max(1, Math.max(quality, Math.max(side, pixels)));
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    static BufferedImage scaleToWidth(BufferedImage source, int width) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        return scale(source, 0, 0, source.getWidth(), source.getHeight(), width, height);
+    }
+
+    static BufferedImage cropSquare(BufferedImage source, int size) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        int x = (source.getWidth() - side) / 2;
+        int y = (source.getHeight() - side) / 2;
+        return scale(source, x, y, side, side, size, size);
+    }
+
+    // Halves step by step before the final bilinear pass; one large bilinear step would alias badly
+    private static BufferedImage scale(BufferedImage source, int x, int y, int w, int h, int targetW, int targetH) {
+        BufferedImage current = source.getSubimage(x, y, w, h);
+        int currentW = w;
+        int currentH = h;
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        do {
+            int nextW = Math.max(targetW, currentW / 2);
+            int nextH = Math.max(targetH, currentH / 2);
+            BufferedImage next = new BufferedImage(nextW, nextH, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, nextW, nextH, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+            currentW = nextW;
+            currentH = nextH;
+        } while (currentW > targetW || currentH > targetH);
+        return current;
+    }
+
+    // JPEG (quality 0.82) for opaque images, PNG when transparency has to survive
+    private static Path write(BufferedImage image, boolean alpha) throws IOException {
+        Path file = Files.createTempFile("variant-", alpha ? ".png" : ".jpg");
+        try {
+            if (alpha) {
+                ImageIO.write(image, "png", file.toFile());
+                return file;
+            }
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+                writer.setOutput(out);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(0.82f);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            return file;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+}
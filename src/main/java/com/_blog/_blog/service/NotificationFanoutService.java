@@ -0,0 +1,186 @@
+package com._blog._blog.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Durable off-request fan-out of "new post" notifications to every follower ( Notifications)
+// Consuming PostCreated only inserts a notification_fanout_jobs row, in the transaction that records the event as
+// processed, so a handled event always has its job. A scheduled drainer leases due jobs (SKIP LOCKED, so several
+// nodes can drain together), never more than the fan-out pool has room for. A job pages through follower IDs and
+// writes each page with one insert in the same transaction that advances its cursor; the cursor only moves from the
+// position the page was read at, so a job taken over after an expired lease never writes a page twice. Failures
+// resume from the cursor with backoff until notifications.fanout.max-attempts, then the row stays behind as DEAD.
+@Service
+public class NotificationFanoutService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationFanoutService.class);
+
+    private record Job(Long id, Long postId, Long authorId, String message, long lastFollowerId, int attempts) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor executor;
+
+    private final Counter jobsCompleted;
+    private final Counter jobsFailed;
+    private final Counter rowsWritten;
+    private final Timer jobDuration;
+    private final AtomicLong pending = new AtomicLong();
+
+    @Value("${notifications.fanout.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${notifications.fanout.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${notifications.fanout.lease-seconds:300}")
+    private int leaseSeconds;
+
+    public NotificationFanoutService(JdbcTemplate jdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     @Qualifier("notificationFanoutExecutor") ThreadPoolTaskExecutor executor,
+                                     MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+        this.jobsCompleted = Counter.builder("notifications.fanout.jobs").tag("result", "completed").register(meterRegistry);
+        this.jobsFailed = Counter.builder("notifications.fanout.jobs").tag("result", "failed").register(meterRegistry);
+        this.rowsWritten = Counter.builder("notifications.fanout.rows").description("Notifications inserted by fan-out").register(meterRegistry);
+        this.jobDuration = Timer.builder("notifications.fanout.duration").register(meterRegistry);
+        Gauge.builder("notifications.fanout.pending", pending, AtomicLong::get).register(meterRegistry);
+    }
+
+    // Must run inside the transaction that consumes the PostCreated event; the drainer picks the job up
+    public void fanOutNewPost(Long postId, Long authorId, String authorUsername, String title) {
+        jdbcTemplate.update("INSERT INTO notification_fanout_jobs " +
+                "(post_id, author_id, message, last_follower_id, status, attempts, next_attempt_at, created_at) " +
+                "VALUES (?, ?, ?, 0, 'PENDING', 0, now(), now())",
+                postId, authorId, authorUsername + " posted a new post: " + title);
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.fanout.poll-ms:500}")
+    public void drain() {
+        int room = executor.getThreadPoolExecutor().getQueue().remainingCapacity();
+        if (room > 0) {
+            for (Job job : lease(room)) {
+                try {
+                    executor.execute(() -> run(job));
+                } catch (TaskRejectedException e) {
+                    // The pool filled up since we looked: the job stays in the table for the next drain
+                    release(job);
+                }
+            }
+        }
+        pending.set(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM notification_fanout_jobs WHERE status = 'PENDING'", Long.class));
+    }
+
+    // Claims due jobs by pushing their next attempt past the lease, so a crashed worker's jobs come back on their own
+    private List<Job> lease(int limit) {
+        return transactionTemplate.execute(status -> jdbcTemplate.query(
+                "UPDATE notification_fanout_jobs SET attempts = attempts + 1, next_attempt_at = now() + make_interval(secs => ?) " +
+                "WHERE id IN (SELECT id FROM notification_fanout_jobs WHERE status = 'PENDING' AND next_attempt_at <= now() " +
+                "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                "RETURNING id, post_id, author_id, message, last_follower_id, attempts",
+                (rs, i) -> new Job(rs.getLong("id"), rs.getLong("post_id"), rs.getLong("author_id"), rs.getString("message"),
+                        rs.getLong("last_follower_id"), rs.getInt("attempts")),
+                leaseSeconds, limit));
+    }
+
+    private void release(Job job) {
+        jdbcTemplate.update("UPDATE notification_fanout_jobs SET attempts = attempts - 1, next_attempt_at = now() " +
+                "WHERE id = ? AND last_follower_id = ?", job.id(), job.lastFollowerId());
+    }
+
+    private void run(Job job) {
+        long started = System.nanoTime();
+        long written = 0;
+        try {
+            long cursor = job.lastFollowerId();
+            while (true) {
+                List<Long> followerIds = jdbcTemplate.queryForList(
+                        "SELECT follower_id FROM follows WHERE following_id = ? AND follower_id > ? ORDER BY follower_id LIMIT ?",
+                        Long.class, job.authorId(), cursor, batchSize);
+                boolean last = followerIds.size() < batchSize;
+                long from = cursor;
+                if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    if (!advance(job, from, followerIds, last)) {
+                        return false;
+                    }
+                    insertBatch(followerIds, job);
+                    return true;
+                }))) {
+                    log.warn("Notification fan-out job {} for post {} was taken over or removed, stopping", job.id(), job.postId());
+                    return;
+                }
+                written += followerIds.size();
+                rowsWritten.increment(followerIds.size());
+                if (last) {
+                    jobsCompleted.increment();
+                    return;
+                }
+                cursor = followerIds.get(followerIds.size() - 1);
+            }
+        } catch (RuntimeException e) {
+            fail(job, e, written);
+        } finally {
+            jobDuration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Moves the cursor past this page (or drops the finished job) if nobody else moved it since the page was read
+    private boolean advance(Job job, long from, List<Long> followerIds, boolean last) {
+        if (last) {
+            return jdbcTemplate.update("DELETE FROM notification_fanout_jobs WHERE id = ? AND last_follower_id = ?",
+                    job.id(), from) > 0;
+        }
+        return jdbcTemplate.update("UPDATE notification_fanout_jobs SET last_follower_id = ?, " +
+                "next_attempt_at = now() + make_interval(secs => ?) WHERE id = ? AND last_follower_id = ?",
+                followerIds.get(followerIds.size() - 1), leaseSeconds, job.id(), from) > 0;
+    }
+
+    // Followers deleted since the page was read are skipped instead of failing the whole page
+    private void insertBatch(List<Long> recipientIds, Job job) {
+        if (recipientIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(
+                "INSERT INTO notifications (recipient_id, actor_id, message, type, related_id, is_read, created_at, updated_at) " +
+                "SELECT u.id, ?, ?, 'POST', ?, false, ?, ? FROM users u WHERE u.id = ANY(?)",
+                job.authorId(), job.message(), job.postId(), now, now, recipientIds.toArray(new Long[0]));
+    }
+
+    private void fail(Job job, RuntimeException e, long written) {
+        jobsFailed.increment();
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        if (job.attempts() >= maxAttempts) {
+            log.error("Notification fan-out for post {} is dead after {} attempts: {}", job.postId(), job.attempts(), error);
+            jdbcTemplate.update("UPDATE notification_fanout_jobs SET status = 'DEAD', last_error = ? WHERE id = ?", error, job.id());
+            return;
+        }
+        long backoffSeconds = Math.min(600, 5L << Math.min(job.attempts(), 10));
+        log.warn("Notification fan-out for post {} stopped after {} rows, retry {} in {}s: {}",
+                job.postId(), written, job.attempts(), backoffSeconds, error);
+        jdbcTemplate.update("UPDATE notification_fanout_jobs SET next_attempt_at = now() + make_interval(secs => ?), last_error = ? " +
+                "WHERE id = ?", (int) backoffSeconds, error, job.id());
+    }
+}
@@ -0,0 +1,149 @@
+package com._blog._blog.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Array;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Coalesced notifications: likes on one post and new followers fold into a single row per recipient ( Notifications)
+// While a group is unread and younger than the window, new actors update it in place: actor_count grows by the actors
+// not yet in notification_group_actors, the newest actor becomes actor_id, recent_actor_ids keeps a short newest-first
+// list for display and updated_at moves (created_at does not, so keyset pages over it stay stable). Once the recipient
+// reads the group (or the window passes) the next actor opens a new one, so the unread count stays one per group.
+// Callers run inside outbox lanes, which serialize events per post / per followed user, so two writers rarely
+// race for the same group; if they do, the worst case is a second group.
+@Service
+public class NotificationGroupService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${notifications.coalesce.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notifications.coalesce.window-minutes:1440}")
+    private long windowMinutes;
+
+    @Value("${notifications.coalesce.recent-actors:5}")
+    private int recentActors;
+
+    public NotificationGroupService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // actorIds oldest first; the recipient and users that no longer exist are skipped.
+    // relatedId is stored as-is (the post for likes, the newest follower for follows).
+    @Transactional
+    public void notify(Long recipientId, List<Long> actorIds, String type, String groupKey, Long relatedId, String suffix) {
+        Map<Long, String> actors = existingActors(recipientId, actorIds);
+        if (actors.isEmpty()) {
+            return;
+        }
+        List<Long> newestFirst = new ArrayList<>(actors.keySet());
+        Collections.reverse(newestFirst);
+        Long latestId = newestFirst.get(0);
+        String latestName = actors.get(latestId);
+
+        List<Map<String, Object>> open = jdbcTemplate.queryForList(
+                "SELECT id, actor_count, recent_actor_ids FROM notifications " +
+                "WHERE recipient_id = ? AND group_key = ? AND is_read = false AND created_at > ? " +
+                "ORDER BY id DESC LIMIT 1 FOR UPDATE",
+                recipientId, groupKey, Timestamp.valueOf(LocalDateTime.now().minusMinutes(windowMinutes)));
+
+        if (open.isEmpty()) {
+            int count = newestFirst.size();
+            Long id = jdbcTemplate.queryForObject(
+                    "INSERT INTO notifications (recipient_id, actor_id, message, type, related_id, is_read, created_at, updated_at, group_key, actor_count, recent_actor_ids) " +
+                    "VALUES (?, ?, ?, ?, ?, false, now(), now(), ?, ?, ?::bigint[]) RETURNING id",
+                    Long.class, recipientId, latestId, message(latestName, count, suffix), type, relatedId, groupKey, count,
+                    bounded(newestFirst).toArray(new Long[0]));
+            addActors(id, newestFirst);
+            return;
+        }
+
+        Map<String, Object> group = open.get(0);
+        Long id = ((Number) group.get("id")).longValue();
+        List<Long> previous = toList(group.get("recent_actor_ids"));
+        // Groups opened before the actor table only know their recent actors; seed those so they are not counted twice
+        addActors(id, previous);
+        int added = addActors(id, newestFirst);
+        int count = ((Number) group.get("actor_count")).intValue() + added;
+
+        Set<Long> recent = new LinkedHashSet<>(newestFirst);
+        recent.addAll(previous);
+
+        jdbcTemplate.update(
+                "UPDATE notifications SET actor_id = ?, message = ?, related_id = ?, actor_count = ?, recent_actor_ids = ?::bigint[], updated_at = now() WHERE id = ?",
+                latestId, message(latestName, count, suffix), relatedId, count,
+                bounded(new ArrayList<>(recent)).toArray(new Long[0]), id);
+    }
+
+    // Returns how many of the actors are new to the group
+    private int addActors(Long notificationId, List<Long> actorIds) {
+        if (actorIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update("INSERT INTO notification_group_actors (notification_id, actor_id) " +
+                "SELECT ?, a FROM unnest(?::bigint[]) a ON CONFLICT (notification_id, actor_id) DO NOTHING",
+                notificationId, actorIds.toArray(new Long[0]));
+    }
+
+    private Map<Long, String> existingActors(Long recipientId, List<Long> actorIds) {
+        Map<Long, String> names = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, username FROM users WHERE id = ANY(?) AND id <> ?",
+                rs -> { names.put(rs.getLong("id"), rs.getString("username")); },
+                actorIds.toArray(new Long[0]), recipientId);
+        // Keep the caller's order so "newest" really is the latest actor
+        Map<Long, String> ordered = new LinkedHashMap<>();
+        for (Long id : actorIds) {
+            String name = names.get(id);
+            if (name != null) {
+                ordered.remove(id);
+                ordered.put(id, name);
+            }
+        }
+        return ordered;
+    }
+
+    private List<Long> bounded(List<Long> ids) {
+        return ids.size() <= recentActors ? ids : ids.subList(0, recentActors);
+    }
+
+    private List<Long> toList(Object sqlArray) {
+        if (sqlArray == null) {
+            return List.of();
+        }
+        try {
+            Object[] values = (Object[]) ((Array) sqlArray).getArray();
+            List<Long> ids = new ArrayList<>(values.length);
+            Arrays.stream(values).forEach(v -> ids.add(((Number) v).longValue()));
+            return ids;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read recent_actor_ids", e);
+        }
+    }
+
+    static String message(String latestActor, int actorCount, String suffix) {
+        if (actorCount <= 1) {
+            return latestActor + suffix;
+        }
+        int others = actorCount - 1;
+        return latestActor + " and " + others + (others == 1 ? " other" : " others") + suffix;
+    }
+}
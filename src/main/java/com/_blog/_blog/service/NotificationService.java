@@ -1,54 +1,146 @@
 package com._blog._blog.service;
 
+import com._blog._blog.dto.Cursor;
+import com._blog._blog.dto.CursorPage;
+import com._blog._blog.dto.NotificationResponse;
 import com._blog._blog.model.Notification;
 import com._blog._blog.model.User;
 import com._blog._blog.repository.NotificationRepository;
 import com._blog._blog.repository.UserRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class NotificationService {
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
+    private final NotificationStreamService notificationStreamService;
+    private final JdbcTemplate jdbcTemplate;
 
-    public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository) {
+    public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository,
+                               NotificationStreamService notificationStreamService, JdbcTemplate jdbcTemplate) {
         this.notificationRepository = notificationRepository;
         this.userRepository = userRepository;
+        this.notificationStreamService = notificationStreamService;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
+    // Keeps users.unread_notification_count in step with every write path, including the JDBC batch inserts and the
+    // set-based deletes that never go through this service. Statement-level triggers see all rows of a statement at
+    // once, so a fan-out page or a mark-all-read costs one counter update per recipient, not one per row. The users
+    // rows are locked in id order first so that concurrent statements touching several recipients cannot deadlock.
+    // When the triggers are new, the counters are backfilled in the same transaction that creates them.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void installUnreadCounter() {
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION notifications_unread_count() RETURNS trigger AS $fn$ BEGIN " +
+                "IF TG_OP = 'INSERT' THEN " +
+                applyUnreadDelta("SELECT recipient_id, count(*) AS delta FROM new_rows WHERE NOT is_read GROUP BY recipient_id") +
+                "ELSIF TG_OP = 'DELETE' THEN " +
+                applyUnreadDelta("SELECT recipient_id, -count(*) AS delta FROM old_rows WHERE NOT is_read GROUP BY recipient_id") +
+                "ELSE " +
+                applyUnreadDelta("SELECT recipient_id, sum(d) AS delta FROM (" +
+                        "SELECT recipient_id, 1 AS d FROM new_rows WHERE NOT is_read " +
+                        "UNION ALL SELECT recipient_id, -1 FROM old_rows WHERE NOT is_read) x " +
+                        "GROUP BY recipient_id HAVING sum(d) <> 0") +
+                "END IF; RETURN NULL; END $fn$ LANGUAGE plpgsql");
+
+        boolean created = false;
+        for (String op : List.of("INSERT", "UPDATE", "DELETE")) {
+            String name = "trg_notifications_unread_" + op.toLowerCase();
+            Boolean exists = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_trigger WHERE tgrelid = 'notifications'::regclass AND tgname = ?)", Boolean.class, name);
+            if (!Boolean.TRUE.equals(exists)) {
+                String transition = op.equals("INSERT") ? "NEW TABLE AS new_rows"
+                        : op.equals("DELETE") ? "OLD TABLE AS old_rows"
+                        : "NEW TABLE AS new_rows OLD TABLE AS old_rows";
+                jdbcTemplate.execute("CREATE TRIGGER " + name + " AFTER " + op + " ON notifications " +
+                        "REFERENCING " + transition + " FOR EACH STATEMENT EXECUTE FUNCTION notifications_unread_count()");
+                created = true;
+            }
+        }
+        if (created) {
+            userRepository.reconcileUnreadNotificationCounts();
+        }
+    }
+
+    // Rows written before updated_at existed sort by their creation time; walked in id ranges so no single statement
+    // holds many row locks and each batch is a primary-key range scan
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillUpdatedAt() {
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT min(id) AS lo, max(id) AS hi FROM notifications WHERE updated_at IS NULL");
+        if (range.get("lo") == null) {
+            return;
+        }
+        long hi = ((Number) range.get("hi")).longValue();
+        for (long from = ((Number) range.get("lo")).longValue(); from <= hi; from += 10000) {
+            jdbcTemplate.update("UPDATE notifications SET updated_at = created_at " +
+                    "WHERE id >= ? AND id < ? AND updated_at IS NULL", from, from + 10000);
+        }
+    }
+
+    private static String applyUnreadDelta(String deltaQuery) {
+        return "PERFORM 1 FROM users WHERE id IN (SELECT recipient_id FROM (" + deltaQuery + ") d) ORDER BY id FOR NO KEY UPDATE; " +
+                "UPDATE users u SET unread_notification_count = u.unread_notification_count + d.delta " +
+                "FROM (" + deltaQuery + ") d WHERE u.id = d.recipient_id; ";
+    }
+
+    // New notifications reach open streams through the insert trigger (see NotificationStreamService)
     public void createNotification(User recipient, User actor, String message, String type, Long relatedId) {
         Notification notification = new Notification(recipient, actor, message, type, relatedId);
         notificationRepository.save(notification);
     }
 
-    public List<Notification> getUserNotifications(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        return notificationRepository.findByRecipientIdOrderByCreatedAtDesc(user.getId());
+    // ID-only variant for event subscribers; avoids loading either user
+    public void createNotification(Long recipientId, Long actorId, String message, String type, Long relatedId) {
+        createNotification(userRepository.getReferenceById(recipientId), userRepository.getReferenceById(actorId), message, type, relatedId);
+    }
+
+    public List<NotificationResponse> getUserNotifications(String username) {
+        return notificationRepository.findResponsesByRecipient(recipientId(username));
     }
 
+    // Keyset page (?before=<cursor>&limit=), most recently active first; actor fields come from the same query
+    @Transactional(readOnly = true)
+    public CursorPage<NotificationResponse> getUserNotificationsBefore(String username, String before, int limit) {
+        Cursor cursor = Cursor.decode(before);
+        Slice<NotificationResponse> slice = notificationRepository.findResponsesBefore(recipientId(username),
+                cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, CursorPage.clampLimit(limit)));
+        return CursorPage.of(slice.getContent(), slice.hasNext(), n -> Cursor.of(n.getUpdatedAt(), n.getId()));
+    }
+
+    // Counter maintained by the triggers above; no COUNT over the user's notifications
     public long getUnreadCount(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        return notificationRepository.countByRecipientIdAndIsReadFalse(user.getId());
+        return userRepository.findUnreadNotificationCount(recipientId(username)).orElse(0L);
     }
 
-    public void markAsRead(Long id) {
-        notificationRepository.findById(id).ifPresent(notification -> {
-            notification.setRead(true);
-            notificationRepository.save(notification);
-        });
+    // One UPDATE scoped to the caller's own notifications; nothing is loaded
+    @Transactional
+    public void markAsRead(Long id, String username) {
+        Long recipientId = recipientId(username);
+        if (notificationRepository.markRead(id, recipientId) > 0) {
+            notificationStreamService.signalUnreadCountChanged(recipientId);
+        }
     }
 
+    @Transactional
     public void markAllAsRead(String username) {
-        User user = userRepository.findByUsername(username).orElseThrow();
-        List<Notification> notifications = notificationRepository.findByRecipientIdOrderByCreatedAtDesc(user.getId());
-        for (Notification n : notifications) {
-            if (!n.isRead()) {
-                n.setRead(true);
-            }
+        Long recipientId = recipientId(username);
+        if (notificationRepository.markAllRead(recipientId) > 0) {
+            notificationStreamService.signalUnreadCountChanged(recipientId);
         }
-        notificationRepository.saveAll(notifications);
+    }
+
+    private Long recipientId(String username) {
+        return userRepository.findIdByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
     }
 }
@@ -0,0 +1,331 @@
+package com._blog._blog.service;
+
+import com._blog._blog.dto.NotificationResponse;
+import com._blog._blog.event.PgNotifyBus;
+import com._blog._blog.repository.NotificationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Server-Sent Events push of new notifications and unread counts ( Real-time Notifications)
+// Each node keeps the emitters of its own connections, keyed by user. An idle SseEmitter is just an async request
+// parked in Tomcat's NIO connector, so it does not hold a thread. Every new notification and every coalesced group
+// that gains an actor takes the next change_seq, and a statement trigger sends one
+// pg_notify('notifications', 'recipientId:firstChangeSeq') per recipient of the statement on commit. The node holding
+// that recipient's connections loads what changed from there on and pushes it, with change_seq as the event id, so
+// Last-Event-ID replays updated groups too. Read-state changes are signalled as 'recipientId:0' and push only the
+// unread count. When the push pool is full the signal is not run on the LISTEN thread: the user is remembered with
+// the first change they missed and caught up from the table later.
+@Service
+public class NotificationStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationStreamService.class);
+
+    static final String CHANNEL = "notifications";
+
+    private final ConcurrentHashMap<Long, CopyOnWriteArrayList<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    // Users whose push the pool rejected, with the first change_seq they missed (0: only the unread count)
+    private final ConcurrentHashMap<Long, Long> deferred = new ConcurrentHashMap<>();
+
+    private final NotificationRepository notificationRepository;
+    private final PgNotifyBus pgNotifyBus;
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadPoolTaskExecutor pushExecutor;
+    private final Counter deferredPushes;
+    private final Counter skippedHeartbeats;
+    private final AtomicLong heartbeatTick = new AtomicLong();
+
+    @Value("${notifications.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${notifications.stream.max-per-user:5}")
+    private int maxPerUser;
+
+    @Value("${notifications.stream.heartbeat-slices:25}")
+    private int heartbeatSlices;
+
+    @Value("${notifications.stream.replay-limit:100}")
+    private int replayLimit;
+
+    public NotificationStreamService(NotificationRepository notificationRepository,
+                                     PgNotifyBus pgNotifyBus,
+                                     JdbcTemplate jdbcTemplate,
+                                     @Qualifier("notificationPushExecutor") ThreadPoolTaskExecutor pushExecutor,
+                                     MeterRegistry meterRegistry) {
+        this.notificationRepository = notificationRepository;
+        this.pgNotifyBus = pgNotifyBus;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pushExecutor = pushExecutor;
+        this.deferredPushes = Counter.builder("notifications.stream.deferred")
+                .description("Pushes postponed because the push pool was full")
+                .register(meterRegistry);
+        this.skippedHeartbeats = Counter.builder("notifications.stream.heartbeats.skipped")
+                .description("Heartbeat slices skipped because the push pool was full")
+                .register(meterRegistry);
+        Gauge.builder("notifications.stream.connections", emitters,
+                m -> m.values().stream().mapToInt(List::size).sum()).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void registerChannel() {
+        pgNotifyBus.register(CHANNEL, this::onSignal, this::pushUnreadCountsToAll);
+    }
+
+    // The triggers cover every write path, including the JDBC batch inserts and the group updates that bypass
+    // NotificationService. The sequence is moved past every existing id first, so rows from before change_seq (which
+    // take their id as it) still sort before anything new, and clients holding an old id-based Last-Event-ID resume
+    // where they were.
+    @EventListener(ApplicationReadyEvent.class)
+    public void installTrigger() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS notification_change_seq");
+        jdbcTemplate.queryForList("SELECT setval('notification_change_seq', m) FROM " +
+                "(SELECT greatest(max(id), max(change_seq)) AS m FROM notifications) x " +
+                "WHERE m > (SELECT last_value FROM notification_change_seq)");
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION notification_next_change_seq() RETURNS trigger AS $fn$ " +
+                "BEGIN NEW.change_seq := nextval('notification_change_seq'); RETURN NEW; END $fn$ LANGUAGE plpgsql");
+        createTriggerIfMissing("trg_notifications_change_seq", "BEFORE INSERT OR UPDATE OF actor_count ON notifications " +
+                "FOR EACH ROW EXECUTE FUNCTION notification_next_change_seq()");
+
+        // One message per recipient and statement; an update only counts when it drew a new change_seq
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION notify_notification_changes() RETURNS trigger AS $fn$ BEGIN " +
+                "IF TG_OP = 'INSERT' THEN " +
+                "PERFORM pg_notify('" + CHANNEL + "', recipient_id || ':' || min(change_seq)) FROM new_rows GROUP BY recipient_id; " +
+                "ELSE " +
+                "PERFORM pg_notify('" + CHANNEL + "', n.recipient_id || ':' || min(n.change_seq)) FROM new_rows n " +
+                "JOIN old_rows o ON o.id = n.id WHERE n.change_seq > o.change_seq GROUP BY n.recipient_id; " +
+                "END IF; RETURN NULL; END $fn$ LANGUAGE plpgsql");
+        createTriggerIfMissing("trg_notifications_notify_insert", "AFTER INSERT ON notifications " +
+                "REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION notify_notification_changes()");
+        createTriggerIfMissing("trg_notifications_notify_update", "AFTER UPDATE ON notifications " +
+                "REFERENCING NEW TABLE AS new_rows OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION notify_notification_changes()");
+        // Replaced by the statement triggers above: one pg_notify per row
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS trg_notifications_notify ON notifications");
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS trg_notifications_group_notify ON notifications");
+        jdbcTemplate.execute("DROP FUNCTION IF EXISTS notify_notification_insert()");
+
+        backfillChangeSeq();
+    }
+
+    private void createTriggerIfMissing(String name, String definition) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_trigger WHERE tgrelid = 'notifications'::regclass AND tgname = ?)", Boolean.class, name);
+        if (!Boolean.TRUE.equals(exists)) {
+            jdbcTemplate.execute("CREATE TRIGGER " + name + " " + definition);
+        }
+    }
+
+    // Rows written before change_seq existed, in id ranges (see NotificationService.backfillUpdatedAt)
+    private void backfillChangeSeq() {
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT min(id) AS lo, max(id) AS hi FROM notifications WHERE change_seq IS NULL");
+        if (range.get("lo") == null) {
+            return;
+        }
+        long hi = ((Number) range.get("hi")).longValue();
+        for (long from = ((Number) range.get("lo")).longValue(); from <= hi; from += 10000) {
+            jdbcTemplate.update("UPDATE notifications SET change_seq = id WHERE id >= ? AND id < ? AND change_seq IS NULL", from, from + 10000);
+        }
+    }
+
+    // lastEventId is the change_seq of the last event the client saw
+    public SseEmitter subscribe(Long userId, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        CopyOnWriteArrayList<SseEmitter> list = emitters.computeIfAbsent(userId, k -> new CopyOnWriteArrayList<>());
+        list.add(emitter);
+        while (list.size() > maxPerUser) {
+            SseEmitter oldest = list.remove(0);
+            oldest.complete();
+        }
+
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(() -> remove(userId, emitter));
+        emitter.onError(e -> remove(userId, emitter));
+
+        // Registered before the replay, so a change racing with it may arrive twice; clients keep the latest per id
+        if (lastEventId != null) {
+            List<NotificationResponse> missed = notificationRepository.findResponsesChangedAfter(userId, lastEventId, PageRequest.of(0, replayLimit));
+            for (NotificationResponse notification : missed) {
+                if (!send(userId, emitter, notificationEvent(notification, null))) {
+                    return emitter;
+                }
+            }
+        }
+        send(userId, emitter, unreadCountEvent(unreadCount(userId)));
+        return emitter;
+    }
+
+    // Called inside the read-state transaction; other nodes see it once it commits
+    public void signalUnreadCountChanged(Long userId) {
+        pgNotifyBus.publish(CHANNEL, userId + ":0");
+    }
+
+    private void onSignal(String payload) {
+        int sep = payload.indexOf(':');
+        if (sep < 0) {
+            return;
+        }
+        Long recipientId = Long.valueOf(payload.substring(0, sep));
+        long changeSeq = Long.parseLong(payload.substring(sep + 1));
+        if (!emitters.containsKey(recipientId)) {
+            return; // not connected to this node
+        }
+        submit(recipientId, changeSeq);
+    }
+
+    private void submit(Long userId, long changeSeq) {
+        try {
+            pushExecutor.execute(() -> push(userId, changeSeq));
+        } catch (TaskRejectedException e) {
+            deferred.merge(userId, changeSeq, NotificationStreamService::earliest);
+            deferredPushes.increment();
+        }
+    }
+
+    // Catches up users whose pushes were rejected, as far as the pool has room
+    @Scheduled(fixedDelayString = "${notifications.stream.deferred-ms:1000}")
+    public void pushDeferred() {
+        for (Long userId : deferred.keySet()) {
+            Long fromId = deferred.remove(userId);
+            if (fromId == null || !emitters.containsKey(userId)) {
+                continue;
+            }
+            try {
+                pushExecutor.execute(() -> catchUp(userId, fromId));
+            } catch (TaskRejectedException e) {
+                deferred.merge(userId, fromId, NotificationStreamService::earliest);
+                return;
+            }
+        }
+    }
+
+    private void catchUp(Long userId, long fromSeq) {
+        if (fromSeq > 0) {
+            for (NotificationResponse notification : notificationRepository.findResponsesChangedAfter(userId, fromSeq - 1, PageRequest.of(0, replayLimit))) {
+                sendToUser(userId, () -> notificationEvent(notification, null));
+            }
+        }
+        long unreadCount = unreadCount(userId);
+        sendToUser(userId, () -> unreadCountEvent(unreadCount));
+    }
+
+    // Primary-key read of the trigger-maintained counter (see NotificationService) instead of a COUNT per push
+    private long unreadCount(Long userId) {
+        List<Long> count = jdbcTemplate.queryForList(
+                "SELECT greatest(unread_notification_count, 0) FROM users WHERE id = ?", Long.class, userId);
+        return count.isEmpty() ? 0 : count.get(0);
+    }
+
+    // 0 stands for "count only", so any real change_seq wins over it
+    private static Long earliest(Long a, Long b) {
+        if (a == 0) {
+            return b;
+        }
+        return b == 0 ? a : Math.min(a, b);
+    }
+
+    // Everything the signalling statement changed for this recipient (and anything committed after it)
+    private void push(Long recipientId, long fromSeq) {
+        long unreadCount = unreadCount(recipientId);
+        if (fromSeq == 0) {
+            sendToUser(recipientId, () -> unreadCountEvent(unreadCount));
+            return;
+        }
+        for (NotificationResponse notification : notificationRepository.findResponsesChangedAfter(recipientId, fromSeq - 1, PageRequest.of(0, replayLimit))) {
+            sendToUser(recipientId, () -> notificationEvent(notification, unreadCount));
+        }
+    }
+
+    // After a LISTEN outage we cannot know what was missed; refresh every connected client's badge
+    private void pushUnreadCountsToAll() {
+        for (Long userId : emitters.keySet()) {
+            submit(userId, 0);
+        }
+    }
+
+    // Comment lines keep proxies and load balancers from closing idle streams, and surface dead clients.
+    // Each tick covers one slice of the users (userId mod heartbeat-slices), so every stream still gets a comment per
+    // heartbeat-ms, and the sends run on the push pool instead of the scheduler. A slice the pool has no room for is
+    // skipped until its next turn.
+    @Scheduled(fixedRateString = "#{${notifications.stream.heartbeat-ms:25000} / ${notifications.stream.heartbeat-slices:25}}")
+    public void heartbeat() {
+        int slice = (int) Math.floorMod(heartbeatTick.getAndIncrement(), (long) heartbeatSlices);
+        List<Long> userIds = emitters.keySet().stream()
+                .filter(userId -> Math.floorMod(userId, (long) heartbeatSlices) == slice)
+                .toList();
+        if (userIds.isEmpty()) {
+            return;
+        }
+        try {
+            pushExecutor.execute(() -> {
+                for (Long userId : userIds) {
+                    sendToUser(userId, () -> SseEmitter.event().comment("hb"));
+                }
+            });
+        } catch (TaskRejectedException e) {
+            skippedHeartbeats.increment();
+        }
+    }
+
+    private SseEmitter.SseEventBuilder notificationEvent(NotificationResponse notification, Long unreadCount) {
+        Map<String, Object> data = unreadCount == null
+                ? Map.of("notification", notification)
+                : Map.of("notification", notification, "unreadCount", unreadCount);
+        return SseEmitter.event().id(String.valueOf(notification.getChangeSeq())).name("notification").data(data);
+    }
+
+    private SseEmitter.SseEventBuilder unreadCountEvent(long unreadCount) {
+        return SseEmitter.event().name("unread-count").data(Map.of("unreadCount", unreadCount));
+    }
+
+    // Event builders are single-use, so each connection gets a fresh one
+    private void sendToUser(Long userId, Supplier<SseEmitter.SseEventBuilder> event) {
+        List<SseEmitter> list = emitters.get(userId);
+        if (list == null) {
+            return;
+        }
+        for (SseEmitter emitter : list) {
+            send(userId, emitter, event.get());
+        }
+    }
+
+    private boolean send(Long userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping notification stream of user {}: {}", userId, e.getMessage());
+            remove(userId, emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        emitters.computeIfPresent(userId, (k, list) -> {
+            list.remove(emitter);
+            return list.isEmpty() ? null : list;
+        });
+    }
+}
@@ -0,0 +1,165 @@
+package com._blog._blog.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.postgresql.PGStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Full-text search over post titles and content ( Post Search)
+// posts.search_vector is a tsvector (title weighted A, content B) with a GIN index, kept current by a BEFORE INSERT OR
+// UPDATE trigger, so create, edit, delete and hide stay single-statement. It is not a generated column: Hibernate's
+// ddl-auto re-issues ALTER COLUMN ... TYPE on posts.content at every start, which Postgres refuses while a generated
+// column depends on it (see PostSearchSchemaConfig). Visibility is checked at query time with the feed rules.
+// Only the newest search.posts.max-candidates matches are ranked, so a page costs at most that many ts_rank calls
+// however common the terms are. The candidate subquery selects ids only and sees the tsquery as a constant, so for
+// common terms the planner walks the primary key backwards instead of sorting every match with its tsvector.
+// Results are ordered by rank and paged by keyset on (rank, id).
+@Service
+public class PostSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(PostSearchService.class);
+
+    public record Hit(Long id, float rank) {}
+
+    // Keyset position (rank, id); the first page starts above any real rank
+    public record Position(float rank, long id) {
+        static final Position START = new Position(Float.MAX_VALUE, Long.MAX_VALUE);
+
+        public String encode() {
+            String raw = rank + "," + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Position decode(String token) {
+            if (token == null || token.isBlank()) {
+                return START;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int comma = raw.lastIndexOf(',');
+                return new Position(Float.parseFloat(raw.substring(0, comma)), Long.parseLong(raw.substring(comma + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+    }
+
+    // Ranks the newest maxCandidates matches visible to the viewer and returns the page after the keyset position
+    private static final String SEARCH_SQL =
+            "SELECT id, rank FROM (" +
+            "SELECT p.id, ts_rank(p.search_vector, websearch_to_tsquery(CAST(? AS regconfig), ?)) AS rank FROM posts p " +
+            "WHERE p.id IN (SELECT c.id FROM posts c " +
+            "WHERE c.search_vector @@ websearch_to_tsquery(CAST(? AS regconfig), ?) " +
+            "AND (? OR c.hidden = false OR c.user_id = ?) ORDER BY c.id DESC LIMIT ?)) r " +
+            "WHERE rank < ? OR (rank = ? AND id < ?) " +
+            "ORDER BY rank DESC, id DESC LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Timer searchTimer;
+
+    @Value("${search.posts.language:english}")
+    private String language;
+
+    @Value("${search.posts.max-candidates:2000}")
+    private int maxCandidates;
+
+    @Value("${search.posts.rebuild-batch-size:5000}")
+    private int rebuildBatchSize;
+
+    public PostSearchService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.searchTimer = Timer.builder("posts.search").publishPercentiles(0.5, 0.99).register(meterRegistry);
+    }
+
+    // Hibernate does not manage the column. The trigger function embeds the text search configuration; when it
+    // differs from the installed one (first start, or search.posts.language changed) the function is replaced and
+    // every row is recomputed in id batches, later startups are no-ops
+    @EventListener(ApplicationReadyEvent.class)
+    public void installSearchColumn() {
+        jdbcTemplate.execute("ALTER TABLE posts ADD COLUMN IF NOT EXISTS search_vector tsvector");
+
+        String body = triggerBody();
+        String installed = jdbcTemplate.queryForObject(
+                "SELECT (SELECT prosrc FROM pg_proc WHERE oid = to_regproc('posts_search_vector_update'))", String.class);
+        boolean rebuild = !body.equals(installed);
+        if (rebuild) {
+            jdbcTemplate.execute("CREATE OR REPLACE FUNCTION posts_search_vector_update() RETURNS trigger " +
+                    "LANGUAGE plpgsql AS $fn$" + body + "$fn$");
+        }
+        // No column list: column-specific triggers would block ALTER COLUMN ... TYPE just like a generated column
+        jdbcTemplate.execute("CREATE OR REPLACE TRIGGER posts_search_vector BEFORE INSERT OR UPDATE ON posts " +
+                "FOR EACH ROW EXECUTE FUNCTION posts_search_vector_update()");
+        if (rebuild) {
+            rebuildSearchColumn();
+        }
+
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_posts_search ON posts USING GIN (search_vector)");
+        log.info("Post search column and index ready ({})", regconfig());
+    }
+
+    // Recomputes search_vector for every post with the current configuration, one short transaction per batch
+    private void rebuildSearchColumn() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT coalesce(max(id), 0) FROM posts", Long.class);
+        long updated = 0;
+        for (long from = 0; from < maxId; from += rebuildBatchSize) {
+            updated += jdbcTemplate.update("UPDATE posts SET search_vector = " + vectorExpression("") +
+                    " WHERE id > ? AND id <= ?", from, from + rebuildBatchSize);
+        }
+        log.info("Rebuilt search_vector of {} posts with text search configuration {}", updated, regconfig());
+    }
+
+    // Recomputes only when the text changed, so rebuilds (which set the column themselves) pass through
+    private String triggerBody() {
+        return " BEGIN " +
+                "IF TG_OP = 'INSERT' OR NEW.title IS DISTINCT FROM OLD.title OR NEW.content IS DISTINCT FROM OLD.content THEN " +
+                "NEW.search_vector := " + vectorExpression("NEW.") + "; " +
+                "END IF; RETURN NEW; END ";
+    }
+
+    private String vectorExpression(String row) {
+        return "setweight(to_tsvector('" + regconfig() + "'::regconfig, coalesce(" + row + "title, '')), 'A') || " +
+                "setweight(to_tsvector('" + regconfig() + "'::regconfig, coalesce(" + row + "content, '')), 'B')";
+    }
+
+    // Up to limit hits after the position. Admins see everything; others see visible posts plus their own hidden ones.
+    public List<Hit> search(String query, Long viewerId, boolean isAdmin, Position after, int limit) {
+        long start = System.nanoTime();
+        try {
+            Object[] args = { regconfig(), query, regconfig(), query, isAdmin, viewerId != null ? viewerId : -1L,
+                    maxCandidates, after.rank(), after.rank(), after.id(), limit };
+            return jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SEARCH_SQL);
+                // Plans must see the tsquery: a cached generic plan guesses its selectivity and, for common terms,
+                // sorts every match instead of walking the primary key. Never switch to a server-prepared statement
+                ps.unwrap(PGStatement.class).setPrepareThreshold(0);
+                new ArgumentPreparedStatementSetter(args).setValues(ps);
+                return ps;
+            }, (rs, i) -> new Hit(rs.getLong("id"), rs.getFloat("rank")));
+        } finally {
+            searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Text search configuration name from properties; it ends up inside DDL, so only plain identifiers pass
+    private String regconfig() {
+        if (!language.matches("[a-z_]+")) {
+            throw new IllegalStateException("Invalid search.posts.language: " + language);
+        }
+        return language;
+    }
+}
@@ -1,46 +1,88 @@
 package com._blog._blog.service;
 
 import com._blog._blog.dto.CreatePostRequest;
+import com._blog._blog.dto.Cursor;
+import com._blog._blog.dto.CursorPage;
+import com._blog._blog.dto.MediaVariants;
 import com._blog._blog.dto.PostResponse;
+import com._blog._blog.event.CacheInvalidationBus;
+import com._blog._blog.event.DomainEvents;
+import com._blog._blog.event.EventPublisher;
 import com._blog._blog.model.Post;
 import com._blog._blog.model.User;
 import com._blog._blog.repository.PostRepository;
 import com._blog._blog.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile; 
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException; 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 
 @Service
 public class PostService {
 
+    private static final Logger log = LoggerFactory.getLogger(PostService.class);
+
     private final PostRepository postRepository;
     private final UserRepository userRepository;
     private final MediaService mediaService;
-    private final NotificationService notificationService;
-    private final com._blog._blog.repository.FollowRepository followRepository;
+    private final MediaPipeline mediaPipeline;
+    private final MediaBlobService mediaBlobService;
+    private final TimelineService timelineService;
+    private final LikeBuffer likeBuffer;
+    private final EventPublisher eventPublisher;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final PostSearchService postSearchService;
+    private final TrendingService trendingService;
+    private final ContentDeletionService contentDeletionService;
+    private final TransactionTemplate transactionTemplate;
 
     public PostService(PostRepository postRepository, 
                        UserRepository userRepository, 
                        MediaService mediaService, 
-                       NotificationService notificationService,
-                       com._blog._blog.repository.FollowRepository followRepository) {
+                       MediaPipeline mediaPipeline,
+                       MediaBlobService mediaBlobService,
+                       TimelineService timelineService,
+                       LikeBuffer likeBuffer,
+                       EventPublisher eventPublisher,
+                       CacheInvalidationBus cacheInvalidationBus,
+                       PostSearchService postSearchService,
+                       TrendingService trendingService,
+                       ContentDeletionService contentDeletionService,
+                       TransactionTemplate transactionTemplate) {
         this.postRepository = postRepository;
         this.userRepository = userRepository;
         this.mediaService = mediaService;
-        this.notificationService = notificationService;
-        this.followRepository = followRepository;
+        this.mediaPipeline = mediaPipeline;
+        this.mediaBlobService = mediaBlobService;
+        this.timelineService = timelineService;
+        this.likeBuffer = likeBuffer;
+        this.eventPublisher = eventPublisher;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.postSearchService = postSearchService;
+        this.trendingService = trendingService;
+        this.contentDeletionService = contentDeletionService;
+        this.transactionTemplate = transactionTemplate;
     }
     @Transactional
     public PostResponse createPostWithMedia(CreatePostRequest request, MultipartFile file) {
@@ -62,50 +104,27 @@ public class PostService {
         //  Save first to generate the Post ID (needed for naming)
         Post savedPost = postRepository.save(post);
 
-        // Handle File Upload if exists
+        // Handle File Upload if exists: the post is returned right away with media PENDING
         if (file != null && !file.isEmpty()) {
-            try {
-                // Naming pattern: user{id}_post{id}_{timestamp}
-                String customName = "user" + user.getId() + "_post" + savedPost.getId() + "_" + System.currentTimeMillis();
-                
-                // Upload to "01blog/posts" folder
-                Map uploadResult = mediaService.uploadFile(file, "01blog/posts", customName);
-                
-                // 4. Update Post with Cloudinary Data
-                savedPost.setMediaUrl((String) uploadResult.get("secure_url"));
-                savedPost.setPublicId((String) uploadResult.get("public_id"));
-                savedPost.setMediaType((String) uploadResult.get("resource_type")); 
-                
-                // Save again with media info
-                savedPost = postRepository.save(savedPost);
-            } catch (IOException e) {
-                // Log and throw a controlled error
-                System.err.println("Cloudinary Upload Error: " + e.getMessage());
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload media");
-            }
+            // Naming pattern: user{id}_post{id}_{timestamp}
+            String customName = "user" + user.getId() + "_post" + savedPost.getId() + "_" + System.currentTimeMillis();
+            submitPostMedia(savedPost, file, customName);
+            savedPost = postRepository.save(savedPost);
         }
 
-        // Notify Followers
-        notifyFollowers(savedPost, user);
+        // Fan out into followers' home timelines
+        timelineService.onPostCreated(savedPost);
+
+        // Followers are notified by the outbox subscriber once this transaction commits
+        eventPublisher.publish(DomainEvents.POST, savedPost.getId(), DomainEvents.POST_CREATED, Map.of(
+                "postId", savedPost.getId(),
+                "authorId", user.getId(),
+                "authorUsername", user.getUsername(),
+                "title", savedPost.getTitle() != null ? savedPost.getTitle() : ""));
 
         return mapToDto(savedPost);
     } 
 
-    private void notifyFollowers(Post post, User author) {
-        List<Long> followerIds = followRepository.findFollowerIds(author.getId());
-        for (Long followerId : followerIds) {
-            userRepository.findById(followerId).ifPresent(follower -> {
-                 notificationService.createNotification(
-                    follower,
-                    author,
-                    author.getUsername() + " posted a new post" + post.getTitle(),
-                    "POST",
-                    post.getId()
-                 );
-            });
-        }
-    }
-    
     // DELETE METHOD handle media deletion
     @Transactional
     public void deletePost(Long id) {
@@ -120,28 +139,9 @@ public class PostService {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not authorized to delete this post");
         }
         
-        //  Delete media for ALL comments associated with this post
-        for (com._blog._blog.model.Comment comment : post.getComments()) {
-            if (comment.getPublicId() != null && !comment.getPublicId().isEmpty()) {
-                try {
-                    mediaService.deleteFile(comment.getPublicId());
-                } catch (IOException e) {
-                    System.err.println("Warning: Failed to delete media for Comment ID: " + comment.getId());
-                }
-            }
-        }
-
-        // Delete media for the post itself
-        if (post.getPublicId() != null && !post.getPublicId().isEmpty()) {
-            try {
-                mediaService.deleteFile(post.getPublicId());
-            } catch (IOException e) {
-                // Log the failure, but still delete the DB record
-                System.err.println("Warning: Failed to delete media from Cloudinary for Post ID: " + id + ". Error: " + e.getMessage());
-            }
-        }
-
-        postRepository.delete(post);
+        // Comments, reports, likes and timeline rows go with one statement per table instead of the entity cascade,
+        // and the media of the post and its comments is released in one batch ( Deleted Content Removal)
+        contentDeletionService.deletePost(post.getId());
     }
     @Transactional
     public void toggleHide(Long id) {
@@ -157,6 +157,57 @@ public class PostService {
         
         post.setHidden(!post.isHidden());
         postRepository.save(post);
+        timelineService.onPostVisibilityChanged(post);
+        cacheInvalidationBus.invalidatePost(post.getId());
+    }
+
+    // Stages the upload and hands it to the media pipeline, unless identical content is already stored (reused at once).
+    // The row keeps the expected public id while PENDING; a result whose public id no longer matches
+    // (post deleted or media replaced) is released again.
+    private void submitPostMedia(Post post, MultipartFile file, String customName) {
+        String folder = "01blog/posts";
+        String pendingPublicId = MediaPipeline.expectedPublicId(folder, customName);
+        MediaService.StagedMedia staged;
+        try {
+            staged = mediaService.stage(file);
+        } catch (IOException e) {
+            log.error("Post media staging failed: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload media");
+        }
+        MediaBlobService.Blob existing = mediaBlobService.acquire(staged.getSha256()).orElse(null);
+        if (existing != null) {
+            mediaService.discard(staged);
+            post.setMediaUrl(existing.secureUrl());
+            post.setMediaType(existing.resourceType());
+            post.setPublicId(existing.publicId());
+            post.setMediaVariants(existing.variants());
+            post.setMediaStatus(MediaPipeline.READY);
+            return;
+        }
+        post.setMediaUrl(null);
+        post.setMediaType(null);
+        post.setPublicId(pendingPublicId);
+        post.setMediaVariants(null);
+        post.setMediaStatus(MediaPipeline.PENDING);
+
+        Long postId = post.getId();
+        String sha256 = staged.getSha256();
+        mediaPipeline.submit("post", staged, folder, customName, new MediaPipeline.Completion() {
+            @Override
+            public void ready(Map result) {
+                MediaBlobService.Blob blob = mediaBlobService.register(sha256, result);
+                int updated = postRepository.completeMedia(postId, pendingPublicId, blob.secureUrl(),
+                        blob.resourceType(), blob.publicId(), blob.variants());
+                if (updated == 0) {
+                    mediaBlobService.release(blob.publicId(), blob.resourceType());
+                }
+            }
+
+            @Override
+            public void failed() {
+                postRepository.failMedia(postId, pendingPublicId);
+            }
+        });
     }
 
     // Existing updatePost method...
@@ -173,32 +224,22 @@ public class PostService {
 
         // Handle Media Removal or Replacement
         if (removeMedia || (file != null && !file.isEmpty())) {
-            // If there's existing media, delete it from Cloudinary
+            post.setMediaStatus(null);
+            // If there's existing media, release it (deleted from storage once nothing else uses it)
             if (post.getPublicId() != null && !post.getPublicId().isEmpty()) {
-                try {
-                    mediaService.deleteFile(post.getPublicId());
-                } catch (IOException e) {
-                    System.err.println("Warning: Failed to delete old media: " + e.getMessage());
-                }
+                mediaBlobService.release(post.getPublicId(), post.getMediaType());
                 // Clear fields
                 post.setMediaUrl(null);
                 post.setPublicId(null);
                 post.setMediaType(null);
+                post.setMediaVariants(null);
             }
         }
 
-        // Handle New File Upload
+        // Handle New File Upload (asynchronously, like on create)
         if (file != null && !file.isEmpty()) {
-            try {
-                String customName = "user" + post.getUser().getId() + "_post" + post.getId() + "_" + System.currentTimeMillis();
-                Map uploadResult = mediaService.uploadFile(file, "01blog/posts", customName);
-                
-                post.setMediaUrl((String) uploadResult.get("secure_url"));
-                post.setPublicId((String) uploadResult.get("public_id"));
-                post.setMediaType((String) uploadResult.get("resource_type"));
-            } catch (IOException e) {
-                 throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload new media");
-            }
+            String customName = "user" + post.getUser().getId() + "_post" + post.getId() + "_" + System.currentTimeMillis();
+            submitPostMedia(post, file, customName);
         }
 
         // Update Text Content
@@ -206,6 +247,7 @@ public class PostService {
         post.setContent(content);
 
         Post updatedPost = postRepository.save(post);
+        cacheInvalidationBus.invalidatePost(updatedPost.getId());
         return mapToDto(updatedPost);
     }
     
@@ -227,21 +269,15 @@ public class PostService {
             // Admin sees all
             postsPage = postRepository.findAll(pageable);
         } else if (currentUsername != null) {
-            // Logged in: Personal Feed (Followed + Self)
-            // Get current user ID
+            // Logged in: Personal Feed (Followed + Self), read from the materialized timeline
             User currentUser = userRepository.findByUsername(currentUsername).orElseThrow();
-            
-            // Get Followed IDs
-            List<Long> followedIds = followRepository.findFollowingIds(currentUser.getId());
-            
-            // Execute Custom Query
-            postsPage = postRepository.findFeedPosts(followedIds, currentUser.getId(), pageable);
+            postsPage = timelineService.getHomeTimeline(currentUser.getId(), PageRequest.of(page, size));
         } else {
             // Guest: Only not hidden (Global)
             postsPage = postRepository.findByHiddenFalseOrderByCreatedAtDesc(pageable);
         }
 
-        return postsPage.map(this::mapToDto);
+        return toPage(postsPage);
     }
 
     @Transactional(readOnly = true)
@@ -267,70 +303,231 @@ public class PostService {
             postsPage = postRepository.findByUserIdAndHiddenFalseOrderByCreatedAtDesc(userId, pageable);
         }
 
-        return postsPage.map(this::mapToDto);
+        return toPage(postsPage);
+    }
+
+    // Keyset (cursor) variant of getAllPosts: same visibility rules, no OFFSET scan and no count query
+    @Transactional(readOnly = true)
+    public CursorPage<PostResponse> getFeed(String before, int limit) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        boolean isAdmin = auth != null && auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+        String currentUsername = (auth != null && auth.isAuthenticated() && !auth.getName().equals("anonymousUser")) ? auth.getName() : null;
+
+        Cursor cursor = Cursor.decode(before);
+        int pageSize = CursorPage.clampLimit(limit);
+        Pageable pageable = PageRequest.of(0, pageSize);
+        Slice<Post> slice;
+
+        if (isAdmin) {
+            slice = postRepository.findAllBefore(cursor.getCreatedAt(), cursor.getId(), pageable);
+        } else if (currentUsername != null) {
+            User currentUser = userRepository.findByUsername(currentUsername).orElseThrow();
+            slice = timelineService.getHomeTimelineBefore(currentUser.getId(), cursor, pageSize);
+        } else {
+            slice = postRepository.findPublicBefore(cursor.getCreatedAt(), cursor.getId(), pageable);
+        }
+
+        return toCursorPage(slice);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<PostResponse> getPostsByUserIdBefore(Long userId, String before, int limit) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        boolean isAdmin = auth != null && auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+        String currentUsername = (auth != null && auth.isAuthenticated() && !auth.getName().equals("anonymousUser")) ? auth.getName() : null;
+
+        Cursor cursor = Cursor.decode(before);
+        Pageable pageable = PageRequest.of(0, CursorPage.clampLimit(limit));
+
+        boolean isOwner = false;
+        if (currentUsername != null) {
+             User currentUser = userRepository.findByUsername(currentUsername).orElse(null);
+             isOwner = currentUser != null && currentUser.getId().equals(userId);
+        }
+
+        Slice<Post> slice = (isAdmin || isOwner)
+                ? postRepository.findByUserIdBefore(userId, cursor.getCreatedAt(), cursor.getId(), pageable)
+                : postRepository.findPublicByUserIdBefore(userId, cursor.getCreatedAt(), cursor.getId(), pageable);
+
+        return toCursorPage(slice);
+    }
+
+    private Page<PostResponse> toPage(Page<Post> postsPage) {
+        return new PageImpl<>(mapToDtos(postsPage.getContent()), postsPage.getPageable(), postsPage.getTotalElements());
+    }
+
+    // Ranked full-text search (?q=&after=<cursor>&limit=), best match first; visibility as in the feeds
+    @Transactional(readOnly = true)
+    public CursorPage<PostResponse> searchPosts(String query, String after, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search query is required");
+        }
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        boolean isAdmin = auth != null && auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+
+        int pageSize = CursorPage.clampLimit(limit);
+        List<PostSearchService.Hit> hits = postSearchService.search(query.trim(), currentUserId(), isAdmin,
+                PostSearchService.Position.decode(after), pageSize + 1);
+        boolean hasNext = hits.size() > pageSize;
+        if (hasNext) {
+            hits = hits.subList(0, pageSize);
+        }
+
+        Map<Long, Post> byId = new HashMap<>();
+        for (Post post : postRepository.findAllWithUserByIdIn(hits.stream().map(PostSearchService.Hit::id).toList())) {
+            byId.put(post.getId(), post);
+        }
+        List<Post> ordered = hits.stream().map(h -> byId.get(h.id())).filter(Objects::nonNull).toList();
+
+        String next = hasNext
+                ? new PostSearchService.Position(hits.get(hits.size() - 1).rank(), hits.get(hits.size() - 1).id()).encode()
+                : null;
+        return new CursorPage<>(mapToDtos(ordered), next, next != null);
+    }
+
+    // Trending posts from the in-memory snapshot (TrendingService); only the page itself is loaded
+    @Transactional(readOnly = true)
+    public List<PostResponse> getTrending(int limit) {
+        List<Long> ids = trendingService.top(CursorPage.clampLimit(limit));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Post> byId = new HashMap<>();
+        for (Post post : postRepository.findAllWithUserByIdIn(ids)) {
+            byId.put(post.getId(), post);
+        }
+        // Snapshot may be a few seconds old: skip posts deleted or hidden since
+        List<Post> ordered = ids.stream().map(byId::get).filter(p -> p != null && !p.isHidden()).toList();
+        return mapToDtos(ordered);
+    }
+
+    // View signal for trending: only visible posts count, and each viewer once per window (TrendingService)
+    @Transactional(readOnly = true)
+    public void recordView(Long postId) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        Long viewerId = postRepository.findViewerIdForVisiblePost(postId, username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found"));
+        trendingService.recordView(postId, viewerId);
+    }
+
+    private CursorPage<PostResponse> toCursorPage(Slice<Post> slice) {
+        List<PostResponse> items = mapToDtos(slice.getContent());
+        return CursorPage.of(items, slice.hasNext(), p -> Cursor.of(p.getCreatedAt(), p.getId()));
     }
 
    
      // Helper method to map Post entity to PostResponse DTO.
      
-    @Transactional
+    // Not @Transactional: a buffered toggle waits for its journal write and must not hold a connection meanwhile.
+    // The synchronous path runs in a transaction of its own
     public void toggleLike(Long postId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found"));
-        
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new IllegalStateException("User not found"));
-        
-        if (post.getLikes().contains(user)) {
-            post.getLikes().remove(user);
-        } else {
-            post.getLikes().add(user);
-            // Send Notification
-            if (!post.getUser().getId().equals(user.getId())) {
-                 notificationService.createNotification(
-                    post.getUser(),
-                    user,
-                    user.getUsername() + " liked your post.",
-                    "LIKE",
-                    post.getId()
-                 );
+
+        // Write-behind mode: journal the intent, LikeBuffer flushes the rows and publishes the events.
+        // A full buffer pushes back by sending this toggle down the synchronous path below
+        if (likeBuffer.isEnabled() && likeBuffer.accepts(postId, user.getId())) {
+            if (!postRepository.existsById(postId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found");
             }
+            likeBuffer.toggle(postId, user.getId(), () -> postRepository.existsLike(postId, user.getId()));
+            return;
         }
-        postRepository.save(post);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Post post = postRepository.findById(postId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found"));
+
+            // Toggle on the join table directly; an event is only published when a row actually changed.
+            // The like counter and the notification (never for self-likes) are applied by outbox subscribers.
+            if (postRepository.deleteLike(postId, user.getId()) > 0) {
+                eventPublisher.publish(DomainEvents.POST, postId, DomainEvents.POST_UNLIKED, Map.of(
+                        "postId", postId,
+                        "userIds", List.of(user.getId())));
+            } else if (postRepository.insertLike(postId, user.getId()) > 0) {
+                eventPublisher.publish(DomainEvents.POST, postId, DomainEvents.POST_LIKED, Map.of(
+                        "postId", postId,
+                        "authorId", post.getUser().getId(),
+                        "userIds", List.of(user.getId())));
+            }
+        });
     }
 
-     // Helper method to map Post entity to PostResponse DTO.
+     // Helper method to map a single Post entity to PostResponse DTO.
      
     private PostResponse mapToDto(Post post) {
-        String currentUsername = null;
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth != null && auth.isAuthenticated() && !auth.getName().equals("anonymousUser")) {
-             currentUsername = auth.getName();
+        return mapToDtos(List.of(post)).get(0);
+    }
+
+    // Maps a page of posts with a constant number of queries: counts come from the denormalized
+    // columns and one "which of these did I like" lookup replaces initializing every likes collection
+    private List<PostResponse> mapToDtos(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return List.of();
+        }
+        List<Long> postIds = posts.stream().map(Post::getId).toList();
+
+        Long currentUserId = currentUserId();
+        Set<Long> likedByCurrentUser;
+        Map<Long, Long> likeCounts = new HashMap<>();
+        Map<Long, Boolean> pendingLiked = new HashMap<>();
+        for (int attempt = 1; ; attempt++) {
+            long generation = likeBuffer.flushGeneration();
+            likedByCurrentUser = currentUserId == null ? Set.of() : new HashSet<>(postRepository.findLikedPostIds(currentUserId, postIds));
+            if (!likeBuffer.isEnabled()) {
+                break;
+            }
+            // Read-your-writes for likes still sitting in the write-behind buffer: persisted state plus pending
+            // intents, read again (a few times at most) when a flush moved intents from one side to the other meanwhile
+            likeCounts.clear();
+            pendingLiked.clear();
+            for (Object[] row : postRepository.findLikeCounts(postIds)) {
+                likeCounts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+            }
+            for (Long postId : postIds) {
+                likeCounts.merge(postId, likeBuffer.pendingDelta(postId), Long::sum);
+                Boolean pending = currentUserId == null ? null : likeBuffer.pendingLikeState(postId, currentUserId);
+                if (pending != null) {
+                    pendingLiked.put(postId, pending);
+                }
+            }
+            if (likeBuffer.unchangedSince(generation) || attempt == 3) {
+                break;
+            }
         }
 
-        boolean likedByCurrentUser = false;
-        if (currentUsername != null) {
-            // Check if current user is in the likes set.
-            // This relies on User equals/hashCode being based on ID or ID check.
-            // Ideally we check by ID match.
-            String finalCurrentUsername = currentUsername;
-            likedByCurrentUser = post.getLikes().stream().anyMatch(u -> u.getUsername().equals(finalCurrentUsername));
+        List<PostResponse> responses = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            long likeCount = likeCounts.getOrDefault(post.getId(), post.getLikeCount());
+            boolean liked = pendingLiked.getOrDefault(post.getId(), likedByCurrentUser.contains(post.getId()));
+            PostResponse response = new PostResponse(
+                post.getId(),
+                post.getTitle(),
+                post.getContent(),
+                post.getUser().getId(),
+                post.getUser().getUsername(),
+                post.getCreatedAt(),
+                post.getMediaUrl(),
+                post.getMediaType(),
+                post.getUser().getAvatarUrl(),
+                post.isHidden(),
+                likeCount,
+                liked,
+                post.getCommentCount()
+            );
+            response.setMediaStatus(post.getMediaStatus());
+            response.setMediaVariants(MediaVariants.fromJson(post.getMediaVariants()));
+            responses.add(response);
         }
+        return responses;
+    }
 
-        return new PostResponse(
-            post.getId(),
-            post.getTitle(),
-            post.getContent(),
-            post.getUser().getId(),
-            post.getUser().getUsername(),
-            post.getCreatedAt(),
-            post.getMediaUrl(),
-            post.getMediaType(),
-            post.getUser().getAvatarUrl(),
-            post.isHidden(),
-            (long) post.getLikes().size(),
-            likedByCurrentUser
-        );
+    private Long currentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth.getName().equals("anonymousUser")) {
+            return null;
+        }
+        return userRepository.findByUsername(auth.getName()).map(User::getId).orElse(null);
     }
-}
\ No newline at end of file
+}
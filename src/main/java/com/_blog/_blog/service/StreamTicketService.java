@@ -0,0 +1,63 @@
+package com._blog._blog.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+// Issues and redeems the single-use tickets that open the notification stream ( Real-time Notifications)
+// Tickets live in the database so that any node can redeem a ticket issued by another one. Redeeming deletes the row
+// in the same statement that reads it, so a ticket copied out of a log line after use is worthless.
+@Service
+public class StreamTicketService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${notifications.stream.ticket-ttl-seconds:30}")
+    private int ticketTtlSeconds;
+
+    public StreamTicketService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public String issue(Long userId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        jdbcTemplate.update("INSERT INTO stream_tickets (ticket_hash, user_id, expires_at) " +
+                "VALUES (?, ?, now() + make_interval(secs => ?))", hash(ticket), userId, ticketTtlSeconds);
+        return ticket;
+    }
+
+    // Username of the ticket's owner, if the ticket exists, has not expired and its user still exists
+    public Optional<String> redeem(String ticket) {
+        List<String> usernames = jdbcTemplate.queryForList(
+                "DELETE FROM stream_tickets t USING users u " +
+                "WHERE t.ticket_hash = ? AND t.expires_at > now() AND u.id = t.user_id RETURNING u.username",
+                String.class, hash(ticket));
+        return usernames.stream().findFirst();
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.stream.ticket-purge-ms:60000}")
+    public void purgeExpired() {
+        jdbcTemplate.update("DELETE FROM stream_tickets WHERE expires_at <= now()");
+    }
+
+    private static String hash(String ticket) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(ticket.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com._blog._blog.service;
+
+import com._blog._blog.dto.Cursor;
+import com._blog._blog.model.Post;
+import com._blog._blog.model.User;
+import com._blog._blog.repository.FollowRepository;
+import com._blog._blog.repository.PostRepository;
+import com._blog._blog.repository.TimelineEntryRepository;
+import com._blog._blog.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Fan-out-on-write home timelines ( Personal Feed)
+// Every post is copied into its followers' timeline_entries when it is created, so reading a feed is one
+// indexed range scan instead of an IN-list over everyone the reader follows. Authors above the fan-out limit
+// are flagged highFanout and merged in at read time instead.
+@Service
+public class TimelineService {
+
+    private final TimelineEntryRepository timelineEntryRepository;
+    private final FollowRepository followRepository;
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+
+    @Value("${timeline.fanout.max-followers:10000}")
+    private long maxFanoutFollowers;
+
+    @Value("${timeline.backfill-size:200}")
+    private int backfillSize;
+
+    public TimelineService(TimelineEntryRepository timelineEntryRepository,
+                           FollowRepository followRepository,
+                           UserRepository userRepository,
+                           PostRepository postRepository) {
+        this.timelineEntryRepository = timelineEntryRepository;
+        this.followRepository = followRepository;
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+    }
+
+    // Author always sees their own post; followers get it unless the author is read-time merged
+    @Transactional
+    public void onPostCreated(Post post) {
+        User author = post.getUser();
+        timelineEntryRepository.insertEntry(author.getId(), post.getId(), author.getId(), post.getCreatedAt());
+
+        if (author.isHighFanout()) {
+            return;
+        }
+
+        if (author.getFollowerCount() > maxFanoutFollowers) {
+            // Crossing the limit: drop the already fanned-out copies so read-time merging does not duplicate them
+            userRepository.markHighFanout(author.getId());
+            timelineEntryRepository.deleteFannedOutByAuthor(author.getId());
+            return;
+        }
+
+        timelineEntryRepository.fanOutToFollowers(post.getId(), author.getId(), post.getCreatedAt());
+    }
+
+    // Hidden posts disappear from followers' timelines but stay in the author's own
+    @Transactional
+    public void onPostVisibilityChanged(Post post) {
+        if (post.isHidden()) {
+            timelineEntryRepository.deleteFannedOutByPost(post.getId());
+        } else if (!post.getUser().isHighFanout()) {
+            timelineEntryRepository.fanOutToFollowers(post.getId(), post.getUser().getId(), post.getCreatedAt());
+        }
+    }
+
+    @Transactional
+    public void onPostDeleted(Long postId) {
+        timelineEntryRepository.deleteByPost(postId);
+    }
+
+    @Transactional
+    public void onFollow(Long followerId, User following) {
+        if (!following.isHighFanout()) {
+            timelineEntryRepository.backfillFromAuthor(followerId, following.getId(), backfillSize);
+        }
+    }
+
+    @Transactional
+    public void onUnfollow(Long followerId, Long followingId) {
+        timelineEntryRepository.deleteByOwnerAndAuthor(followerId, followingId);
+    }
+
+    @Transactional
+    public void onUserDeleted(Long userId) {
+        timelineEntryRepository.deleteByUser(userId);
+    }
+
+    // Reads the materialized timeline, merging in followed high-fanout authors when there are any
+    @Transactional(readOnly = true)
+    public Page<Post> getHomeTimeline(Long userId, Pageable pageable) {
+        List<Long> mergedAuthorIds = followRepository.findHighFanoutFollowingIds(userId);
+        if (mergedAuthorIds.isEmpty()) {
+            return timelineEntryRepository.findTimelinePosts(userId, pageable);
+        }
+
+        // Both sources are sorted newest first, so the first (page + 1) * size rows of each cover the requested page
+        Pageable head = PageRequest.of(0, (int) Math.min(Integer.MAX_VALUE, pageable.getOffset() + pageable.getPageSize()));
+        Page<Post> materialized = timelineEntryRepository.findTimelinePosts(userId, head);
+        Page<Post> merged = postRepository.findByUserIdInAndHiddenFalseOrderByCreatedAtDesc(mergedAuthorIds, head);
+
+        List<Post> combined = new ArrayList<>(materialized.getContent());
+        combined.addAll(merged.getContent());
+        combined.sort(Comparator.comparing(Post::getCreatedAt).thenComparing(Post::getId).reversed());
+
+        int from = (int) Math.min(pageable.getOffset(), combined.size());
+        int to = Math.min(from + pageable.getPageSize(), combined.size());
+        return new PageImpl<>(combined.subList(from, to), pageable, materialized.getTotalElements() + merged.getTotalElements());
+    }
+
+    // Keyset variant: fetches `limit` rows from each source and keeps the newest `limit` of the union
+    @Transactional(readOnly = true)
+    public Slice<Post> getHomeTimelineBefore(Long userId, Cursor before, int limit) {
+        Pageable first = PageRequest.of(0, limit);
+        Slice<Post> materialized = timelineEntryRepository.findTimelinePostsBefore(userId, before.getCreatedAt(), before.getId(), first);
+
+        List<Long> mergedAuthorIds = followRepository.findHighFanoutFollowingIds(userId);
+        if (mergedAuthorIds.isEmpty()) {
+            return materialized;
+        }
+
+        Slice<Post> merged = postRepository.findPublicByUserIdsBefore(mergedAuthorIds, before.getCreatedAt(), before.getId(), first);
+
+        List<Post> combined = new ArrayList<>(materialized.getContent());
+        combined.addAll(merged.getContent());
+        combined.sort(Comparator.comparing(Post::getCreatedAt).thenComparing(Post::getId).reversed());
+
+        boolean hasNext = combined.size() > limit || materialized.hasNext() || merged.hasNext();
+        return new SliceImpl<>(combined.subList(0, Math.min(limit, combined.size())), first, hasNext);
+    }
+
+    // Populates timelines for posts that existed before the table did
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (timelineEntryRepository.count() == 0 && postRepository.count() > 0) {
+            timelineEntryRepository.rebuildAuthorEntries();
+            timelineEntryRepository.rebuildFollowerEntries();
+        }
+    }
+}
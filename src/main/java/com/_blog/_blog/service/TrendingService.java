@@ -0,0 +1,186 @@
+package com._blog._blog.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+
+// Trending posts from exponentially decayed engagement ( Trending Posts)
+// Likes, comments (outbox events, see TrendingEventSubscriber) and views add weights to per-post DoubleAdders,
+// so concurrent signals never contend on a lock or a row. A scheduled flush folds the accumulated deltas into
+// post_trending with one batched upsert that decays the stored score to now first. Every node periodically
+// reloads the top K visible posts from that table into an immutable snapshot; reads only slice the snapshot.
+// Views come from clients, so each viewer counts once per post per trending.view-window-minutes, and both the
+// per-viewer marks and the pending posts are capped; signals over a cap are dropped and counted.
+@Service
+public class TrendingService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentHashMap<Long, DoubleAdder> pending = new ConcurrentHashMap<>();
+    // "viewerId:postId" -> epoch millis until which further views of that viewer are ignored
+    private final ConcurrentHashMap<String, Long> recentViews = new ConcurrentHashMap<>();
+    private final Counter droppedSignals;
+    private final Counter repeatedViews;
+
+    // Highest score first; replaced wholesale on refresh
+    private volatile List<Long> snapshot = List.of();
+
+    @Value("${trending.half-life-hours:6}")
+    private double halfLifeHours;
+
+    @Value("${trending.weight.like:3}")
+    private double likeWeight;
+
+    @Value("${trending.weight.comment:5}")
+    private double commentWeight;
+
+    @Value("${trending.weight.view:0.25}")
+    private double viewWeight;
+
+    @Value("${trending.snapshot-size:200}")
+    private int snapshotSize;
+
+    @Value("${trending.view-window-minutes:30}")
+    private long viewWindowMinutes;
+
+    @Value("${trending.max-recent-views:200000}")
+    private int maxRecentViews;
+
+    @Value("${trending.max-pending-posts:50000}")
+    private int maxPendingPosts;
+
+    // Rows whose decayed score fell below this are dropped
+    @Value("${trending.min-score:0.05}")
+    private double minScore;
+
+    public TrendingService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.droppedSignals = Counter.builder("trending.signals.dropped").description("Signals refused because a cap was reached").register(meterRegistry);
+        this.repeatedViews = Counter.builder("trending.views.repeated").description("Views ignored within a viewer's window").register(meterRegistry);
+        Gauge.builder("trending.pending.posts", pending, Map::size).register(meterRegistry);
+        Gauge.builder("trending.recent.views", recentViews, Map::size).register(meterRegistry);
+        Gauge.builder("trending.snapshot.size", this, t -> t.snapshot.size()).register(meterRegistry);
+    }
+
+    public void recordLikes(Long postId, int count) {
+        add(postId, likeWeight * count);
+    }
+
+    public void recordComments(Long postId, int count) {
+        add(postId, commentWeight * count);
+    }
+
+    // The caller has checked that the post exists and is visible; false if this view was not counted
+    public boolean recordView(Long postId, Long viewerId) {
+        String key = viewerId + ":" + postId;
+        long now = System.currentTimeMillis();
+        Long until = recentViews.get(key);
+        if (until != null && until > now) {
+            repeatedViews.increment();
+            return false;
+        }
+        if (until == null && recentViews.size() >= maxRecentViews) {
+            droppedSignals.increment();
+            return false;
+        }
+        long next = now + viewWindowMinutes * 60_000;
+        boolean first = until == null ? recentViews.putIfAbsent(key, next) == null : recentViews.replace(key, until, next);
+        if (!first) {
+            repeatedViews.increment(); // a concurrent request of the same viewer got there first
+            return false;
+        }
+        return add(postId, viewWeight);
+    }
+
+    private boolean add(Long postId, double weight) {
+        if (weight == 0) {
+            return false;
+        }
+        DoubleAdder adder = pending.get(postId);
+        if (adder == null) {
+            if (pending.size() >= maxPendingPosts) {
+                droppedSignals.increment();
+                return false;
+            }
+            adder = pending.computeIfAbsent(postId, id -> new DoubleAdder());
+        }
+        adder.add(weight);
+        return true;
+    }
+
+    // Top post ids, best first; never touches the database
+    public List<Long> top(int limit) {
+        List<Long> current = snapshot;
+        return current.subList(0, Math.min(Math.max(limit, 0), current.size()));
+    }
+
+    // Adders stay in the map while active; an idle one is removed, and a signal racing with that removal may be lost,
+    // which trending tolerates
+    @Scheduled(fixedDelayString = "${trending.flush-ms:5000}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        recentViews.values().removeIf(until -> until <= now);
+
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, DoubleAdder> entry : pending.entrySet()) {
+            double delta = entry.getValue().sumThenReset();
+            if (delta == 0) {
+                pending.remove(entry.getKey(), entry.getValue());
+                continue;
+            }
+            batch.add(new Object[] { entry.getKey(), delta });
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO post_trending (post_id, score, score_at) VALUES (?, ?, now()) " +
+                    "ON CONFLICT (post_id) DO UPDATE SET " +
+                    "score = post_trending.score * " + decay("post_trending.score_at") + " + EXCLUDED.score, score_at = now()",
+                    batch);
+        } catch (RuntimeException e) {
+            // Keep the deltas for the next flush
+            batch.forEach(row -> add((Long) row[0], (Double) row[1]));
+            log.warn("Trending flush of {} posts failed: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${trending.refresh-ms:15000}")
+    public void refresh() {
+        snapshot = List.copyOf(jdbcTemplate.queryForList(
+                "SELECT t.post_id FROM post_trending t JOIN posts p ON p.id = t.post_id " +
+                "WHERE p.hidden = false " +
+                "ORDER BY t.score * " + decay("t.score_at") + " DESC, t.post_id DESC LIMIT ?",
+                Long.class, snapshotSize));
+    }
+
+    @Scheduled(cron = "${trending.prune-cron:0 17 * * * *}")
+    public void prune() {
+        int removed = jdbcTemplate.update(
+                "DELETE FROM post_trending t WHERE t.score * " + decay("t.score_at") + " < ? " +
+                "OR NOT EXISTS (SELECT 1 FROM posts p WHERE p.id = t.post_id)", minScore);
+        if (removed > 0) {
+            log.info("Pruned {} cold trending rows", removed);
+        }
+    }
+
+    // SQL factor that decays a score stored at the given timestamp column to now: 2^(-elapsed / half-life)
+    private String decay(String column) {
+        double halfLifeSeconds = halfLifeHours * 3600;
+        return "power(2, -extract(epoch FROM (now() - " + column + ")) / " + halfLifeSeconds + ")";
+    }
+}
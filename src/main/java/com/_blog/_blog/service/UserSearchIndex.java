@@ -0,0 +1,404 @@
+package com._blog._blog.service;
+
+import com._blog._blog.event.CacheInvalidationBus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+// In-memory trigram index over usernames and nicknames for the navbar search ( User Search)
+// Queries of 3+ characters match anywhere in the name (like the old ILIKE '%q%'), shorter ones match prefixes
+// through start-padded trigrams. Candidates come from intersecting sorted posting lists, and results are ranked
+// exact > prefix > substring, username before nickname, then shorter names first, keeping only the top K.
+// Single-gram queries over long lists (one or two letter prefixes) read a ranked top 50 per gram instead, which
+// writes keep exact, so the first keystroke does not rank a tenth of all users.
+// The index is built by a scheduled task at startup and after LISTEN outages; USER invalidations mark single
+// usernames dirty and the same task reloads them in one query, so callers and the listener never wait on it.
+@Service
+public class UserSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    private static final char START = '\u0001';
+
+    // Single-gram queries (1-3 characters) over posting lists at least this long are answered from a ranked cache
+    static final int TOP_MIN_POSTINGS = 1024;
+    // Ranked hits kept per cached gram; UserService never asks for more
+    static final int TOP_SIZE = 50;
+
+    private static final Comparator<Ranked> ORDER = Comparator.<Ranked>comparingInt(Ranked::matchClass)
+            .thenComparingInt(r -> r.doc().usernameKey().length())
+            .thenComparing(r -> r.doc().usernameKey());
+
+    // Fields of a search result (navbar shows avatar and username)
+    public record Hit(Long id, String username, String role, boolean banned, String avatarUrl) {}
+
+    record Doc(Hit hit, String usernameKey, String nicknameKey) {}
+
+    record Ranked(Doc doc, int matchClass) {}
+
+    // Ascending doc slots containing one trigram
+    static final class Postings {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            int at = Arrays.binarySearch(slots, 0, size, slot);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(slots, at, slots, at + 1, size - at);
+            slots[at] = slot;
+            size++;
+        }
+
+        void remove(int slot) {
+            int at = Arrays.binarySearch(slots, 0, size, slot);
+            if (at >= 0) {
+                System.arraycopy(slots, at + 1, slots, at, size - at - 1);
+                size--;
+            }
+        }
+
+        boolean contains(int slot) {
+            return Arrays.binarySearch(slots, 0, size, slot) >= 0;
+        }
+    }
+
+    static final class Index {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final List<Doc> docs = new ArrayList<>();
+        final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+        final Map<String, Integer> slotByUsername = new HashMap<>();
+        final Map<Long, Postings> postings = new HashMap<>();
+        // Top TOP_SIZE ranked hits per single-gram query, filled by searches under the read lock and kept exact by
+        // put/remove under the write lock: a new doc is merged in, removing a cached doc drops the entry
+        final Map<Long, List<Ranked>> topByGram = new ConcurrentHashMap<>();
+
+        void put(Doc doc) {
+            remove(doc.usernameKey());
+            int slot;
+            if (freeSlots.isEmpty()) {
+                slot = docs.size();
+                docs.add(doc);
+            } else {
+                slot = freeSlots.pop();
+                docs.set(slot, doc);
+            }
+            for (long gram : grams(doc)) {
+                postings.computeIfAbsent(gram, g -> new Postings()).add(slot);
+                offer(gram, doc);
+            }
+            slotByUsername.put(doc.usernameKey(), slot);
+        }
+
+        void remove(String usernameKey) {
+            Integer slot = slotByUsername.remove(usernameKey);
+            if (slot == null) {
+                return;
+            }
+            Doc doc = docs.get(slot);
+            for (long gram : grams(doc)) {
+                Postings list = postings.get(gram);
+                if (list != null) {
+                    list.remove(slot);
+                    if (list.size == 0) {
+                        postings.remove(gram);
+                    }
+                }
+                List<Ranked> top = topByGram.get(gram);
+                if (top != null && top.stream().anyMatch(r -> r.doc() == doc)) {
+                    topByGram.remove(gram);
+                }
+            }
+            docs.set(slot, null);
+            freeSlots.push(slot);
+        }
+
+        // Every doc holding a gram matches that gram's query, so a short cached list already holds all matches
+        private void offer(long gram, Doc doc) {
+            List<Ranked> top = topByGram.get(gram);
+            if (top == null) {
+                return;
+            }
+            String q = query(gram);
+            Ranked ranked = new Ranked(doc, matchClass(doc, q, q.length() < 3));
+            int at = Collections.binarySearch(top, ranked, ORDER);
+            at = at < 0 ? -at - 1 : at;
+            if (at >= TOP_SIZE) {
+                return;
+            }
+            List<Ranked> merged = new ArrayList<>(top);
+            merged.add(at, ranked);
+            if (merged.size() > TOP_SIZE) {
+                merged.remove(TOP_SIZE);
+            }
+            topByGram.put(gram, List.copyOf(merged));
+        }
+
+        int size() {
+            return slotByUsername.size();
+        }
+    }
+
+    private static final RowMapper<Doc> DOC_ROW = (rs, i) -> doc(new Hit(rs.getLong("id"), rs.getString("username"),
+            rs.getString("role"), rs.getBoolean("is_banned"), rs.getString("avatar_url")), rs.getString("nickname"));
+
+    private static final String SELECT = "SELECT id, username, nickname, role, is_banned, avatar_url FROM users";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Streams the full load; PostgreSQL only honours the fetch size inside a transaction
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer searchTimer;
+
+    private volatile Index index = new Index();
+    private volatile boolean ready;
+    private volatile boolean rebuildRequested = true;
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    public UserSearchIndex(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           CacheInvalidationBus cacheInvalidationBus,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(1000);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.searchTimer = Timer.builder("users.search").register(meterRegistry);
+        Gauge.builder("users.search.index.size", this, s -> s.index.size()).register(meterRegistry);
+        cacheInvalidationBus.register(CacheInvalidationBus.Type.USER, dirty::add, () -> rebuildRequested = true);
+    }
+
+    // False until the first build finished; callers fall back to the database meanwhile
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<Hit> search(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            String q = normalize(query);
+            if (q == null || limit <= 0) {
+                return List.of();
+            }
+            Index current = index;
+            current.lock.readLock().lock();
+            try {
+                return search(current, q, limit);
+            } finally {
+                current.lock.readLock().unlock();
+            }
+        } finally {
+            searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    static List<Hit> search(Index index, String q, int limit) {
+        boolean prefixOnly = q.length() < 3;
+        long[] grams = prefixOnly
+                ? new long[] { q.length() == 1 ? pack(START, START, q.charAt(0)) : pack(START, q.charAt(0), q.charAt(1)) }
+                : trigrams(q);
+
+        // Walk the shortest list and probe the others
+        List<Postings> lists = new ArrayList<>(grams.length);
+        for (long gram : grams) {
+            Postings list = index.postings.get(gram);
+            if (list == null) {
+                return List.of();
+            }
+            lists.add(list);
+        }
+        List<Ranked> ranked;
+        if (grams.length == 1 && lists.get(0).size >= TOP_MIN_POSTINGS && limit <= TOP_SIZE) {
+            // A one-letter prefix can match a tenth of all users; rank them once, not per keystroke
+            ranked = index.topByGram.computeIfAbsent(grams[0], g -> rank(index, lists, q, prefixOnly, TOP_SIZE));
+        } else {
+            ranked = rank(index, lists, q, prefixOnly, limit);
+        }
+        return ranked.stream().limit(limit).map(r -> r.doc().hit()).toList();
+    }
+
+    private static List<Ranked> rank(Index index, List<Postings> lists, String q, boolean prefixOnly, int limit) {
+        List<Postings> bySize = new ArrayList<>(lists);
+        bySize.sort(Comparator.comparingInt(p -> p.size));
+        Postings smallest = bySize.get(0);
+
+        PriorityQueue<Ranked> top = new PriorityQueue<>(limit + 1, ORDER.reversed());
+        candidates:
+        for (int i = 0; i < smallest.size; i++) {
+            int slot = smallest.slots[i];
+            for (int l = 1; l < bySize.size(); l++) {
+                if (!bySize.get(l).contains(slot)) {
+                    continue candidates;
+                }
+            }
+            Doc doc = index.docs.get(slot);
+            int matchClass = matchClass(doc, q, prefixOnly);
+            if (matchClass < 0) {
+                continue; // trigrams matched out of order
+            }
+            top.add(new Ranked(doc, matchClass));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Ranked> ranked = new ArrayList<>(top);
+        ranked.sort(ORDER);
+        return List.copyOf(ranked);
+    }
+
+    // 0 exact username, 1 exact nickname, 2 username prefix, 3 nickname prefix, 4/5 substring, -1 no match
+    private static int matchClass(Doc doc, String q, boolean prefixOnly) {
+        String username = doc.usernameKey();
+        String nickname = doc.nicknameKey();
+        if (username.equals(q)) return 0;
+        if (q.equals(nickname)) return 1;
+        if (username.startsWith(q)) return 2;
+        if (nickname != null && nickname.startsWith(q)) return 3;
+        if (prefixOnly) return -1;
+        if (username.contains(q)) return 4;
+        if (nickname != null && nickname.contains(q)) return 5;
+        return -1;
+    }
+
+    @Scheduled(fixedDelayString = "${search.users.refresh-ms:500}")
+    public void refresh() {
+        if (rebuildRequested) {
+            rebuild();
+            return;
+        }
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<String> usernames = new ArrayList<>(dirty);
+        dirty.removeAll(usernames);
+        reload(index, usernames);
+    }
+
+    private void rebuild() {
+        rebuildRequested = false;
+        long start = System.currentTimeMillis();
+        Index fresh = new Index();
+        dirty.clear();
+        readOnlyTransaction.executeWithoutResult(status -> streamingJdbcTemplate.query(SELECT + " ORDER BY id",
+                rs -> {
+                    fresh.put(DOC_ROW.mapRow(rs, 0));
+                }));
+        index = fresh;
+        ready = true;
+        log.info("User search index built: {} users in {} ms", fresh.size(), System.currentTimeMillis() - start);
+
+        // Changes that arrived while loading may be missing from the snapshot
+        if (!dirty.isEmpty()) {
+            List<String> usernames = new ArrayList<>(dirty);
+            dirty.removeAll(usernames);
+            reload(fresh, usernames);
+        }
+    }
+
+    // Re-reads the given users; names no longer in the table are dropped
+    private void reload(Index target, List<String> usernames) {
+        Map<String, Doc> found = new HashMap<>();
+        jdbcTemplate.query(SELECT + " WHERE username = ANY (?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", usernames.toArray())),
+                rs -> {
+                    Doc doc = DOC_ROW.mapRow(rs, 0);
+                    found.put(doc.usernameKey(), doc);
+                });
+        target.lock.writeLock().lock();
+        try {
+            for (String username : usernames) {
+                String key = normalize(username);
+                Doc doc = found.get(key);
+                if (doc != null) {
+                    target.put(doc);
+                } else if (key != null) {
+                    target.remove(key);
+                }
+            }
+        } finally {
+            target.lock.writeLock().unlock();
+        }
+    }
+
+    static Doc doc(Hit hit, String nickname) {
+        return new Doc(hit, normalize(hit.username()), normalize(nickname));
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String key = value.trim().toLowerCase(Locale.ROOT);
+        return key.isEmpty() ? null : key;
+    }
+
+    // Start-padded trigrams of both names, so 1-2 character prefixes are indexed too
+    static Set<Long> grams(Doc doc) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (String name : new String[] { doc.usernameKey(), doc.nicknameKey() }) {
+            if (name == null) {
+                continue;
+            }
+            String padded = "" + START + START + name;
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(pack(padded.charAt(i), padded.charAt(i + 1), padded.charAt(i + 2)));
+            }
+        }
+        return grams;
+    }
+
+    static long[] trigrams(String q) {
+        return IntStream.rangeClosed(0, q.length() - 3)
+                .mapToLong(i -> pack(q.charAt(i), q.charAt(i + 1), q.charAt(i + 2)))
+                .distinct()
+                .toArray();
+    }
+
+    static long pack(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    // The query a single gram stands for: the gram without its start padding
+    static String query(long gram) {
+        StringBuilder q = new StringBuilder(3);
+        for (int shift = 32; shift >= 0; shift -= 16) {
+            char c = (char) (gram >>> shift);
+            if (c != START) {
+                q.append(c);
+            }
+        }
+        return q.toString();
+    }
+}
@@ -1,12 +1,22 @@
 package com._blog._blog.service;
 
+import com._blog._blog.event.CacheInvalidationBus;
 import com._blog._blog.model.User;
 import com._blog._blog.repository.UserRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
 
@@ -16,12 +26,27 @@ import com._blog._blog.dto.UserProfileDto;
 @Service
 public class UserService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
     private final UserRepository userRepository;
     private final FollowRepository followRepository;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final UserSearchIndex userSearchIndex;
+    private final ContentDeletionService contentDeletionService;
+    private final MediaService mediaService;
+    private final MediaPipeline mediaPipeline;
+    private final MediaDeletionQueue mediaDeletionQueue;
 
-    public UserService(UserRepository userRepository, FollowRepository followRepository) {
+    public UserService(UserRepository userRepository, FollowRepository followRepository, CacheInvalidationBus cacheInvalidationBus, UserSearchIndex userSearchIndex, ContentDeletionService contentDeletionService,
+                       MediaService mediaService, MediaPipeline mediaPipeline, MediaDeletionQueue mediaDeletionQueue) {
         this.userRepository = userRepository;
         this.followRepository = followRepository;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.userSearchIndex = userSearchIndex;
+        this.contentDeletionService = contentDeletionService;
+        this.mediaService = mediaService;
+        this.mediaPipeline = mediaPipeline;
+        this.mediaDeletionQueue = mediaDeletionQueue;
     }
 
     public List<User> getAllUsers() {
@@ -76,6 +101,7 @@ public class UserService {
         
         user.setRole("ADMIN");
         userRepository.save(user);
+        cacheInvalidationBus.invalidateUser(user.getUsername());
     }
 
     public void demoteUser(Long targetUserId, Long currentUserId) {
@@ -86,6 +112,7 @@ public class UserService {
 
         user.setRole("USER");
         userRepository.save(user);
+        cacheInvalidationBus.invalidateUser(user.getUsername());
     }
 
     public void banUser(Long targetUserId, Long currentUserId) {
@@ -97,14 +124,18 @@ public class UserService {
         // Toggle ban status
         user.setBanned(!user.isBanned());
         userRepository.save(user);
+        cacheInvalidationBus.invalidateUser(user.getUsername());
     }
 
     public User saveUser(User user) {
         return userRepository.save(user);
     }
 
+    // Set-based: posts, comments, likes, follows and notifications are removed table by table without
+    // loading the user's history, and the counters of everyone else are adjusted (ContentDeletionService)
     public void deleteUser(Long id) {
-        userRepository.deleteById(id);
+        userRepository.findById(id)
+                .ifPresent(user -> contentDeletionService.deleteUser(user.getId(), user.getUsername()));
     }
 
     // gets user profile including follow counts and status.
@@ -116,9 +147,9 @@ public class UserService {
         User profileOwner = userRepository.findById(profileOwnerId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User profile not found."));
         
-        // Calculate Follow Counts
-        long followersCount = followRepository.countByFollowingId(profileOwner.getId());
-        long followingCount = followRepository.countByFollowerId(profileOwner.getId());
+        // Follow Counts come from the denormalized counters (no COUNT queries per profile view)
+        long followersCount = profileOwner.getFollowerCount();
+        long followingCount = profileOwner.getFollowingCount();
         
         // Determine Follow Status (only if a user is logged in)
         boolean isFollowedByCurrentUser = false;
@@ -157,23 +188,92 @@ public class UserService {
             user.setAvatarUrl(avatarUrl);
         }
         
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        cacheInvalidationBus.invalidateUser(saved.getUsername());
+        return saved;
+    }
+
+    // Stages the avatar and hands it to the media pipeline; the request returns at once with the upload id and the
+    // client follows GET /api/users/avatar until the status leaves PENDING. The upload id (the public id the file
+    // will get) is written to avatar_pending_id, so only the most recent upload can set the avatar: an older one
+    // finishing late matches nothing and its file is queued for deletion.
+    @Transactional
+    public Map<String, Object> startAvatarUpload(String username, MultipartFile file) {
+        User user = getUserByUsername(username);
+        String folder = "avatars";
+        String customName = "avatar_" + user.getId() + "_" + System.currentTimeMillis();
+        String pendingId = MediaPipeline.expectedPublicId(folder, customName);
+        MediaService.StagedMedia staged;
+        try {
+            staged = mediaService.stage(file);
+        } catch (IOException e) {
+            log.error("Avatar staging failed for user {}: {}", user.getId(), e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upload avatar");
+        }
+        if (!"image".equals(staged.getResourceType())) {
+            mediaService.discard(staged);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only image files are allowed.");
+        }
+        userRepository.beginAvatarUpload(user.getId(), pendingId);
+
+        Long userId = user.getId();
+        mediaPipeline.submit("avatar", staged, folder, customName, new MediaPipeline.Completion() {
+            @Override
+            public void ready(Map result) {
+                String publicId = (String) result.get("public_id");
+                if (userRepository.completeAvatar(userId, pendingId, (String) result.get("secure_url")) > 0) {
+                    cacheInvalidationBus.invalidateUser(username);
+                } else {
+                    mediaDeletionQueue.enqueue(publicId != null ? publicId : pendingId, "image");
+                }
+            }
+
+            @Override
+            public void failed() {
+                // The previous avatar stays in place
+                userRepository.failAvatar(userId, pendingId);
+            }
+        });
+        return Map.of("status", MediaPipeline.PENDING, "uploadId", pendingId);
     }
 
-    // Search Users for Navbar
-    public List<UserProfileDto> searchUsers(String query) {
+    // Polled by the client after a 202 from the avatar upload
+    public Map<String, Object> getAvatarState(String username) {
+        User user = getUserByUsername(username);
+        Map<String, Object> state = new HashMap<>();
+        state.put("status", user.getAvatarStatus() != null ? user.getAvatarStatus() : MediaPipeline.READY);
+        state.put("uploadId", user.getAvatarPendingId());
+        state.put("avatarUrl", user.getAvatarUrl());
+        return state;
+    }
+
+    // Search Users for Navbar: ranked top-K from the in-memory index (UserSearchIndex)
+    public List<UserProfileDto> searchUsers(String query, int limit) {
         if (query == null || query.trim().isEmpty()) {
             return List.of();
         }
-        
-        List<User> users = userRepository.findByUsernameContainingIgnoreCase(query);
-        
-        // Map to DTO (Simplified mapping for search results)
+        int max = Math.max(1, Math.min(limit, 50));
+
+        if (userSearchIndex.isReady()) {
+            // Map to DTO (Simplified mapping for search results; aboutMe is not indexed)
+            return userSearchIndex.search(query, max).stream().map(hit -> new UserProfileDto(
+                hit.id(),
+                hit.username(),
+                hit.role(),
+                0, 0, false, // Counts/Status not needed for the search list
+                hit.banned(),
+                null,
+                hit.avatarUrl()
+            )).toList();
+        }
+
+        // Index still loading after startup: bounded database query
+        List<User> users = userRepository.findByUsernameContainingIgnoreCase(query.trim(), PageRequest.of(0, max));
         return users.stream().map(user -> new UserProfileDto(
             user.getId(),
             user.getUsername(),
             user.getRole(),
-            0, 0, false, // Counts/Status not strictly needed for basic search list, can optimize if needed
+            0, 0, false,
             user.isBanned(),
             user.getAboutMe(),
             user.getAvatarUrl()
@@ -0,0 +1,58 @@
+package com._blog._blog;
+
+import com._blog._blog.config.PrincipalCache;
+import com._blog._blog.event.CacheInvalidationBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Two application contexts against the same local Postgres, standing in for two nodes behind a load balancer
+class CacheInvalidationBusTests {
+
+	private ConfigurableApplicationContext nodeA;
+	private ConfigurableApplicationContext nodeB;
+
+	@BeforeEach
+	void startNodes() {
+		nodeA = new SpringApplicationBuilder(Application.class).properties("server.port=0").run();
+		nodeB = new SpringApplicationBuilder(Application.class).properties("server.port=0").run();
+	}
+
+	@AfterEach
+	void stopNodes() {
+		if (nodeB != null) nodeB.close();
+		if (nodeA != null) nodeA.close();
+	}
+
+	@Test
+	void userInvalidationOnOneNodeEvictsPrincipalOnTheOther() throws InterruptedException {
+		PrincipalCache cacheB = nodeB.getBean(PrincipalCache.class);
+		AtomicInteger loads = new AtomicInteger();
+		String username = "invalidation-test-" + System.nanoTime();
+
+		cacheB.get(username, u -> { loads.incrementAndGet(); return Optional.of(new PrincipalCache.CachedPrincipal(1L, u, "USER", false)); });
+		cacheB.get(username, u -> { loads.incrementAndGet(); return Optional.empty(); });
+		assertEquals(1, loads.get(), "second lookup should be served from cache");
+
+		nodeA.getBean(CacheInvalidationBus.class).invalidateUser(username);
+
+		long deadline = System.currentTimeMillis() + 5000;
+		boolean evicted = false;
+		while (!evicted && System.currentTimeMillis() < deadline) {
+			int before = loads.get();
+			cacheB.get(username, u -> { loads.incrementAndGet(); return Optional.empty(); });
+			evicted = loads.get() > before;
+			if (!evicted) Thread.sleep(50);
+		}
+		assertTrue(evicted, "node B should reload the principal after node A's invalidation");
+	}
+
+}
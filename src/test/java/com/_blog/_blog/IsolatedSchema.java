@@ -0,0 +1,124 @@
+package com._blog._blog;
+
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+// One application context per test class against the local Postgres, in a freshly created schema of its own, so
+// that dispatchers and schedulers of other contexts in this JVM never touch its rows. Register it as a static
+// field with @RegisterExtension; the datasource settings come from application.properties (a system property of
+// the same name wins). Outbox and fan-out polling are pushed out, tests drive them by hand.
+public class IsolatedSchema implements BeforeAllCallback, AfterAllCallback {
+
+	private static final String[] DEFAULT_ARGS = {
+			"--server.port=0",
+			"--outbox.poll-interval-ms=3600000",
+			"--notifications.fanout.poll-ms=3600000"};
+
+	private final String schema;
+	private final String[] args;
+	private Class<?>[] sources = {Application.class};
+
+	private ConfigurableApplicationContext context;
+	private JdbcTemplate jdbc;
+
+	public IsolatedSchema(String schema, String... args) {
+		this.schema = schema;
+		this.args = args;
+	}
+
+	// Extra configuration classes (test beans) to start the context with, next to Application
+	public IsolatedSchema withSources(Class<?>... extra) {
+		List<Class<?>> all = new ArrayList<>(List.of(Application.class));
+		all.addAll(Arrays.asList(extra));
+		this.sources = all.toArray(new Class<?>[0]);
+		return this;
+	}
+
+	@Override
+	public void beforeAll(ExtensionContext extensionContext) throws SQLException {
+		String url = setting("spring.datasource.url");
+		String username = setting("spring.datasource.username");
+		String password = setting("spring.datasource.password");
+		try (Connection connection = DriverManager.getConnection(url, username, password);
+				Statement statement = connection.createStatement()) {
+			statement.execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+			statement.execute("CREATE SCHEMA " + schema);
+		}
+		List<String> all = new ArrayList<>(List.of(DEFAULT_ARGS));
+		all.add("--spring.datasource.url=" + url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema);
+		all.add("--spring.datasource.username=" + username);
+		all.add("--spring.datasource.password=" + password);
+		all.addAll(Arrays.asList(args));
+		context = new SpringApplicationBuilder(sources).run(all.toArray(new String[0]));
+		jdbc = context.getBean(JdbcTemplate.class);
+	}
+
+	@Override
+	public void afterAll(ExtensionContext extensionContext) {
+		if (context != null) context.close();
+	}
+
+	public <T> T bean(Class<T> type) {
+		return context.getBean(type);
+	}
+
+	public <T> T bean(Class<T> type, String name) {
+		return context.getBean(name, type);
+	}
+
+	public JdbcTemplate jdbc() {
+		return jdbc;
+	}
+
+	public long insertUser(String prefix) {
+		return jdbc.queryForObject("INSERT INTO users (username, password, is_banned) VALUES (?, 'x', false) RETURNING id",
+				Long.class, prefix + "-" + System.nanoTime());
+	}
+
+	public String username(long userId) {
+		return jdbc.queryForObject("SELECT username FROM users WHERE id = ?", String.class, userId);
+	}
+
+	public long userId(String username) {
+		return jdbc.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, username);
+	}
+
+	public long insertPost(long userId) {
+		return insertPost(userId, false);
+	}
+
+	public long insertPost(long userId, boolean hidden) {
+		return jdbc.queryForObject("INSERT INTO posts (title, content, user_id, hidden, created_at) VALUES ('t', 'c', ?, ?, now()) RETURNING id",
+				Long.class, userId, hidden);
+	}
+
+	private static String setting(String name) {
+		String value = System.getProperty(name);
+		if (value != null) {
+			return value;
+		}
+		try {
+			Properties properties = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+			return properties.getProperty(name);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com._blog._blog.bench;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Scratch PostgreSQL schema for benchmarks that need a database
+// Tables are created in their own schema (bench.schema, default "bench") with only the columns the measured
+// statements touch, so runs never mix with application data. Connection settings come from bench.jdbc-url,
+// bench.username and bench.password and default to the values in application.properties.
+public final class BenchDatabase {
+
+	private final String url = System.getProperty("bench.jdbc-url", "jdbc:postgresql://localhost:5432/postgres");
+	private final String username = System.getProperty("bench.username", "postgres");
+	private final String password = System.getProperty("bench.password", "123456789");
+	private final String schema = System.getProperty("bench.schema", "bench");
+
+	private final ConcurrentLinkedQueue<Connection> opened = new ConcurrentLinkedQueue<>();
+	private final ConcurrentLinkedQueue<HikariDataSource> pools = new ConcurrentLinkedQueue<>();
+
+	public BenchDatabase() {
+		JdbcTemplate admin = jdbcTemplate();
+		admin.execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+		admin.execute("CREATE SCHEMA " + schema);
+	}
+
+	// A template bound to one dedicated connection; use one per benchmark thread
+	public JdbcTemplate jdbcTemplate() {
+		return new JdbcTemplate(dataSource());
+	}
+
+	// A template over a small pool, for code under test that is called from several threads at once
+	public JdbcTemplate pooledJdbcTemplate(int maxConnections) {
+		HikariDataSource pool = new HikariDataSource();
+		pool.setJdbcUrl(url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema);
+		pool.setUsername(username);
+		pool.setPassword(password);
+		pool.setMaximumPoolSize(maxConnections);
+		pools.add(pool);
+		return new JdbcTemplate(pool);
+	}
+
+	public TransactionTemplate transactionTemplate(JdbcTemplate jdbcTemplate) {
+		return new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+	}
+
+	private DataSource dataSource() {
+		try {
+			Connection connection = DriverManager.getConnection(url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema,
+					username, password);
+			opened.add(connection);
+			return new SingleConnectionDataSource(connection, true);
+		} catch (SQLException e) {
+			throw new IllegalStateException("Benchmark database unavailable at " + url, e);
+		}
+	}
+
+	public void close() {
+		try {
+			jdbcTemplate().execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+		} finally {
+			pools.forEach(HikariDataSource::close);
+			for (Connection connection : opened) {
+				try {
+					connection.close();
+				} catch (SQLException ignored) {
+					// shutting down anyway
+				}
+			}
+		}
+	}
+}
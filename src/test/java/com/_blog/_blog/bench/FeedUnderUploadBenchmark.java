@@ -0,0 +1,200 @@
+package com._blog._blog.bench;
+
+import com._blog._blog.Application;
+import com._blog._blog.dto.CreatePostRequest;
+import com._blog._blog.service.MediaStorage;
+import com._blog._blog.service.PostService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Feed latency (GET /api/posts?limit=20) while public uploads hold request threads, over HTTP against the full app
+// Tomcat has 16 request threads; 24 upload threads post to /api/auth/upload, whose storage call takes 250 ms (a
+// stand-in for Cloudinary) behind 8 media permits. With the permit timeout at 2000 ms the uploads queue on the
+// permits while holding Tomcat threads and the feed waits behind them; at 50 ms they get their 503 quickly and
+// hand the threads back. feedAlone is the same feed with no uploads. Needs PostgreSQL, see BenchDatabase.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeedUnderUploadBenchmark {
+
+	static final String BOUNDARY = "bench-boundary";
+	static final String PASSWORD = "bench-password";
+
+	@Param({ "2000", "50" })
+	public long permitTimeoutMs;
+
+	BenchDatabase database;
+	ConfigurableApplicationContext context;
+	HttpClient client;
+	String base;
+	String token;
+	byte[] uploadBody;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		database = new BenchDatabase();
+		context = new SpringApplicationBuilder(Application.class, SlowStorage.class).run(
+				"--server.port=0",
+				"--server.tomcat.threads.max=16",
+				"--spring.datasource.url=" + System.getProperty("bench.jdbc-url", "jdbc:postgresql://localhost:5432/postgres")
+						+ "?currentSchema=" + System.getProperty("bench.schema", "bench"),
+				"--spring.datasource.username=" + System.getProperty("bench.username", "postgres"),
+				"--spring.datasource.password=" + System.getProperty("bench.password", "123456789"),
+				"--media.storage=bench",
+				"--media.max-concurrent-calls=8",
+				"--media.permit-timeout-ms=" + permitTimeoutMs,
+				"--outbox.poll-interval-ms=3600000",
+				"--notifications.fanout.poll-ms=3600000",
+				"--logging.level.root=WARN");
+		base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+		client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+		ObjectMapper json = new ObjectMapper();
+		post("/api/auth/register", json.writeValueAsString(Map.of("username", "reader", "password", PASSWORD,
+				"email", "reader@bench", "firstName", "Bench", "lastName", "Reader")));
+		token = json.readTree(post("/api/auth/login", json.writeValueAsString(Map.of("username", "reader", "password", PASSWORD))))
+				.get("jwtToken").asText();
+
+		// The reader's own posts are in their home timeline
+		PostService posts = context.getBean(PostService.class);
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("reader", null, List.of()));
+		try {
+			for (int i = 0; i < 60; i++) {
+				CreatePostRequest request = new CreatePostRequest();
+				request.setTitle("post " + i);
+				request.setContent("content of post " + i);
+				posts.createPostWithMedia(request, null);
+			}
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		body.write(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"a.jpg\"\r\n"
+				+ "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+		body.write(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 16, 'J', 'F', 'I', 'F'});
+		body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+		uploadBody = body.toByteArray();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		try {
+			context.close();
+		} finally {
+			database.close();
+		}
+	}
+
+	@Benchmark
+	@Group("underUploads")
+	@GroupThreads(4)
+	public int feed() throws IOException, InterruptedException {
+		return getFeed();
+	}
+
+	@Benchmark
+	@Group("underUploads")
+	@GroupThreads(24)
+	public int upload() throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/api/auth/upload"))
+				.header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+				.POST(HttpRequest.BodyPublishers.ofByteArray(uploadBody))
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+	@Benchmark
+	@Group("feedAlone")
+	@GroupThreads(4)
+	public int feedAlone() throws IOException, InterruptedException {
+		return getFeed();
+	}
+
+	private int getFeed() throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/api/posts?limit=20"))
+				.header("Authorization", "Bearer " + token)
+				.GET()
+				.build();
+		HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("feed returned " + response.statusCode());
+		}
+		return response.body().length;
+	}
+
+	private String post(String path, String body) throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(base + path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build();
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() / 100 != 2) {
+			throw new IllegalStateException(path + " returned " + response.statusCode() + ": " + response.body());
+		}
+		return response.body();
+	}
+
+	// Storage whose uploads take as long as a Cloudinary round trip; given to the context as a source, not scanned
+	public static class SlowStorage {
+		@Bean
+		MediaStorage slowMediaStorage() {
+			return new MediaStorage() {
+				@Override
+				public Map upload(Path file, String folder, String name, String resourceType) throws IOException {
+					try {
+						Thread.sleep(250);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IOException(e);
+					}
+					return Map.of("secure_url", "https://bench/" + name, "url", "http://bench/" + name,
+							"public_id", folder + "/" + name, "resource_type", resourceType);
+				}
+
+				@Override
+				public void delete(String publicId) {
+				}
+
+				@Override
+				public Map<String, String> deleteBatch(List<String> publicIds, String resourceType) {
+					return Map.of();
+				}
+			};
+		}
+	}
+}
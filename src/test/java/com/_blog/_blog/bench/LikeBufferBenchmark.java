@@ -0,0 +1,149 @@
+package com._blog._blog.bench;
+
+import com._blog._blog.event.EventPublisher;
+import com._blog._blog.service.LikeBuffer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Concurrent likes on one hot post: synchronous row updates against the write-behind buffer
+// synchronousToggle is the path without the buffer (like row, counter update on the post row and outbox row in
+// one transaction per toggle); bufferedToggle records the intent and waits for its like_intents journal row (shared
+// with whatever other toggles queued meanwhile) while a background thread flushes every 200 ms, as the @Scheduled
+// flush does. Needs PostgreSQL, see BenchDatabase.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(16)
+public class LikeBufferBenchmark {
+
+	static final long HOT_POST = 1L;
+	static final int LIKERS = 10_000;
+
+	@State(Scope.Benchmark)
+	public static class Database {
+		BenchDatabase database;
+		LikeBuffer likeBuffer;
+		ScheduledExecutorService flusher;
+		final AtomicLong nextUser = new AtomicLong();
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			database = new BenchDatabase();
+			JdbcTemplate jdbc = database.jdbcTemplate();
+			jdbc.execute("CREATE TABLE users (id bigint PRIMARY KEY)");
+			jdbc.execute("CREATE TABLE posts (id bigint PRIMARY KEY, user_id bigint NOT NULL REFERENCES users, like_count bigint NOT NULL DEFAULT 0)");
+			jdbc.execute("CREATE TABLE post_likes (post_id bigint NOT NULL REFERENCES posts, user_id bigint NOT NULL REFERENCES users, PRIMARY KEY (post_id, user_id))");
+			jdbc.execute("CREATE TABLE outbox_events (id bigserial PRIMARY KEY, aggregate_type varchar(32) NOT NULL, aggregate_id bigint NOT NULL, "
+					+ "event_type varchar(64) NOT NULL, payload text NOT NULL, created_at timestamp NOT NULL DEFAULT now())");
+			jdbc.execute("CREATE TABLE like_intents (id bigserial PRIMARY KEY, post_id bigint NOT NULL, user_id bigint NOT NULL, "
+					+ "liked boolean NOT NULL, recorded_at timestamp NOT NULL, UNIQUE (post_id, user_id))");
+			jdbc.update("INSERT INTO users SELECT generate_series(0, ?)", LIKERS);
+			jdbc.update("INSERT INTO posts (id, user_id) VALUES (?, 0)", HOT_POST);
+
+			// The flusher and the journal writes (from toggling threads) run at the same time
+			JdbcTemplate flushJdbc = database.pooledJdbcTemplate(4);
+			likeBuffer = new LikeBuffer(flushJdbc, database.transactionTemplate(flushJdbc), new JdbcEventPublisher(flushJdbc),
+					new SimpleMeterRegistry());
+			ReflectionTestUtils.setField(likeBuffer, "batchSize", 500);
+			ReflectionTestUtils.setField(likeBuffer, "maxPending", 100_000);
+			ReflectionTestUtils.setField(likeBuffer, "flushIntervalMs", 200L);
+			ReflectionTestUtils.setField(likeBuffer, "maxBackoffMs", 30_000L);
+			flusher = Executors.newSingleThreadScheduledExecutor();
+			flusher.scheduleWithFixedDelay(likeBuffer::flush, 200, 200, TimeUnit.MILLISECONDS);
+		}
+
+		long nextUser() {
+			return 1 + nextUser.getAndIncrement() % LIKERS;
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws InterruptedException {
+			flusher.shutdown();
+			flusher.awaitTermination(10, TimeUnit.SECONDS);
+			likeBuffer.drain();
+			database.close();
+		}
+	}
+
+	// One connection per benchmark thread, as a request thread would hold from the pool
+	@State(Scope.Thread)
+	public static class Connection {
+		JdbcTemplate jdbc;
+		TransactionTemplate tx;
+
+		@Setup(Level.Trial)
+		public void setUp(Database database) {
+			jdbc = database.database.jdbcTemplate();
+			tx = database.database.transactionTemplate(jdbc);
+		}
+	}
+
+	@Benchmark
+	public void synchronousToggle(Database database, Connection connection) {
+		long userId = database.nextUser();
+		connection.tx.executeWithoutResult(status -> {
+			int delta;
+			if (connection.jdbc.update("DELETE FROM post_likes WHERE post_id = ? AND user_id = ?", HOT_POST, userId) > 0) {
+				delta = -1;
+			} else {
+				connection.jdbc.update("INSERT INTO post_likes (post_id, user_id) VALUES (?, ?)", HOT_POST, userId);
+				delta = 1;
+			}
+			connection.jdbc.update("UPDATE posts SET like_count = like_count + ? WHERE id = ?", delta, HOT_POST);
+			connection.jdbc.update("INSERT INTO outbox_events (aggregate_type, aggregate_id, event_type, payload) VALUES ('POST', ?, ?, '{}')",
+					HOT_POST, delta > 0 ? "PostLiked" : "PostUnliked");
+		});
+	}
+
+	@Benchmark
+	public boolean bufferedToggle(Database database, Connection connection) {
+		long userId = database.nextUser();
+		return database.likeBuffer.toggle(HOT_POST, userId, () -> Boolean.TRUE.equals(connection.jdbc.queryForObject(
+				"SELECT EXISTS (SELECT 1 FROM post_likes WHERE post_id = ? AND user_id = ?)", Boolean.class, HOT_POST, userId)));
+	}
+
+	// Writes the outbox row with plain JDBC; the JPA repository is not available outside the application context
+	static final class JdbcEventPublisher extends EventPublisher {
+		private final JdbcTemplate jdbc;
+		private final ObjectMapper objectMapper = new ObjectMapper();
+
+		JdbcEventPublisher(JdbcTemplate jdbc) {
+			super(null, null);
+			this.jdbc = jdbc;
+		}
+
+		@Override
+		public void publish(String aggregateType, Long aggregateId, String eventType, Map<String, Object> payload) {
+			try {
+				jdbc.update("INSERT INTO outbox_events (aggregate_type, aggregate_id, event_type, payload) VALUES (?, ?, ?, ?)",
+						aggregateType, aggregateId, eventType, objectMapper.writeValueAsString(payload));
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com._blog._blog.bench;
+
+import com._blog._blog.service.LocalMediaStorage;
+import com._blog._blog.service.MediaService;
+import com._blog._blog.service.MediaVariantService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Variant generation throughput (uploads per second) for one pipeline thread, into the local storage backend
+// Sources are synthetic gradients with noise, so the JPEG encoder does real work: a 12 MP phone photo, a 1600px
+// screenshot-sized PNG with alpha, and a 40000x300 panorama strip that exercises the decode bounds. Needs no database.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+@State(Scope.Benchmark)
+public class MediaVariantBenchmark {
+
+	@Param({ "4000x3000.jpg", "1600x1200.png", "40000x300.jpg" })
+	public String source;
+
+	Path root;
+	Path file;
+	MediaVariantService variants;
+	MediaService.StagedMedia staged;
+	long counter;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("variant-bench-");
+		String[] parts = source.split("[x.]");
+		int width = Integer.parseInt(parts[0]);
+		int height = Integer.parseInt(parts[1]);
+		boolean alpha = "png".equals(parts[2]);
+		file = root.resolve("source." + parts[2]);
+		ImageIO.write(image(width, height, alpha), alpha ? "png" : "jpeg", file.toFile());
+
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		MediaService mediaService = new MediaService(new LocalMediaStorage(root.resolve("store").toString(), "http://bench/media"), 8, registry);
+		variants = new MediaVariantService(mediaService, registry);
+		staged = new MediaService.StagedMedia(file, "image", null);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(root)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public Map<String, String> generate() {
+		return variants.generate(staged, "bench", "upload-" + counter++, Map.of());
+	}
+
+	private static BufferedImage image(int width, int height, boolean alpha) {
+		BufferedImage image = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setPaint(new GradientPaint(0, 0, new Color(30, 90, 200, 255), width, height, new Color(240, 180, 40, alpha ? 120 : 255)));
+			g.fillRect(0, 0, width, height);
+		} finally {
+			g.dispose();
+		}
+		Random random = new Random(42);
+		for (int i = 0; i < width * height / 50; i++) {
+			image.setRGB(random.nextInt(width), random.nextInt(height), random.nextInt() | 0xFF000000);
+		}
+		return image;
+	}
+}
@@ -0,0 +1,93 @@
+package com._blog._blog.bench;
+
+import com._blog._blog.service.PostSearchService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Post search latency (p50/p99 from SampleTime) over a synthetic corpus
+// Posts get 8-word titles and 60-word bodies drawn from a 5000-word vocabulary with a skewed distribution, so "w0"
+// matches most posts, "w1 w2" a large share and "w4000" about 0.5% (1k of 200k, 26k of 5M). maxCandidates=2147483647
+// ranks every match, as the search did before the candidate cap. Each invocation reads three consecutive pages
+// through the keyset. Targets at 5M posts (-p corpus=5000000): per page p50 <= 50 ms and p99 <= 150 ms, i.e. three
+// pages within 150 ms / 450 ms. Measured at 5M with the shipped cap of 2000 (1 CPU, 6 GB), three pages p50 / p99:
+// w0 69 / 112 ms and "w1 w2" 150 / 243 ms meet them; w4000 752 / 817 ms does not, since the bitmap scan still
+// visits every one of its 26k scattered rows before the newest 2000 are kept. Needs PostgreSQL, see BenchDatabase.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PostSearchBenchmark {
+
+	static final int PAGE = 20;
+
+	@Param("200000")
+	int corpus;
+
+	@Param({ "w0", "w1 w2", "w4000" })
+	String query;
+
+	@Param({ "2000", "2147483647" })
+	int maxCandidates;
+
+	BenchDatabase database;
+	PostSearchService search;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		database = new BenchDatabase();
+		JdbcTemplate jdbc = database.jdbcTemplate();
+		jdbc.execute("CREATE TABLE posts (id bigint PRIMARY KEY, user_id bigint NOT NULL, hidden boolean NOT NULL, "
+				+ "title varchar(255) NOT NULL, content text NOT NULL)");
+		jdbc.execute("CREATE FUNCTION bench_words(n int) RETURNS text LANGUAGE sql VOLATILE AS "
+				+ "$$ SELECT string_agg('w' || floor(5000 * power(random(), 3))::int, ' ') FROM generate_series(1, n) $$");
+
+		search = new PostSearchService(jdbc, new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(search, "language", "simple");
+		ReflectionTestUtils.setField(search, "maxCandidates", maxCandidates);
+		ReflectionTestUtils.setField(search, "rebuildBatchSize", 5000);
+		search.installSearchColumn();
+
+		jdbc.update("INSERT INTO posts SELECT g, g % 1000, g % 50 = 0, bench_words(8), bench_words(60) "
+				+ "FROM generate_series(1, ?) g", corpus);
+		jdbc.execute("VACUUM ANALYZE posts");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		database.close();
+	}
+
+	@Benchmark
+	public List<PostSearchService.Hit> threePages() {
+		PostSearchService.Position position = PostSearchService.Position.decode(null);
+		List<PostSearchService.Hit> hits = List.of();
+		for (int page = 0; page < 3; page++) {
+			hits = search.search(query, 7L, false, position, PAGE);
+			if (hits.size() < PAGE) {
+				break;
+			}
+			PostSearchService.Hit last = hits.get(hits.size() - 1);
+			position = new PostSearchService.Position(last.rank(), last.id());
+		}
+		return hits;
+	}
+}
@@ -0,0 +1,102 @@
+package com._blog._blog.bench;
+
+import com._blog._blog.service.TrendingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Trending score updates under concurrent likes: one decayed upsert per like against the in-memory adders
+// rowUpsert is what scoring without TrendingService would cost (the same decayed upsert as its flush, once per
+// like); recordLikes adds to the post's DoubleAdder while a background thread flushes every 5 s, as the
+// @Scheduled flush does. posts=1 puts every like on one hot post, posts=1000 spreads them evenly. Needs
+// PostgreSQL, see BenchDatabase.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(16)
+public class TrendingBenchmark {
+
+	static final String UPSERT = "INSERT INTO post_trending (post_id, score, score_at) VALUES (?, ?, now()) "
+			+ "ON CONFLICT (post_id) DO UPDATE SET "
+			+ "score = post_trending.score * power(2, -extract(epoch FROM (now() - post_trending.score_at)) / 21600) + EXCLUDED.score, "
+			+ "score_at = now()";
+
+	@State(Scope.Benchmark)
+	public static class Database {
+		@Param({ "1", "1000" })
+		public int posts;
+
+		BenchDatabase database;
+		TrendingService trending;
+		ScheduledExecutorService flusher;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			database = new BenchDatabase();
+			JdbcTemplate jdbc = database.jdbcTemplate();
+			jdbc.execute("CREATE TABLE post_trending (post_id bigint PRIMARY KEY, score double precision NOT NULL, "
+					+ "score_at timestamp NOT NULL)");
+
+			trending = new TrendingService(database.jdbcTemplate(), new SimpleMeterRegistry());
+			ReflectionTestUtils.setField(trending, "halfLifeHours", 6.0);
+			ReflectionTestUtils.setField(trending, "likeWeight", 3.0);
+			ReflectionTestUtils.setField(trending, "maxPendingPosts", 50_000);
+			flusher = Executors.newSingleThreadScheduledExecutor();
+			flusher.scheduleWithFixedDelay(trending::flush, 5, 5, TimeUnit.SECONDS);
+		}
+
+		long nextPost() {
+			return 1 + ThreadLocalRandom.current().nextInt(posts);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws InterruptedException {
+			flusher.shutdown();
+			flusher.awaitTermination(10, TimeUnit.SECONDS);
+			trending.flush();
+			database.close();
+		}
+	}
+
+	// One connection per benchmark thread, as a consumer thread would hold from the pool
+	@State(Scope.Thread)
+	public static class Connection {
+		JdbcTemplate jdbc;
+
+		@Setup(Level.Trial)
+		public void setUp(Database database) {
+			jdbc = database.database.jdbcTemplate();
+		}
+	}
+
+	@Benchmark
+	public int rowUpsert(Database database, Connection connection) {
+		return connection.jdbc.update(UPSERT, database.nextPost(), 3.0);
+	}
+
+	@Benchmark
+	public void recordLikes(Database database) {
+		database.trending.recordLikes(database.nextPost(), 1);
+	}
+}
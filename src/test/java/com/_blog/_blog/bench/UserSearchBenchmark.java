@@ -0,0 +1,96 @@
+package com._blog._blog.bench;
+
+import com._blog._blog.event.CacheInvalidationBus;
+import com._blog._blog.event.PgNotifyBus;
+import com._blog._blog.service.UserSearchIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Navbar search latency (p50/p99 from SampleTime): the in-memory index against the query it replaced
+// Usernames are two syllables from a 50-syllable list plus a number, so "k" and "ka" are common prefixes, "mira"
+// a common substring and "zora17" a single user; half the users also have a two-word nickname. databaseQuery
+// is what findByUsernameContainingIgnoreCase(query, PageRequest.of(0, 10)) compiles to. The index is built once
+// from the same table with the production loader. Needs PostgreSQL, see BenchDatabase.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class UserSearchBenchmark {
+
+	static final int LIMIT = 10;
+
+	static final List<String> SYLLABLES = List.of(
+			"ka", "lo", "mi", "ra", "zo", "be", "nu", "ti", "sa", "de",
+			"fi", "go", "ha", "je", "ku", "la", "mo", "ne", "pi", "qu",
+			"ri", "su", "ta", "vo", "wa", "xe", "yo", "za", "bri", "cla",
+			"dra", "fle", "gri", "kro", "lin", "mar", "nor", "pel", "ros", "sten",
+			"tor", "val", "wen", "yan", "zel", "ash", "eli", "ivo", "oma", "uri");
+
+	@Param("1000000")
+	public int users;
+
+	@Param({ "k", "ka", "mira", "zora17" })
+	public String query;
+
+	BenchDatabase database;
+	JdbcTemplate jdbc;
+	UserSearchIndex index;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		database = new BenchDatabase();
+		jdbc = database.jdbcTemplate();
+		jdbc.execute("CREATE TABLE users (id bigint PRIMARY KEY, username varchar(255) NOT NULL UNIQUE, nickname varchar(255), "
+				+ "role varchar(255), is_banned boolean NOT NULL DEFAULT false, avatar_url varchar(255))");
+		String syllables = SYLLABLES.stream().map(s -> "'" + s + "'").collect(Collectors.joining(",", "ARRAY[", "]"));
+		int n = SYLLABLES.size();
+		// g -> (g mod n, g / n mod n, g / n^2) is one-to-one, so usernames are unique
+		jdbc.update("INSERT INTO users (id, username, nickname, role) SELECT g, "
+				+ "s[1 + g % " + n + "] || s[1 + g / " + n + " % " + n + "] || (g / " + n * n + ")::text, "
+				+ "CASE WHEN g % 2 = 0 THEN initcap(s[1 + g * 7 % " + n + "] || s[1 + g / 3 % " + n + "]) || ' ' "
+				+ "|| initcap(s[1 + g / 11 % " + n + "] || s[1 + g / 17 % " + n + "]) END, 'USER' "
+				+ "FROM generate_series(1, ?) g, (SELECT " + syllables + " s) v", users);
+		jdbc.execute("ANALYZE users");
+
+		index = new UserSearchIndex(jdbc, new DataSourceTransactionManager(jdbc.getDataSource()),
+				new CacheInvalidationBus(new PgNotifyBus(jdbc)), new SimpleMeterRegistry());
+		index.refresh();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		database.close();
+	}
+
+	@Benchmark
+	public List<UserSearchIndex.Hit> index() {
+		return index.search(query, LIMIT);
+	}
+
+	@Benchmark
+	public List<Map<String, Object>> databaseQuery() {
+		return jdbc.queryForList("SELECT id, username, nickname, role, is_banned, avatar_url FROM users "
+				+ "WHERE upper(username) LIKE upper(?) ESCAPE '\\' OFFSET 0 ROWS FETCH FIRST ? ROWS ONLY", "%" + query + "%", LIMIT);
+	}
+}
@@ -0,0 +1,41 @@
+package com._blog._blog.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Range header parsing for local media; {start, end} inclusive, empty when unsatisfiable, null to send everything
+class MediaFileControllerTests {
+
+	@Test
+	void parsesSingleRanges() {
+		assertArrayEquals(new long[] { 0, 99 }, MediaFileController.parseRange("bytes=0-99", 1000));
+		assertArrayEquals(new long[] { 500, 999 }, MediaFileController.parseRange("bytes=500-", 1000));
+		assertArrayEquals(new long[] { 900, 999 }, MediaFileController.parseRange("bytes=900-5000", 1000));
+		assertArrayEquals(new long[] { 7, 7 }, MediaFileController.parseRange("bytes= 7 - 7 ", 1000));
+	}
+
+	@Test
+	void parsesSuffixRanges() {
+		assertArrayEquals(new long[] { 900, 999 }, MediaFileController.parseRange("bytes=-100", 1000));
+		assertArrayEquals(new long[] { 0, 999 }, MediaFileController.parseRange("bytes=-5000", 1000));
+		assertArrayEquals(new long[0], MediaFileController.parseRange("bytes=-0", 1000));
+		assertArrayEquals(new long[0], MediaFileController.parseRange("bytes=-10", 0));
+	}
+
+	@Test
+	void rejectsRangesPastTheEnd() {
+		assertArrayEquals(new long[0], MediaFileController.parseRange("bytes=1000-", 1000));
+		assertArrayEquals(new long[0], MediaFileController.parseRange("bytes=2000-3000", 1000));
+	}
+
+	@Test
+	void ignoresWhatItDoesNotServe() {
+		assertNull(MediaFileController.parseRange("items=0-10", 1000));
+		assertNull(MediaFileController.parseRange("bytes=0-10,20-30", 1000));
+		assertNull(MediaFileController.parseRange("bytes=10", 1000));
+		assertNull(MediaFileController.parseRange("bytes=50-10", 1000));
+		assertNull(MediaFileController.parseRange("bytes=a-b", 1000));
+	}
+}
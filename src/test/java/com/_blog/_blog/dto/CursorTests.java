@@ -0,0 +1,85 @@
+package com._blog._blog.dto;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Cursor tokens and page assembly; keyset queries themselves are exercised by the database-backed tests
+class CursorTests {
+
+	@Test
+	void tokensRoundTripWithFullPrecision() {
+		LocalDateTime at = LocalDateTime.of(2024, 2, 29, 23, 59, 7, 123_456_789);
+		Cursor cursor = Cursor.decode(Cursor.of(at, 42L).encode());
+		assertEquals(at, cursor.getCreatedAt());
+		assertEquals(42L, cursor.getId());
+
+		// Whole seconds and whole minutes print shorter; they must still parse back
+		LocalDateTime minute = LocalDateTime.of(2024, 1, 1, 10, 30);
+		assertEquals(minute, Cursor.decode(Cursor.of(minute, 1L).encode()).getCreatedAt());
+	}
+
+	@Test
+	void tokensAreUrlSafe() {
+		String token = Cursor.of(LocalDateTime.of(2024, 5, 5, 5, 5, 5, 5), Long.MAX_VALUE).encode();
+		assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+	}
+
+	@Test
+	void rawPairsAreAccepted() {
+		Cursor cursor = Cursor.decode("2024-03-01T12:00:00,17");
+		assertEquals(LocalDateTime.of(2024, 3, 1, 12, 0), cursor.getCreatedAt());
+		assertEquals(17L, cursor.getId());
+	}
+
+	@Test
+	void missingTokensStartAtTheRightEnd() {
+		Cursor newest = Cursor.decode(null);
+		assertEquals(Long.MAX_VALUE, newest.getId());
+		assertTrue(newest.getCreatedAt().isAfter(LocalDateTime.now().plusYears(1000)));
+		assertEquals(newest.getCreatedAt(), Cursor.decode(" ").getCreatedAt());
+
+		Cursor oldest = Cursor.decodeAfter("");
+		assertEquals(0L, oldest.getId());
+		assertTrue(oldest.getCreatedAt().isBefore(LocalDateTime.of(2000, 1, 1, 0, 0)));
+	}
+
+	@Test
+	void malformedTokensAreBadRequests() {
+		for (String token : List.of("garbage", "2024-03-01T12:00:00", "2024-03-01T12:00:00,x", "yesterday,5", "bm90IGEgY3Vyc29y")) {
+			ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> Cursor.decode(token), token);
+			assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+		}
+	}
+
+	@Test
+	void pagesCarryTheLastItemsCursor() {
+		LocalDateTime at = LocalDateTime.of(2024, 6, 1, 8, 0);
+		CursorPage<Long> page = CursorPage.of(List.of(3L, 2L), true, id -> Cursor.of(at.minusMinutes(id), id));
+		assertTrue(page.isHasNext());
+		Cursor next = Cursor.decode(page.getNextCursor());
+		assertEquals(2L, next.getId());
+		assertEquals(at.minusMinutes(2), next.getCreatedAt());
+
+		CursorPage<Long> last = CursorPage.of(List.of(1L), false, id -> Cursor.of(at, id));
+		assertFalse(last.isHasNext());
+		assertNull(last.getNextCursor());
+	}
+
+	@Test
+	void limitsAreClamped() {
+		assertEquals(CursorPage.DEFAULT_LIMIT, CursorPage.clampLimit(0));
+		assertEquals(CursorPage.DEFAULT_LIMIT, CursorPage.clampLimit(-3));
+		assertEquals(7, CursorPage.clampLimit(7));
+		assertEquals(CursorPage.MAX_LIMIT, CursorPage.clampLimit(1000));
+	}
+}
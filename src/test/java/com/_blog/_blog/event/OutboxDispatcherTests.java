@@ -0,0 +1,216 @@
+package com._blog._blog.event;
+
+import com._blog._blog.IsolatedSchema;
+import com._blog._blog.model.OutboxEvent;
+import com._blog._blog.service.NotificationFanoutService;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Outbox leasing, backoff and redelivery against the local Postgres, in a schema of its own so that dispatchers of
+// other contexts in this JVM never lease these events. Scheduled polling is pushed out; each test polls by hand.
+class OutboxDispatcherTests {
+
+	@RegisterExtension
+	static final IsolatedSchema node = new IsolatedSchema("outbox_test", "--outbox.batch-size=5").withSources(RecorderConfig.class);
+
+	private static OutboxDispatcher dispatcher;
+	private static JdbcTemplate jdbc;
+	private static RecordingSubscriber recorder;
+
+	@BeforeAll
+	static void beans() {
+		dispatcher = node.bean(OutboxDispatcher.class);
+		jdbc = node.jdbc();
+		recorder = node.bean(RecordingSubscriber.class);
+	}
+
+	@Test
+	void dueEventIsDeliveredOnceAndRedeliveryIsIgnored() throws InterruptedException {
+		long id = insertEvent(1001, 0);
+
+		pollUntil(() -> "DONE".equals(status(id)));
+		assertEquals(1, recorder.count(id));
+
+		// A lease that expired after the subscriber committed: the event comes round again
+		jdbc.update("UPDATE outbox_events SET status = 'PENDING', available_at = now() WHERE id = ?", id);
+		pollUntil(() -> "DONE".equals(status(id)));
+		assertEquals(1, recorder.count(id), "processed marker must suppress the second delivery");
+	}
+
+	@Test
+	void failedEventBacksOffAndHoldsBackOnlyItsAggregate() throws InterruptedException {
+		// Not due until the failure is armed, so a scheduled poll racing the test cannot deliver it first
+		long first = insertEvent(2001, 3600);
+		long second = insertEvent(2001, 0);
+		long other = insertEvent(2002, 0);
+		recorder.failOnce.add(first);
+		jdbc.update("UPDATE outbox_events SET available_at = now() WHERE id = ?", first);
+
+		pollUntil(() -> "DONE".equals(status(other)));
+		pollUntil(() -> attempts(first) == 1);
+		assertEquals("PENDING", status(first));
+		assertTrue(jdbc.queryForObject("SELECT available_at > now() FROM outbox_events WHERE id = ?", Boolean.class, first));
+
+		// Neither the failed event nor the one queued behind it is picked up before the backoff ends
+		for (int i = 0; i < 5; i++) {
+			dispatcher.poll();
+			Thread.sleep(50);
+		}
+		assertEquals(0, recorder.count(first));
+		assertEquals(0, recorder.count(second));
+
+		jdbc.update("UPDATE outbox_events SET available_at = now() WHERE id = ?", first);
+		pollUntil(() -> "DONE".equals(status(second)));
+		assertTrue(recorder.handled.indexOf(first) < recorder.handled.indexOf(second), "aggregate order must hold");
+	}
+
+	@Test
+	void eventsStillBackingOffDoNotStarveDueOnes() throws InterruptedException {
+		// More events waiting out a backoff than a poll leases (outbox.batch-size=5)
+		for (int aggregate = 3001; aggregate <= 3010; aggregate++) {
+			insertEvent(aggregate, 3600);
+		}
+		long due = insertEvent(3011, 0);
+
+		pollUntil(() -> "DONE".equals(status(due)));
+		assertEquals(1, recorder.count(due));
+	}
+
+	@Test
+	void leasedEventIsNotLeasedAgainWhileInFlight() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		recorder.gate = release;
+		long id = insertEvent(4001, 0);
+		try {
+			pollUntil(() -> recorder.entered.contains(id));
+			for (int i = 0; i < 5; i++) {
+				dispatcher.poll();
+				Thread.sleep(50);
+			}
+			assertTrue(jdbc.queryForObject("SELECT available_at > now() FROM outbox_events WHERE id = ?", Boolean.class, id),
+					"in-flight event must stay leased");
+		} finally {
+			release.countDown();
+		}
+		pollUntil(() -> "DONE".equals(status(id)));
+		assertEquals(1, recorder.count(id));
+		recorder.gate = null;
+	}
+
+	@Test
+	void postFanOutResumesFromItsCursorAndFinishes() throws InterruptedException {
+		long author = node.insertUser("fanout-author");
+		long first = node.insertUser("fanout-a");
+		long second = node.insertUser("fanout-b");
+		long third = node.insertUser("fanout-c");
+		for (long follower : List.of(first, second, third)) {
+			jdbc.update("INSERT INTO follows (follower_id, following_id, created_at) VALUES (?, ?, now())", follower, author);
+		}
+		// A worker wrote the first follower's notification and then crashed
+		long job = jdbc.queryForObject("INSERT INTO notification_fanout_jobs " +
+				"(post_id, author_id, message, last_follower_id, status, attempts, next_attempt_at, created_at) " +
+				"VALUES (77, ?, 'new post', ?, 'PENDING', 1, now(), now()) RETURNING id", Long.class, author, first);
+
+		NotificationFanoutService fanout = node.bean(NotificationFanoutService.class);
+		long deadline = System.currentTimeMillis() + 10000;
+		while (jobExists(job) && System.currentTimeMillis() < deadline) {
+			fanout.drain();
+			Thread.sleep(50);
+		}
+		assertFalse(jobExists(job), "finished job must be removed");
+		assertEquals(List.of(second, third), jdbc.queryForList(
+				"SELECT recipient_id FROM notifications WHERE actor_id = ? AND related_id = 77 ORDER BY recipient_id", Long.class, author));
+	}
+
+	private static long insertEvent(long aggregateId, int delaySeconds) {
+		return jdbc.queryForObject("INSERT INTO outbox_events " +
+				"(aggregate_type, aggregate_id, event_type, payload, status, attempts, available_at, created_at) " +
+				"VALUES ('TEST', ?, 'TestEvent', '{}', 'PENDING', 0, now() + make_interval(secs => ?), now()) RETURNING id",
+				Long.class, aggregateId, delaySeconds);
+	}
+
+	private static boolean jobExists(long id) {
+		return jdbc.queryForObject("SELECT EXISTS (SELECT 1 FROM notification_fanout_jobs WHERE id = ?)", Boolean.class, id);
+	}
+
+	private static String status(long id) {
+		return jdbc.queryForObject("SELECT status FROM outbox_events WHERE id = ?", String.class, id);
+	}
+
+	private static int attempts(long id) {
+		return jdbc.queryForObject("SELECT attempts FROM outbox_events WHERE id = ?", Integer.class, id);
+	}
+
+	// Polls by hand until the condition holds; the dispatcher lock may be held by a dispatcher of another context
+	private static void pollUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "condition not reached in time");
+			dispatcher.poll();
+			Thread.sleep(50);
+		}
+	}
+
+	@Configuration
+	static class RecorderConfig {
+		@Bean
+		RecordingSubscriber recordingSubscriber() {
+			return new RecordingSubscriber();
+		}
+	}
+
+	static class RecordingSubscriber implements EventSubscriber {
+		final List<Long> handled = new CopyOnWriteArrayList<>();
+		final Set<Long> entered = ConcurrentHashMap.newKeySet();
+		final Set<Long> failOnce = ConcurrentHashMap.newKeySet();
+		volatile CountDownLatch gate;
+
+		@Override
+		public String name() {
+			return "test-recorder";
+		}
+
+		@Override
+		public boolean supports(String eventType) {
+			return "TestEvent".equals(eventType);
+		}
+
+		@Override
+		public void handle(OutboxEvent event, JsonNode payload) {
+			entered.add(event.getId());
+			CountDownLatch current = gate;
+			if (current != null) {
+				try {
+					current.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (failOnce.remove(event.getId())) {
+				throw new IllegalStateException("induced failure");
+			}
+			handled.add(event.getId());
+		}
+
+		long count(long id) {
+			return handled.stream().filter(h -> h == id).count();
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com._blog._blog.service;
+
+import com._blog._blog.IsolatedSchema;
+import com._blog._blog.repository.UserRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Avatar upload version guard against the local Postgres, in a schema of its own
+class AvatarUploadTests {
+
+	@RegisterExtension
+	static final IsolatedSchema node = new IsolatedSchema("avatar_upload_test");
+
+	private static JdbcTemplate jdbc;
+	private static UserRepository users;
+	private static TransactionTemplate tx;
+
+	@BeforeAll
+	static void beans() {
+		jdbc = node.jdbc();
+		users = node.bean(UserRepository.class);
+		tx = node.bean(TransactionTemplate.class);
+	}
+
+	@Test
+	void olderUploadFinishingLateDoesNotReplaceTheNewerAvatar() {
+		long id = node.insertUser("avatar");
+
+		tx.executeWithoutResult(s -> users.beginAvatarUpload(id, "avatars/avatar_1"));
+		tx.executeWithoutResult(s -> users.beginAvatarUpload(id, "avatars/avatar_2"));
+
+		assertEquals(1, (int) tx.execute(s -> users.completeAvatar(id, "avatars/avatar_2", "https://cdn/avatar_2")));
+		assertEquals(0, (int) tx.execute(s -> users.completeAvatar(id, "avatars/avatar_1", "https://cdn/avatar_1")));
+		assertEquals(0, (int) tx.execute(s -> users.failAvatar(id, "avatars/avatar_1")));
+
+		Map<String, Object> row = jdbc.queryForMap("SELECT avatar_url, avatar_status, avatar_pending_id FROM users WHERE id = ?", id);
+		assertEquals("https://cdn/avatar_2", row.get("avatar_url"));
+		assertEquals("READY", row.get("avatar_status"));
+		assertNull(row.get("avatar_pending_id"));
+	}
+}
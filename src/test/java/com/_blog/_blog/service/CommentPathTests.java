@@ -0,0 +1,111 @@
+package com._blog._blog.service;
+
+import com._blog._blog.IsolatedSchema;
+import com._blog._blog.dto.CreateCommentRequest;
+import com._blog._blog.model.Comment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Comment threads whose rows predate the path backfill, against the local Postgres in a schema of its own
+class CommentPathTests {
+
+	@RegisterExtension
+	static final IsolatedSchema node = new IsolatedSchema("comment_path_test");
+
+	private static JdbcTemplate jdbc;
+	private static CommentService comments;
+
+	@BeforeAll
+	static void beans() {
+		jdbc = node.jdbc();
+		comments = node.bean(CommentService.class);
+	}
+
+	@AfterEach
+	void clearAuthentication() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void replyToARootWithoutPathGetsAFullPath() {
+		String username = node.username(node.insertUser("path-user"));
+		long post = node.insertPost(node.userId(username));
+		long root = insertLegacyComment(post, node.userId(username));
+
+		CreateCommentRequest request = new CreateCommentRequest();
+		request.setPostId(post);
+		request.setParentId(root);
+		request.setContent("reply");
+		long reply = comments.addCommentWithMedia(request, null, username).getId();
+
+		assertEquals(Comment.pathSegment(root), path(root));
+		assertEquals(Comment.pathSegment(root) + Comment.pathSegment(reply), path(reply));
+	}
+
+	@Test
+	void deletingACommentWithoutPathDeletesItAndAnnouncesIt() {
+		String username = node.username(node.insertUser("path-user"));
+		long post = node.insertPost(node.userId(username));
+		long root = insertLegacyComment(post, node.userId(username));
+		authenticate(username);
+
+		comments.deleteComment(root, username);
+
+		assertEquals(0L, jdbc.queryForObject("SELECT count(*) FROM comments WHERE id = ?", Long.class, root));
+		assertEquals(List.of(root + ":1"), jdbc.queryForList("SELECT (payload::jsonb ->> 'commentId') || ':' || (payload::jsonb ->> 'count') " +
+				"FROM outbox_events WHERE event_type = 'CommentDeleted' AND aggregate_id = ?", String.class, post));
+	}
+
+	@Test
+	void backfillRepairsNullPrefixedReplies() {
+		long user = node.insertUser("path-user");
+		long post = node.insertPost(user);
+		long root = insertLegacyComment(post, user);
+		long reply = insertComment(post, user, root, 1, null);
+		long nested = insertComment(post, user, reply, 2, null);
+		// What replies got while their root had no path
+		jdbc.update("UPDATE comments SET path = ? WHERE id = ?", "null" + Comment.pathSegment(reply), reply);
+		jdbc.update("UPDATE comments SET path = ? WHERE id = ?", "null" + Comment.pathSegment(reply) + Comment.pathSegment(nested), nested);
+
+		comments.backfillThreadPaths();
+
+		assertEquals(Comment.pathSegment(root), path(root));
+		assertEquals(Comment.pathSegment(root) + Comment.pathSegment(reply), path(reply));
+		assertEquals(Comment.pathSegment(root) + Comment.pathSegment(reply) + Comment.pathSegment(nested), path(nested));
+	}
+
+	@Test
+	void subtreePrefixIndexIsInstalled() {
+		String definition = jdbc.queryForObject("SELECT indexdef FROM pg_indexes WHERE schemaname = current_schema() " +
+				"AND indexname = 'idx_comments_post_path'", String.class);
+		assertTrue(definition.contains("(post_id, path text_pattern_ops)"), definition);
+	}
+
+	private static void authenticate(String username) {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+	}
+
+	private static String path(long commentId) {
+		return jdbc.queryForObject("SELECT path FROM comments WHERE id = ?", String.class, commentId);
+	}
+
+	// A comment written before threading: no path
+	private static long insertLegacyComment(long postId, long userId) {
+		return insertComment(postId, userId, null, 0, null);
+	}
+
+	private static long insertComment(long postId, long userId, Long parentId, int depth, String path) {
+		return jdbc.queryForObject("INSERT INTO comments (content, created_at, post_id, user_id, parent_id, depth, path) " +
+				"VALUES ('c', now(), ?, ?, ?, ?, ?) RETURNING id", Long.class, postId, userId, parentId, depth, path);
+	}
+}
@@ -0,0 +1,138 @@
+package com._blog._blog.service;
+
+import com._blog._blog.IsolatedSchema;
+import com._blog._blog.event.CacheInvalidationBus;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Set-based post and user removal against the local Postgres, in a schema of its own: every table that references
+// the removed rows is populated first, so a statement out of foreign key order fails the test
+class ContentDeletionTests {
+
+	@RegisterExtension
+	static final IsolatedSchema node = new IsolatedSchema("content_deletion_test", "--likes.write-behind.flush-interval-ms=3600000");
+
+	private static JdbcTemplate jdbc;
+	private static ContentDeletionService deletion;
+	private static LikeBuffer likeBuffer;
+
+	@BeforeAll
+	static void beans() {
+		jdbc = node.jdbc();
+		deletion = node.bean(ContentDeletionService.class);
+		likeBuffer = node.bean(LikeBuffer.class);
+	}
+
+	@Test
+	void deletingAUserClearsEveryReferenceInForeignKeyOrder() {
+		long doomed = node.insertUser("del-doomed");
+		long owner = node.insertUser("del-owner");
+		long other = node.insertUser("del-other");
+		long ownPost = node.insertPost(doomed);
+		long otherPost = node.insertPost(owner);
+
+		// The doomed user's comment on another post, with someone else's reply under it
+		long comment = insertComment(otherPost, doomed, null);
+		insertComment(otherPost, owner, comment);
+		insertComment(ownPost, other, null);
+		jdbc.update("INSERT INTO post_likes (post_id, user_id) VALUES (?, ?), (?, ?)", otherPost, doomed, ownPost, other);
+		jdbc.update("UPDATE posts SET like_count = 1 WHERE id IN (?, ?)", otherPost, ownPost);
+		jdbc.update("INSERT INTO follows (follower_id, following_id, created_at) VALUES (?, ?, now()), (?, ?, now())",
+				doomed, owner, other, doomed);
+		jdbc.update("INSERT INTO reports (reason, timestamp, post_id, reported_user_id, reporter_id) VALUES ('spam', now(), ?, ?, ?)",
+				ownPost, doomed, other);
+		jdbc.update("INSERT INTO timeline_entries (created_at, author_id, owner_id, post_id) VALUES (now(), ?, ?, ?)", doomed, other, ownPost);
+		jdbc.update("INSERT INTO post_trending (post_id, score, score_at) VALUES (?, 1, now())", ownPost);
+		// A like group where the doomed user was an earlier actor: the group stays, the user leaves its lists
+		long group = jdbc.queryForObject("INSERT INTO notifications (recipient_id, actor_id, message, type, related_id, is_read, " +
+				"created_at, updated_at, group_key, actor_count, recent_actor_ids) VALUES (?, ?, 'liked', 'LIKE', ?, false, now(), now(), " +
+				"'LIKE:' || ?, 2, ARRAY[?, ?]::bigint[]) RETURNING id", Long.class, owner, other, otherPost, otherPost, other, doomed);
+		jdbc.update("INSERT INTO notification_group_actors (notification_id, actor_id) VALUES (?, ?), (?, ?)", group, other, group, doomed);
+		likeBuffer.toggle(otherPost, doomed, () -> true);
+		likeBuffer.toggle(ownPost, owner, () -> false);
+
+		deletion.deleteUser(doomed, node.username(doomed));
+
+		assertEquals(0, count("SELECT count(*) FROM users WHERE id = ?", doomed));
+		assertEquals(0, count("SELECT count(*) FROM posts WHERE user_id = ?", doomed));
+		assertEquals(0, count("SELECT count(*) FROM comments WHERE post_id = ?", otherPost), "reply subtree goes too");
+		assertEquals(0, count("SELECT count(*) FROM post_likes WHERE user_id = ? OR post_id = ?", doomed, ownPost));
+		assertEquals(0, count("SELECT count(*) FROM follows WHERE follower_id = ? OR following_id = ?", doomed, doomed));
+		assertEquals(0, count("SELECT count(*) FROM notification_group_actors WHERE actor_id = ?", doomed));
+		assertEquals(List.of(other), recentActors(group));
+		assertEquals(0L, jdbc.queryForObject("SELECT like_count FROM posts WHERE id = ?", Long.class, otherPost));
+		assertNull(likeBuffer.pendingLikeState(otherPost, doomed));
+		assertNull(likeBuffer.pendingLikeState(ownPost, owner));
+	}
+
+	@Test
+	void deletingAPostDropsItsBufferedLikes() {
+		long author = node.insertUser("del-author");
+		long liker = node.insertUser("del-liker");
+		long post = node.insertPost(author);
+		long kept = node.insertPost(author);
+		insertComment(post, liker, null);
+		jdbc.update("INSERT INTO post_likes (post_id, user_id) VALUES (?, ?)", post, author);
+		likeBuffer.toggle(post, liker, () -> false);
+		likeBuffer.toggle(kept, liker, () -> false);
+
+		deletion.deletePost(post);
+
+		assertEquals(0, count("SELECT count(*) FROM posts WHERE id = ?", post));
+		assertNull(likeBuffer.pendingLikeState(post, liker));
+		assertEquals(Boolean.TRUE, likeBuffer.pendingLikeState(kept, liker), "other posts keep their intents");
+	}
+
+	@Test
+	void deletingAUserInvalidatesItsPostsAndFollowEdges() throws InterruptedException {
+		long doomed = node.insertUser("del-doomed");
+		long follower = node.insertUser("del-follower");
+		long post = node.insertPost(doomed);
+		jdbc.update("INSERT INTO follows (follower_id, following_id, created_at) VALUES (?, ?, now())", follower, doomed);
+		List<String> evicted = new CopyOnWriteArrayList<>();
+		CacheInvalidationBus bus = node.bean(CacheInvalidationBus.class);
+		bus.register(CacheInvalidationBus.Type.POST, key -> evicted.add("POST:" + key), () -> {});
+		bus.register(CacheInvalidationBus.Type.FOLLOW, key -> evicted.add("FOLLOW:" + key), () -> {});
+
+		deletion.deleteUser(doomed, node.username(doomed));
+
+		// Evicted on this node right away, then again when the NOTIFY sent with the commit comes back
+		List<String> expected = List.of("POST:" + post, "FOLLOW:" + follower + ":" + doomed);
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!expected.stream().allMatch(key -> Collections.frequency(evicted, key) == 2)) {
+			assertTrue(System.currentTimeMillis() < deadline, "invalidations not delivered: " + evicted);
+			Thread.sleep(50);
+		}
+	}
+
+	private static List<Long> recentActors(long notificationId) {
+		return jdbc.query("SELECT recent_actor_ids FROM notifications WHERE id = ?", (rs, i) -> {
+			Array array = rs.getArray(1);
+			return Arrays.asList((Long[]) array.getArray());
+		}, notificationId).get(0);
+	}
+
+	private static long count(String sql, Object... args) {
+		return jdbc.queryForObject(sql, Long.class, args);
+	}
+
+	private static long insertComment(long postId, long userId, Long parentId) {
+		long id = jdbc.queryForObject("INSERT INTO comments (content, created_at, post_id, user_id, parent_id, depth) " +
+				"VALUES ('c', now(), ?, ?, ?, ?) RETURNING id", Long.class, postId, userId, parentId, parentId == null ? 0 : 1);
+		String parentPath = parentId == null ? "" : jdbc.queryForObject("SELECT path FROM comments WHERE id = ?", String.class, parentId);
+		jdbc.update("UPDATE comments SET path = ? || lpad(id::text, 19, '0') || '/' WHERE id = ?", parentPath, id);
+		return id;
+	}
+}
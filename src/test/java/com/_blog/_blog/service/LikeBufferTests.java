@@ -0,0 +1,189 @@
+package com._blog._blog.service;
+
+import com._blog._blog.event.EventPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// In-memory behaviour of the write-behind buffer; the database side is mocked
+class LikeBufferTests {
+
+	private static final String INSERT = "INSERT INTO post_likes";
+	private static final String WRITABLE = "SELECT u.id FROM users u";
+	private static final String JOURNAL = "INSERT INTO like_intents";
+
+	private JdbcTemplate jdbcTemplate;
+	private SimpleMeterRegistry meterRegistry;
+	private LikeBuffer buffer;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		jdbcTemplate = mock(JdbcTemplate.class);
+		TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+		doAnswer(inv -> {
+			((Consumer<TransactionStatus>) inv.getArgument(0)).accept(null);
+			return null;
+		}).when(transactionTemplate).executeWithoutResult(any());
+		meterRegistry = new SimpleMeterRegistry();
+		buffer = new LikeBuffer(jdbcTemplate, transactionTemplate, mock(EventPublisher.class), meterRegistry);
+		ReflectionTestUtils.setField(buffer, "batchSize", 500);
+		ReflectionTestUtils.setField(buffer, "maxPending", 3);
+		ReflectionTestUtils.setField(buffer, "flushIntervalMs", 200L);
+		ReflectionTestUtils.setField(buffer, "maxBackoffMs", 30000L);
+	}
+
+	@Test
+	void toggleTracksIntentAgainstPersistedState() {
+		assertTrue(buffer.toggle(1L, 10L, () -> false));
+		assertEquals(1, buffer.pendingDelta(1L));
+		assertEquals(Boolean.TRUE, buffer.pendingLikeState(1L, 10L));
+
+		// Toggling back cancels out without another database read
+		assertFalse(buffer.toggle(1L, 10L, () -> { throw new AssertionError("persisted state re-read"); }));
+		assertEquals(0, buffer.pendingDelta(1L));
+
+		assertFalse(buffer.toggle(1L, 11L, () -> true));
+		assertEquals(-1, buffer.pendingDelta(1L));
+		assertNull(buffer.pendingLikeState(2L, 10L));
+	}
+
+	@Test
+	void successfulFlushEmptiesTheBuffer() {
+		when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any())).thenReturn(List.of(10L));
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(Object[].class))).thenReturn(99L);
+		buffer.toggle(1L, 10L, () -> false);
+
+		buffer.flush();
+
+		assertNull(buffer.pendingLikeState(1L, 10L));
+		assertEquals(0, meterRegistry.get("likes.write-behind.pending").gauge().value());
+	}
+
+	@Test
+	void transientFailureKeepsIntentsAndBacksOff() {
+		when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any()))
+				.thenThrow(new QueryTimeoutException("timeout"));
+		buffer.toggle(1L, 10L, () -> false);
+
+		buffer.flush();
+		buffer.flush(); // still backing off: no second attempt
+
+		assertEquals(Boolean.TRUE, buffer.pendingLikeState(1L, 10L));
+		verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Long.class), any(), any());
+	}
+
+	@Test
+	void integrityViolationDropsIntentsOfDeletedUsersOnly() {
+		when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any())).thenAnswer(inv -> {
+			String sql = inv.getArgument(0);
+			if (sql.startsWith(INSERT)) {
+				throw new DataIntegrityViolationException("violates foreign key constraint");
+			}
+			if (sql.startsWith(WRITABLE)) {
+				return List.of(10L); // user 11 was deleted
+			}
+			return List.of();
+		});
+		buffer.toggle(1L, 10L, () -> false);
+		buffer.toggle(1L, 11L, () -> false);
+
+		buffer.flush();
+
+		assertEquals(Boolean.TRUE, buffer.pendingLikeState(1L, 10L));
+		assertNull(buffer.pendingLikeState(1L, 11L));
+		assertEquals(1, meterRegistry.get("likes.write-behind.dropped").counter().count());
+	}
+
+	@Test
+	void integrityViolationOnDeletedPostDropsEverything() {
+		when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any())).thenAnswer(inv -> {
+			if (((String) inv.getArgument(0)).startsWith(INSERT)) {
+				throw new DataIntegrityViolationException("violates foreign key constraint");
+			}
+			return List.of();
+		});
+		buffer.toggle(1L, 10L, () -> false);
+		buffer.toggle(1L, 11L, () -> false);
+
+		buffer.flush();
+
+		assertEquals(0, buffer.pendingDelta(1L));
+		assertEquals(2, meterRegistry.get("likes.write-behind.dropped").counter().count());
+	}
+
+	@Test
+	void fullBufferRejectsNewIntentsButUpdatesExistingOnes() {
+		buffer.toggle(1L, 10L, () -> false);
+		buffer.toggle(1L, 11L, () -> false);
+		buffer.toggle(2L, 12L, () -> false);
+
+		assertFalse(buffer.accepts(1L, 13L));
+		assertTrue(buffer.accepts(1L, 10L));
+		assertEquals(1, meterRegistry.get("likes.write-behind.overflow").counter().count());
+	}
+
+	@Test
+	void toggleThatCannotBeJournaledIsRejectedAndNotApplied() {
+		buffer.toggle(1L, 10L, () -> false);
+		when(jdbcTemplate.update(startsWith(JOURNAL), any(), any(), any()))
+				.thenThrow(new TransientDataAccessResourceException("connection refused"));
+
+		ResponseStatusException rejected = assertThrows(ResponseStatusException.class, () -> buffer.toggle(1L, 10L, () -> false));
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatusCode());
+		assertThrows(ResponseStatusException.class, () -> buffer.toggle(1L, 11L, () -> false));
+
+		// The journaled like stays, the failed unlike and the new liker are gone
+		assertEquals(Boolean.TRUE, buffer.pendingLikeState(1L, 10L));
+		assertNull(buffer.pendingLikeState(1L, 11L));
+		assertEquals(1, meterRegistry.get("likes.write-behind.pending").gauge().value());
+	}
+
+	@Test
+	void intentChangedDuringAFlushIsMeasuredAgainstWhatTheFlushWrote() {
+		long before = buffer.flushGeneration();
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(Object[].class))).thenReturn(99L);
+		when(jdbcTemplate.queryForList(startsWith(INSERT), eq(Long.class), any(), any())).thenAnswer(inv -> {
+			// The user unlikes again while the like is being written
+			assertFalse(buffer.unchangedSince(buffer.flushGeneration()));
+			buffer.toggle(1L, 10L, () -> { throw new AssertionError("persisted state re-read"); });
+			return List.of(10L);
+		});
+		buffer.toggle(1L, 10L, () -> false);
+
+		buffer.flush();
+
+		// post_likes now has the like, so the pending unlike takes one off
+		assertEquals(Boolean.FALSE, buffer.pendingLikeState(1L, 10L));
+		assertEquals(-1, buffer.pendingDelta(1L));
+		assertFalse(buffer.unchangedSince(before));
+		assertTrue(buffer.unchangedSince(buffer.flushGeneration()));
+	}
+}
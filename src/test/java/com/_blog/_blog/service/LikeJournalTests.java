@@ -0,0 +1,118 @@
+package com._blog._blog.service;
+
+import com._blog._blog.IsolatedSchema;
+import com._blog._blog.dto.PostResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Write-behind likes against the local Postgres, in a schema of its own: the like_intents journal and its replay.
+// The scheduled flush is pushed out, tests flush by hand.
+class LikeJournalTests {
+
+	@RegisterExtension
+	static final IsolatedSchema node = new IsolatedSchema("like_journal_test",
+			"--likes.write-behind.enabled=true", "--likes.write-behind.flush-interval-ms=3600000");
+
+	private static JdbcTemplate jdbc;
+	private static PostService posts;
+	private static LikeBuffer likeBuffer;
+
+	@BeforeAll
+	static void beans() {
+		jdbc = node.jdbc();
+		posts = node.bean(PostService.class);
+		likeBuffer = node.bean(LikeBuffer.class);
+	}
+
+	@AfterEach
+	void clearAuthentication() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void toggleIsJournaledBeforeItReturnsAndTheFlushTakesItOut() {
+		long author = node.insertUser("journal-author");
+		long reader = node.insertUser("journal-reader");
+		long post = node.insertPost(author);
+		authenticate(reader);
+
+		posts.toggleLike(post);
+
+		assertEquals(List.of(true), journal(post, reader));
+		assertEquals(0L, likeCount(post));
+		assertView(author, post, 1, true);
+
+		likeBuffer.flush();
+
+		assertEquals(List.of(), journal(post, reader));
+		assertEquals(1L, likeCount(post));
+		assertEquals(1L, jdbc.queryForObject("SELECT count(*) FROM post_likes WHERE post_id = ? AND user_id = ?", Long.class, post, reader));
+		assertEquals(List.of("true"), jdbc.queryForList("SELECT payload::jsonb ->> 'countApplied' FROM outbox_events " +
+				"WHERE event_type = 'PostLiked' AND aggregate_id = ?", String.class, post));
+		assertView(author, post, 1, true);
+	}
+
+	@Test
+	void journalLeftByACrashIsReplayedOnStartup() {
+		long author = node.insertUser("journal-author");
+		long liker = node.insertUser("journal-liker");
+		long unliker = node.insertUser("journal-unliker");
+		long post = node.insertPost(author);
+		jdbc.update("INSERT INTO post_likes (post_id, user_id) VALUES (?, ?)", post, unliker);
+		jdbc.update("UPDATE posts SET like_count = 1 WHERE id = ?", post);
+		// Acknowledged toggles the process died with
+		jdbc.update("INSERT INTO like_intents (post_id, user_id, liked, recorded_at) VALUES (?, ?, true, now()), (?, ?, false, now())",
+				post, liker, post, unliker);
+
+		likeBuffer.replayJournal();
+
+		assertEquals(List.of(liker), jdbc.queryForList("SELECT user_id FROM post_likes WHERE post_id = ?", Long.class, post));
+		assertEquals(1L, likeCount(post));
+		assertEquals(0L, jdbc.queryForObject("SELECT count(*) FROM like_intents WHERE post_id = ?", Long.class, post));
+		assertTrue(likeBuffer.pendingLikeState(post, liker) == null && likeBuffer.pendingDelta(post) == 0);
+	}
+
+	@Test
+	void deletingAPostDropsItsJournalRows() {
+		long author = node.insertUser("journal-author");
+		long reader = node.insertUser("journal-reader");
+		long post = node.insertPost(author);
+		authenticate(reader);
+		posts.toggleLike(post);
+
+		likeBuffer.evictPost(post);
+
+		assertEquals(List.of(), journal(post, reader));
+		assertEquals(0, likeBuffer.pendingDelta(post));
+	}
+
+	private static void assertView(long author, long post, long likeCount, boolean liked) {
+		PostResponse response = posts.getPostsByUserIdBefore(author, null, 10).getItems().stream()
+				.filter(p -> p.getId() == post).findFirst().orElseThrow();
+		assertEquals(likeCount, response.getLikeCount());
+		assertEquals(liked, response.isLikedByCurrentUser());
+	}
+
+	private static List<Boolean> journal(long post, long user) {
+		return jdbc.queryForList("SELECT liked FROM like_intents WHERE post_id = ? AND user_id = ?", Boolean.class, post, user);
+	}
+
+	private static long likeCount(long post) {
+		return jdbc.queryForObject("SELECT like_count FROM posts WHERE id = ?", Long.class, post);
+	}
+
+	private static void authenticate(long userId) {
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(node.username(userId), null, List.of()));
+	}
+}
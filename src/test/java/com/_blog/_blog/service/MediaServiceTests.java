@@ -0,0 +1,124 @@
+package com._blog._blog.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Media permits with a single slot held by a storage call that waits on a gate: request-thread uploads give up with
+// 503, background uploads and deletes queue until the slot frees
+class MediaServiceTests {
+
+	private final CountDownLatch gate = new CountDownLatch(1);
+	private final CountDownLatch entered = new CountDownLatch(1);
+	private MediaService media;
+	private Path staged;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		MediaStorage storage = new MediaStorage() {
+			@Override
+			public Map upload(Path file, String folder, String name, String resourceType) throws IOException {
+				entered.countDown();
+				await();
+				return Map.of("public_id", folder + "/" + name);
+			}
+
+			@Override
+			public void delete(String publicId) {
+			}
+
+			@Override
+			public Map<String, String> deleteBatch(List<String> publicIds, String resourceType) {
+				return Map.of(publicIds.get(0), "deleted");
+			}
+
+			private void await() throws IOException {
+				try {
+					gate.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+		};
+		media = new MediaService(storage, 1, new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(media, "permitTimeoutMs", 50L);
+		ReflectionTestUtils.setField(media, "tempDir", "");
+		staged = Files.createTempFile("media-test-", ".jpg");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		gate.countDown();
+		Files.deleteIfExists(staged);
+	}
+
+	@Test
+	void requestThreadUploadFailsFastWhileTheSlotIsBusy() throws Exception {
+		CompletableFuture<Map> holder = holdTheSlot();
+
+		MockMultipartFile file = new MockMultipartFile("file", "a.jpg", "image/jpeg", new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0});
+		ResponseStatusException busy = assertThrows(ResponseStatusException.class, () -> media.uploadFile(file, "uploads", "a"));
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, busy.getStatusCode());
+
+		gate.countDown();
+		holder.get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void backgroundCallersWaitForTheSlotInsteadOfFailing() throws Exception {
+		CompletableFuture<Map> holder = holdTheSlot();
+
+		CompletableFuture<Map> upload = CompletableFuture.supplyAsync(() -> call(() -> media.upload(stagedMedia(), "posts", "waiting")));
+		CompletableFuture<Map<String, String>> delete = CompletableFuture.supplyAsync(() -> call(() -> media.deleteBatch(List.of("old"), "image")));
+		// Far past the request-thread timeout, and neither has given up
+		Thread.sleep(300);
+		assertFalse(upload.isDone());
+		assertFalse(delete.isDone());
+
+		gate.countDown();
+		assertEquals("posts/waiting", upload.get(5, TimeUnit.SECONDS).get("public_id"));
+		assertEquals(Map.of("old", "deleted"), delete.get(5, TimeUnit.SECONDS));
+		assertTrue(holder.isDone());
+	}
+
+	private CompletableFuture<Map> holdTheSlot() throws InterruptedException {
+		CompletableFuture<Map> holder = CompletableFuture.supplyAsync(() -> call(() -> media.upload(stagedMedia(), "posts", "holder")));
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		return holder;
+	}
+
+	private MediaService.StagedMedia stagedMedia() {
+		return new MediaService.StagedMedia(staged, "image", null);
+	}
+
+	private interface IoCall<T> {
+		T run() throws IOException;
+	}
+
+	private static <T> T call(IoCall<T> call) {
+		try {
+			return call.run();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com._blog._blog.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Header-only type detection; the inputs are hand-built headers, not real files
+class MediaTypeSnifferTests {
+
+	@Test
+	void recognizesCommonContainers() {
+		assertEquals("image", sniff(bytes(0xFF, 0xD8, 0xFF, 0xE0)));
+		assertEquals("image", sniff(concat(bytes(0x89), ascii("PNG\r\n\u001a\n"))));
+		assertEquals("image", sniff(ascii("GIF89a")));
+		assertEquals("image", sniff(ascii("RIFF\0\0\0\0WEBPVP8 ")));
+		assertEquals("image", sniff(ascii("\0\0\0\u0018ftypavif")));
+		assertEquals("video", sniff(ascii("\0\0\0\u0018ftypisom")));
+		assertEquals("video", sniff(bytes(0x1A, 0x45, 0xDF, 0xA3)));
+		assertNull(sniff(ascii("%PDF-1.7")));
+	}
+
+	@Test
+	void bmpNeedsAValidDibHeader() {
+		assertEquals("image/bmp", contentType(bmp(40, 640, 480, 1, 24)));
+		assertEquals("image/bmp", contentType(bmp(124, 1, -1, 1, 32)));
+		// Text that happens to start with "BM"
+		byte[] text = ascii("BM was here, and so was a long enough line of text");
+		assertNull(sniff(text));
+		assertNull(sniff(bmp(40, 640, 480, 2, 24)), "planes must be 1");
+		assertNull(sniff(bmp(40, 640, 480, 1, 7)), "odd bit depth");
+		assertNull(sniff(bmp(41, 640, 480, 1, 24)), "unknown DIB header size");
+		assertNull(sniff(Arrays.copyOf(bmp(40, 640, 480, 1, 24), 20)), "truncated");
+	}
+
+	@Test
+	void oggIsVideoOnlyWithAVideoCodec() {
+		byte[] theora = concat(bytes(0x80), ascii("theora"), new byte[35]);
+		byte[] vorbis = concat(bytes(0x01), ascii("vorbis"), new byte[23]);
+		byte[] opus = concat(ascii("OpusHead"), new byte[11]);
+		byte[] skeleton = concat(ascii("fishead\0"), new byte[56]);
+
+		assertEquals("video", sniff(oggPage(theora)));
+		assertEquals("video/ogg", contentType(concat(oggPage(skeleton), oggPage(theora))));
+		assertEquals("audio/ogg", contentType(oggPage(vorbis)));
+		assertNull(sniff(oggPage(vorbis)));
+		assertNull(sniff(oggPage(opus)));
+		assertNull(sniff(concat(oggPage(skeleton), oggPage(opus))));
+	}
+
+	@Test
+	void streamSniffReadsOnlyTheHeader() throws IOException {
+		byte[] upload = new byte[10 * MediaTypeSniffer.HEAD_SIZE];
+		System.arraycopy(ascii("GIF87a"), 0, upload, 0, 6);
+		InputStream in = new ByteArrayInputStream(upload);
+
+		assertEquals("image", MediaTypeSniffer.sniff(in));
+		assertEquals(upload.length - MediaTypeSniffer.HEAD_SIZE, in.available());
+	}
+
+	private static String sniff(byte[] head) {
+		return MediaTypeSniffer.sniff(head, head.length);
+	}
+
+	private static String contentType(byte[] head) {
+		return MediaTypeSniffer.contentType(head, head.length);
+	}
+
+	private static byte[] bmp(int dibSize, int width, int height, int planes, int bpp) {
+		ByteBuffer b = ByteBuffer.allocate(14 + dibSize).order(ByteOrder.LITTLE_ENDIAN);
+		b.put((byte) 'B').put((byte) 'M').putInt(14 + dibSize).putInt(0).putInt(14 + dibSize);
+		b.putInt(dibSize).putInt(width).putInt(height).putShort((short) planes).putShort((short) bpp).putInt(0);
+		return b.array();
+	}
+
+	// One beginning-of-stream page holding a single packet
+	private static byte[] oggPage(byte[] packet) {
+		ByteBuffer b = ByteBuffer.allocate(28 + packet.length).order(ByteOrder.LITTLE_ENDIAN);
+		b.put(ascii("OggS")).put((byte) 0).put((byte) 0x02).putLong(0).putInt(1).putInt(0).putInt(0);
+		b.put((byte) 1).put((byte) packet.length).put(packet);
+		return b.array();
+	}
+
+	private static byte[] ascii(String s) {
+		return s.getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private static byte[] bytes(int... values) {
+		byte[] b = new byte[values.length];
+		for (int i = 0; i < values.length; i++) b[i] = (byte) values[i];
+		return b;
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		byte[] all = new byte[0];
+		for (byte[] part : parts) {
+			int at = all.length;
+			all = Arrays.copyOf(all, at + part.length);
+			System.arraycopy(part, 0, all, at, part.length);
+		}
+		return all;
+	}
+}
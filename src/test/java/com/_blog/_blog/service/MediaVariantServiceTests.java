@@ -0,0 +1,76 @@
+package com._blog._blog.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Decode subsampling and variant geometry; no storage backend involved
+class MediaVariantServiceTests {
+
+	@Test
+	void subsamplesLargePhotosButKeepsRoomForTheWidestVariant() {
+		assertEquals(1, MediaVariantService.subsampling(1920, 1080));
+		assertEquals(1, MediaVariantService.subsampling(2560, 1440));
+		assertEquals(2, MediaVariantService.subsampling(6000, 4000));
+		assertEquals(3, MediaVariantService.subsampling(8000, 6000));
+	}
+
+	@Test
+	void extremeAspectRatiosAreStillBounded() {
+		// The short side leaves no room for quality subsampling, the longest side still forces it
+		int strip = MediaVariantService.subsampling(40000, 300);
+		assertTrue(40000 / strip <= MediaVariantService.MAX_DECODED_SIDE, "strip factor " + strip);
+		int tower = MediaVariantService.subsampling(300, 40000);
+		assertTrue(40000 / tower <= MediaVariantService.MAX_DECODED_SIDE, "tower factor " + tower);
+
+		for (int[] size : new int[][] { { 40000, 300 }, { 10000, 10000 }, { 30000, 30000 }, { 65535, 65535 } }) {
+			int factor = MediaVariantService.subsampling(size[0], size[1]);
+			long decoded = (long) ceilDiv(size[0], factor) * ceilDiv(size[1], factor);
+			assertTrue(decoded <= MediaVariantService.MAX_DECODED_PIXELS, size[0] + "x" + size[1] + " decodes " + decoded);
+		}
+	}
+
+	@Test
+	void readAppliesTheSubsampling(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("strip.png");
+		ImageIO.write(new BufferedImage(20000, 40, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+
+		BufferedImage decoded = MediaVariantService.read(file);
+		assertEquals(10000, decoded.getWidth());
+		assertEquals(20, decoded.getHeight());
+	}
+
+	@Test
+	void scalesToWidthKeepingTheAspectRatio() {
+		BufferedImage scaled = MediaVariantService.scaleToWidth(new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB), 640);
+		assertEquals(640, scaled.getWidth());
+		assertEquals(480, scaled.getHeight());
+
+		BufferedImage thin = MediaVariantService.scaleToWidth(new BufferedImage(10000, 3, BufferedImage.TYPE_INT_RGB), 1280);
+		assertEquals(1280, thin.getWidth());
+		assertEquals(1, thin.getHeight());
+	}
+
+	@Test
+	void cropsTheCenteredSquare() {
+		BufferedImage source = new BufferedImage(900, 300, BufferedImage.TYPE_INT_ARGB);
+		source.setRGB(450, 150, 0xFFFF0000);
+		BufferedImage square = MediaVariantService.cropSquare(source, 320);
+		assertEquals(320, square.getWidth());
+		assertEquals(320, square.getHeight());
+		assertTrue(square.getColorModel().hasAlpha());
+		// Outside the centered square: the left third is cut off, so the corner stays transparent
+		assertEquals(0, square.getRGB(0, 0) >>> 24);
+	}
+
+	private static int ceilDiv(int a, int b) {
+		return (a + b - 1) / b;
+	}
+}
@@ -0,0 +1,68 @@
+package com._blog._blog.service;
+
+import com._blog._blog.IsolatedSchema;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Trigger-maintained unread counter and single-use stream tickets against the local Postgres, in a schema of its own
+class NotificationCounterTests {
+
+	@RegisterExtension
+	static final IsolatedSchema node = new IsolatedSchema("notification_counter_test");
+
+	private static JdbcTemplate jdbc;
+
+	@BeforeAll
+	static void beans() {
+		jdbc = node.jdbc();
+	}
+
+	@Test
+	void counterFollowsInsertsReadStateAndDeletes() {
+		long actor = node.insertUser("counter-actor");
+		long first = node.insertUser("counter-a");
+		long second = node.insertUser("counter-b");
+
+		// One multi-row statement, as the fan-out writes them
+		jdbc.update("INSERT INTO notifications (recipient_id, actor_id, message, type, related_id, is_read, created_at) " +
+				"SELECT r, ?, 'm', 'POST', 1, false, now() FROM unnest(?::bigint[]) r, generate_series(1, 3)",
+				actor, new Long[] {first, second});
+		assertEquals(3, unread(first));
+		assertEquals(3, unread(second));
+
+		long one = jdbc.queryForObject("SELECT min(id) FROM notifications WHERE recipient_id = ?", Long.class, first);
+		jdbc.update("UPDATE notifications SET is_read = true WHERE id = ?", one);
+		jdbc.update("UPDATE notifications SET is_read = true WHERE id = ?", one); // no change the second time
+		assertEquals(2, unread(first));
+
+		jdbc.update("DELETE FROM notifications WHERE recipient_id = ?", first);
+		assertEquals(0, unread(first));
+
+		jdbc.update("UPDATE notifications SET is_read = true WHERE recipient_id = ?", second);
+		assertEquals(0, unread(second));
+		jdbc.update("UPDATE notifications SET is_read = false WHERE recipient_id = ?", second);
+		assertEquals(3, unread(second));
+		assertEquals(3, node.bean(NotificationService.class).getUnreadCount(node.username(second)));
+	}
+
+	@Test
+	void streamTicketIsRedeemedOnce() {
+		long user = node.insertUser("ticket-user");
+		StreamTicketService tickets = node.bean(StreamTicketService.class);
+
+		String ticket = tickets.issue(user);
+		assertEquals(Optional.of(node.username(user)), tickets.redeem(ticket));
+		assertEquals(Optional.empty(), tickets.redeem(ticket));
+		assertEquals(Optional.empty(), tickets.redeem("not-a-ticket"));
+	}
+
+	private static long unread(long id) {
+		return jdbc.queryForObject("SELECT unread_notification_count FROM users WHERE id = ?", Long.class, id);
+	}
+}
@@ -0,0 +1,124 @@
+package com._blog._blog.service;
+
+import com._blog._blog.IsolatedSchema;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Follower fan-out under a saturated pool against the local Postgres, in a schema of its own. The pool has one worker
+// and a queue of one, so two blocked tasks leave the drainer no room. Scheduled draining is pushed out.
+class NotificationFanoutTests {
+
+	@RegisterExtension
+	static final IsolatedSchema node = new IsolatedSchema("notification_fanout_test",
+			"--notifications.fanout.pool-size=1", "--notifications.fanout.queue-capacity=1");
+
+	private static JdbcTemplate jdbc;
+	private static NotificationFanoutService fanout;
+	private static ThreadPoolTaskExecutor executor;
+
+	@BeforeAll
+	static void beans() {
+		jdbc = node.jdbc();
+		fanout = node.bean(NotificationFanoutService.class);
+		executor = node.bean(ThreadPoolTaskExecutor.class, "notificationFanoutExecutor");
+	}
+
+	@Test
+	void jobWaitsInTheTableWhileThePoolIsFullAndRunsOnceThereIsRoom() throws InterruptedException {
+		long author = node.insertUser("fanout-author");
+		long follower = follow(author);
+		CountDownLatch release = new CountDownLatch(1);
+		executor.execute(() -> await(release)); // the only worker
+		executor.execute(() -> await(release)); // the only queue slot
+		try {
+			fanout.fanOutNewPost(81L, author, node.username(author), "Full pool");
+			for (int i = 0; i < 5; i++) {
+				fanout.drain();
+			}
+			Map<String, Object> job = job(81L);
+			assertEquals("PENDING", job.get("status"));
+			assertEquals(0, ((Number) job.get("attempts")).intValue(), "a job never leased must not spend an attempt");
+			assertEquals(List.of(), messages(follower));
+		} finally {
+			release.countDown();
+		}
+
+		drainUntilDone(81L);
+		assertEquals(List.of(node.username(author) + " posted a new post: Full pool"), messages(follower));
+	}
+
+	@Test
+	void jobRejectedAfterItWasLeasedIsReleasedAndDrainedAgain() throws InterruptedException {
+		long author = node.insertUser("fanout-author");
+		long follower = follow(author);
+		fanout.fanOutNewPost(82L, author, node.username(author), "Lost race");
+
+		// The queue filled up between the room check and the hand-off
+		ThreadPoolTaskExecutor rejecting = new ThreadPoolTaskExecutor() {
+			@Override
+			public void execute(Runnable task) {
+				throw new TaskRejectedException("queue full");
+			}
+		};
+		rejecting.initialize();
+		ReflectionTestUtils.setField(fanout, "executor", rejecting);
+		try {
+			fanout.drain();
+		} finally {
+			ReflectionTestUtils.setField(fanout, "executor", executor);
+			rejecting.shutdown();
+		}
+		Map<String, Object> job = job(82L);
+		assertEquals("PENDING", job.get("status"));
+		assertEquals(0, ((Number) job.get("attempts")).intValue());
+		assertTrue((Boolean) job.get("due"), "a released job is due again right away");
+
+		drainUntilDone(82L);
+		assertEquals(List.of(node.username(author) + " posted a new post: Lost race"), messages(follower));
+	}
+
+	private static long follow(long author) {
+		long follower = node.insertUser("fanout-follower");
+		jdbc.update("INSERT INTO follows (follower_id, following_id, created_at) VALUES (?, ?, now())", follower, author);
+		return follower;
+	}
+
+	private static Map<String, Object> job(long postId) {
+		return jdbc.queryForMap("SELECT status, attempts, next_attempt_at <= now() AS due FROM notification_fanout_jobs " +
+				"WHERE post_id = ?", postId);
+	}
+
+	private static List<String> messages(long recipient) {
+		return jdbc.queryForList("SELECT message FROM notifications WHERE recipient_id = ?", String.class, recipient);
+	}
+
+	private static void drainUntilDone(long postId) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (jdbc.queryForObject("SELECT EXISTS (SELECT 1 FROM notification_fanout_jobs WHERE post_id = ?)", Boolean.class, postId)) {
+			assertTrue(System.currentTimeMillis() < deadline, "fan-out job not finished in time");
+			fanout.drain();
+			Thread.sleep(50);
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com._blog._blog.service;
+
+import com._blog._blog.IsolatedSchema;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Coalesced notifications against the local Postgres, in a schema of its own
+class NotificationGroupTests {
+
+	@RegisterExtension
+	static final IsolatedSchema node = new IsolatedSchema("notification_group_test", "--notifications.coalesce.recent-actors=5");
+
+	private static JdbcTemplate jdbc;
+	private static NotificationGroupService groups;
+
+	@BeforeAll
+	static void beans() {
+		jdbc = node.jdbc();
+		groups = node.bean(NotificationGroupService.class);
+	}
+
+	@Test
+	void actorsBeyondTheRecentListAreNotCountedTwice() {
+		long recipient = node.insertUser("group-owner");
+		List<Long> actors = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			actors.add(node.insertUser("group-actor"));
+		}
+		for (Long actor : actors) {
+			groups.notify(recipient, List.of(actor), "LIKE", "LIKE:1", 1L, " liked your post.");
+		}
+		// The first actors have long dropped out of recent_actor_ids; liking again must not add to the count
+		groups.notify(recipient, actors.subList(0, 3), "LIKE", "LIKE:1", 1L, " liked your post.");
+
+		Map<String, Object> group = jdbc.queryForMap(
+				"SELECT actor_count, cardinality(recent_actor_ids) AS recent FROM notifications WHERE recipient_id = ?", recipient);
+		assertEquals(8, ((Number) group.get("actor_count")).intValue());
+		assertEquals(5, ((Number) group.get("recent")).intValue());
+	}
+
+	@Test
+	void joiningActorMovesUpdatedAtButNotCreatedAt() throws InterruptedException {
+		long recipient = node.insertUser("group-owner");
+		groups.notify(recipient, List.of(node.insertUser("group-actor")), "FOLLOW", "FOLLOW", 1L, " started following you.");
+		Timestamp created = jdbc.queryForObject("SELECT created_at FROM notifications WHERE recipient_id = ?", Timestamp.class, recipient);
+		Thread.sleep(20);
+
+		groups.notify(recipient, List.of(node.insertUser("group-actor")), "FOLLOW", "FOLLOW", 2L, " started following you.");
+
+		Map<String, Object> group = jdbc.queryForMap(
+				"SELECT created_at, updated_at, actor_count FROM notifications WHERE recipient_id = ?", recipient);
+		assertEquals(created, group.get("created_at"));
+		assertTrue(((Timestamp) group.get("updated_at")).after(created));
+		assertEquals(2, ((Number) group.get("actor_count")).intValue());
+	}
+}
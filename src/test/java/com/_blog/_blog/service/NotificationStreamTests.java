@@ -0,0 +1,126 @@
+package com._blog._blog.service;
+
+import com._blog._blog.IsolatedSchema;
+import com._blog._blog.dto.NotificationResponse;
+import com._blog._blog.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Stream signals and Last-Event-ID replay against the local Postgres, in a schema of its own. The test listens on
+// the notifications channel itself, on a connection of the application's pool.
+class NotificationStreamTests {
+
+	@RegisterExtension
+	static final IsolatedSchema node = new IsolatedSchema("notification_stream_test");
+
+	private static JdbcTemplate jdbc;
+	private static NotificationGroupService groups;
+	private static NotificationRepository notifications;
+
+	@BeforeAll
+	static void beans() {
+		jdbc = node.jdbc();
+		groups = node.bean(NotificationGroupService.class);
+		notifications = node.bean(NotificationRepository.class);
+	}
+
+	@Test
+	void fanOutStatementSignalsEachRecipientOnce() throws SQLException, InterruptedException {
+		long author = node.insertUser("stream-author");
+		long first = node.insertUser("stream-first");
+		long second = node.insertUser("stream-second");
+
+		try (Connection listener = jdbc.getDataSource().getConnection()) {
+			listen(listener);
+			// Three rows, two of them for the same recipient, in one statement
+			jdbc.update("INSERT INTO notifications (recipient_id, actor_id, message, type, related_id, is_read, created_at, updated_at) " +
+					"SELECT r, ?, 'm', 'POST', 1, false, now(), now() FROM unnest(?::bigint[]) AS r", author, new Long[] {first, first, second});
+
+			List<String> signals = signals(listener, Set.of(first, second), 2);
+			assertEquals(List.of(first + ":" + firstChange(first), second + ":" + firstChange(second)), signals.stream().sorted().toList());
+		}
+	}
+
+	@Test
+	void groupThatGainedAnActorIsReplayedAfterItsOldPosition() throws SQLException, InterruptedException {
+		long owner = node.insertUser("stream-owner");
+		groups.notify(owner, List.of(node.insertUser("stream-actor")), "LIKE", "LIKE:7", 7L, " liked your post.");
+		long firstSeen = jdbc.queryForObject("SELECT change_seq FROM notifications WHERE recipient_id = ?", Long.class, owner);
+
+		try (Connection listener = jdbc.getDataSource().getConnection()) {
+			listen(listener);
+			// Updated in place: same id, a later change_seq, signalled like a new row
+			groups.notify(owner, List.of(node.insertUser("stream-actor")), "LIKE", "LIKE:7", 7L, " liked your post.");
+			assertEquals(1, signals(listener, Set.of(owner), 1).size());
+		}
+
+		List<NotificationResponse> replayed = notifications.findResponsesChangedAfter(owner, firstSeen, PageRequest.of(0, 10));
+		assertEquals(1, replayed.size());
+		assertEquals(2, replayed.get(0).getActorCount());
+		assertTrue(replayed.get(0).getChangeSeq() > firstSeen);
+		assertEquals(List.of(), notifications.findResponsesChangedAfter(owner, replayed.get(0).getChangeSeq(), PageRequest.of(0, 10)));
+	}
+
+	@Test
+	void readStateUpdatesAreNotSignalledAsChanges() throws SQLException, InterruptedException {
+		long owner = node.insertUser("stream-reader");
+		groups.notify(owner, List.of(node.insertUser("stream-actor")), "FOLLOW", "FOLLOW", 1L, " started following you.");
+
+		try (Connection listener = jdbc.getDataSource().getConnection()) {
+			listen(listener);
+			jdbc.update("UPDATE notifications SET is_read = true WHERE recipient_id = ?", owner);
+			assertEquals(List.of(), signals(listener, Set.of(owner), 0));
+		}
+	}
+
+	// Pooled connections keep listening after they go back to the pool, so start over with an empty queue
+	private static void listen(Connection listener) throws SQLException {
+		try (Statement statement = listener.createStatement()) {
+			statement.execute("UNLISTEN *");
+			listener.unwrap(PGConnection.class).getNotifications(50);
+			statement.execute("LISTEN notifications");
+		}
+	}
+
+	private static long firstChange(long recipient) {
+		return jdbc.queryForObject("SELECT min(change_seq) FROM notifications WHERE recipient_id = ?", Long.class, recipient);
+	}
+
+	// Signals for the given recipients, waiting until the expected number arrived and a little longer for extras
+	private static List<String> signals(Connection listener, Set<Long> recipients, int expected) throws SQLException, InterruptedException {
+		List<String> payloads = new ArrayList<>();
+		long deadline = System.currentTimeMillis() + 5000;
+		long settle = Long.MAX_VALUE;
+		while (System.currentTimeMillis() < Math.min(deadline, settle)) {
+			PGNotification[] received = listener.unwrap(PGConnection.class).getNotifications(100);
+			if (received != null) {
+				for (PGNotification notification : received) {
+					String payload = notification.getParameter();
+					if (recipients.contains(Long.valueOf(payload.substring(0, payload.indexOf(':'))))) {
+						payloads.add(payload);
+					}
+				}
+			}
+			if (payloads.size() >= expected && settle == Long.MAX_VALUE) {
+				settle = System.currentTimeMillis() + 300;
+			}
+			Thread.sleep(10);
+		}
+		return payloads;
+	}
+}
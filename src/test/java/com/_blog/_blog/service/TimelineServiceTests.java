@@ -0,0 +1,134 @@
+package com._blog._blog.service;
+
+import com._blog._blog.IsolatedSchema;
+import com._blog._blog.dto.CreatePostRequest;
+import com._blog._blog.dto.CursorPage;
+import com._blog._blog.dto.PostResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Fan-out-on-write home timelines against the local Postgres, in a schema of its own. Follower counters are applied
+// by the outbox, which is not polled here, so the fan-out limit (2) is crossed by setting follower_count directly.
+class TimelineServiceTests {
+
+	@RegisterExtension
+	static final IsolatedSchema node = new IsolatedSchema("timeline_test", "--timeline.fanout.max-followers=2");
+
+	private static JdbcTemplate jdbc;
+	private static PostService posts;
+	private static FollowService follows;
+
+	@BeforeAll
+	static void beans() {
+		jdbc = node.jdbc();
+		posts = node.bean(PostService.class);
+		follows = node.bean(FollowService.class);
+	}
+
+	@AfterEach
+	void clearAuthentication() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void newPostIsWrittenIntoEveryFollowersTimeline() {
+		long author = node.insertUser("tl-author");
+		long first = node.insertUser("tl-first");
+		long second = node.insertUser("tl-second");
+		long stranger = node.insertUser("tl-stranger");
+		follows.followUser(node.username(first), author);
+		follows.followUser(node.username(second), author);
+
+		long post = createPost(author);
+
+		assertEquals(List.of(author, first, second), owners(post));
+		authenticate(first);
+		assertEquals(List.of(post), feed(null, 10).getItems().stream().map(PostResponse::getId).toList());
+		authenticate(stranger);
+		assertTrue(feed(null, 10).getItems().isEmpty());
+	}
+
+	@Test
+	void highFanoutAuthorIsMergedIntoTheFeedAtReadTime() {
+		long celebrity = node.insertUser("tl-celebrity");
+		long regular = node.insertUser("tl-regular");
+		long reader = node.insertUser("tl-reader");
+		follows.followUser(node.username(reader), celebrity);
+		follows.followUser(node.username(reader), regular);
+		jdbc.update("UPDATE users SET follower_count = 3 WHERE id = ?", celebrity);
+
+		long older = createPost(regular);
+		long merged = createPost(celebrity);
+		long newer = createPost(regular);
+
+		assertTrue(jdbc.queryForObject("SELECT high_fanout FROM users WHERE id = ?", Boolean.class, celebrity));
+		assertEquals(List.of(celebrity), owners(merged), "a high-fanout post is only in its author's own timeline");
+
+		// Both sources interleave newest first, across a page boundary
+		authenticate(reader);
+		CursorPage<PostResponse> page = feed(null, 2);
+		assertEquals(List.of(newer, merged), page.getItems().stream().map(PostResponse::getId).toList());
+		assertTrue(page.isHasNext());
+		CursorPage<PostResponse> next = feed(page.getNextCursor(), 2);
+		assertEquals(List.of(older), next.getItems().stream().map(PostResponse::getId).toList());
+		assertFalse(next.isHasNext());
+	}
+
+	@Test
+	void unfollowAndDeleteRemoveTimelineEntries() {
+		long unfollowed = node.insertUser("tl-unfollowed");
+		long kept = node.insertUser("tl-kept");
+		long reader = node.insertUser("tl-reader");
+		follows.followUser(node.username(reader), unfollowed);
+		follows.followUser(node.username(reader), kept);
+		long dropped = createPost(unfollowed);
+		long deleted = createPost(kept);
+		long remaining = createPost(kept);
+
+		follows.unfollowUser(node.username(reader), unfollowed);
+		assertEquals(List.of(unfollowed), owners(dropped));
+
+		authenticate(kept);
+		posts.deletePost(deleted);
+		assertEquals(List.of(), owners(deleted));
+
+		authenticate(reader);
+		assertEquals(List.of(remaining), feed(null, 10).getItems().stream().map(PostResponse::getId).toList());
+	}
+
+	private static long createPost(long authorId) {
+		authenticate(authorId);
+		CreatePostRequest request = new CreatePostRequest();
+		request.setTitle("title");
+		request.setContent("content");
+		try {
+			return posts.createPostWithMedia(request, null).getId();
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+	}
+
+	private static CursorPage<PostResponse> feed(String before, int limit) {
+		return posts.getFeed(before, limit);
+	}
+
+	private static List<Long> owners(long postId) {
+		return jdbc.queryForList("SELECT owner_id FROM timeline_entries WHERE post_id = ? ORDER BY owner_id", Long.class, postId);
+	}
+
+	private static void authenticate(long userId) {
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(node.username(userId), null, List.of()));
+	}
+}
@@ -0,0 +1,135 @@
+package com._blog._blog.service;
+
+import com._blog._blog.IsolatedSchema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Decayed trending scores and view accounting against the local Postgres, in a schema of its own. Scheduled
+// flush, refresh and prune are pushed out; each test runs them by hand. Default half-life: 6 hours.
+class TrendingServiceTests {
+
+	@RegisterExtension
+	static final IsolatedSchema node = new IsolatedSchema("trending_test",
+			"--trending.flush-ms=3600000", "--trending.refresh-ms=3600000", "--trending.prune-cron=-");
+
+	private static JdbcTemplate jdbc;
+	private static TrendingService trending;
+
+	@BeforeAll
+	static void beans() {
+		jdbc = node.jdbc();
+		trending = node.bean(TrendingService.class);
+	}
+
+	@AfterEach
+	void clear() {
+		SecurityContextHolder.clearContext();
+		trending.flush();
+		jdbc.update("DELETE FROM post_trending");
+	}
+
+	@Test
+	void storedScoreDecaysBeforeNewSignalsAreAdded() {
+		long post = node.insertPost(node.insertUser("trend-author"), false);
+		jdbc.update("INSERT INTO post_trending (post_id, score, score_at) VALUES (?, 8, now() - interval '6 hours')", post);
+
+		trending.recordLikes(post, 1);
+		trending.flush();
+
+		// One half-life: 8 -> 4, plus one like (weight 3)
+		assertEquals(7.0, score(post), 0.01);
+	}
+
+	@Test
+	void fresherSignalsOutrankOlderLargerOnes() {
+		long author = node.insertUser("trend-author");
+		long old = node.insertPost(author, false);
+		long fresh = node.insertPost(author, false);
+		long hidden = node.insertPost(author, true);
+		// 10 two half-lives ago is 2.5 now, below a fresh 4; the hidden post never shows
+		jdbc.update("INSERT INTO post_trending (post_id, score, score_at) VALUES (?, 10, now() - interval '12 hours')", old);
+		jdbc.update("INSERT INTO post_trending (post_id, score, score_at) VALUES (?, 4, now())", fresh);
+		jdbc.update("INSERT INTO post_trending (post_id, score, score_at) VALUES (?, 50, now())", hidden);
+
+		trending.refresh();
+		assertEquals(List.of(fresh, old), trending.top(10));
+		assertEquals(List.of(fresh), trending.top(1));
+	}
+
+	@Test
+	void pruneDropsScoresThatDecayedAway() {
+		long author = node.insertUser("trend-author");
+		long cold = node.insertPost(author, false);
+		long warm = node.insertPost(author, false);
+		// 0.5 after four half-lives is 0.03, under trending.min-score (0.05)
+		jdbc.update("INSERT INTO post_trending (post_id, score, score_at) VALUES (?, 0.5, now() - interval '24 hours')", cold);
+		jdbc.update("INSERT INTO post_trending (post_id, score, score_at) VALUES (?, 0.5, now() - interval '12 hours')", warm);
+
+		trending.prune();
+		assertEquals(List.of(warm), jdbc.queryForList("SELECT post_id FROM post_trending", Long.class));
+	}
+
+	@Test
+	void viewsCountOncePerViewerAndWindow() {
+		long post = node.insertPost(node.insertUser("trend-author"), false);
+
+		assertTrue(trending.recordView(post, 1L));
+		assertFalse(trending.recordView(post, 1L), "a reload is not a second view");
+		assertTrue(trending.recordView(post, 2L));
+		trending.flush();
+
+		assertEquals(0.5, score(post), 0.001);
+	}
+
+	@Test
+	void viewEndpointRejectsMissingAndHiddenPosts() {
+		long author = node.insertUser("trend-author");
+		long hidden = node.insertPost(author, true);
+		String viewer = node.username(node.insertUser("trend-viewer"));
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(viewer, null, List.of()));
+		PostService posts = node.bean(PostService.class);
+
+		assertEquals(HttpStatus.NOT_FOUND, assertThrows(ResponseStatusException.class, () -> posts.recordView(hidden + 1000)).getStatusCode());
+		assertEquals(HttpStatus.NOT_FOUND, assertThrows(ResponseStatusException.class, () -> posts.recordView(hidden)).getStatusCode());
+		trending.flush();
+		assertEquals(0L, jdbc.queryForObject("SELECT count(*) FROM post_trending", Long.class));
+	}
+
+	@Test
+	void pendingPostsAreCapped() {
+		long author = node.insertUser("trend-author");
+		long first = node.insertPost(author, false);
+		long second = node.insertPost(author, false);
+		ReflectionTestUtils.setField(trending, "maxPendingPosts", 1);
+		try {
+			trending.recordLikes(first, 1);
+			assertFalse(trending.recordView(second, 1L), "a new post over the cap is dropped");
+			trending.recordLikes(first, 1);
+		} finally {
+			ReflectionTestUtils.setField(trending, "maxPendingPosts", 50000);
+		}
+		trending.flush();
+
+		assertEquals(6.0, score(first), 0.001);
+		assertEquals(0L, jdbc.queryForObject("SELECT count(*) FROM post_trending WHERE post_id = ?", Long.class, second));
+	}
+
+	private static double score(long postId) {
+		return jdbc.queryForObject("SELECT score FROM post_trending WHERE post_id = ?", Double.class, postId);
+	}
+}
@@ -0,0 +1,154 @@
+package com._blog._blog.service;
+
+import com._blog._blog.service.UserSearchIndex.Hit;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Trigram extraction, posting lists and ranking of the in-memory index, without the database load
+class UserSearchIndexTests {
+
+	private static final char START = '\u0001';
+
+	@Test
+	void postingsStaySortedAndUnique() {
+		UserSearchIndex.Postings postings = new UserSearchIndex.Postings();
+		for (int slot : new int[] { 9, 3, 7, 3, 1, 12, 5, 9 }) {
+			postings.add(slot);
+		}
+		assertArrayEquals(new int[] { 1, 3, 5, 7, 9, 12 }, Arrays.copyOf(postings.slots, postings.size));
+
+		postings.remove(7);
+		postings.remove(4);
+		postings.remove(1);
+		assertArrayEquals(new int[] { 3, 5, 9, 12 }, Arrays.copyOf(postings.slots, postings.size));
+		assertTrue(postings.contains(12));
+		assertFalse(postings.contains(7));
+	}
+
+	@Test
+	void namesAreIndexedWithStartPaddedTrigrams() {
+		Set<Long> grams = UserSearchIndex.grams(UserSearchIndex.doc(hit(1, "Anna"), "ann"));
+		// "anna" and the nickname "ann" share everything but the last trigram
+		assertEquals(Set.of(
+				UserSearchIndex.pack(START, START, 'a'),
+				UserSearchIndex.pack(START, 'a', 'n'),
+				UserSearchIndex.pack('a', 'n', 'n'),
+				UserSearchIndex.pack('n', 'n', 'a')), grams);
+	}
+
+	@Test
+	void queryTrigramsAreDistinct() {
+		assertArrayEquals(new long[] { UserSearchIndex.pack('a', 'a', 'a') }, UserSearchIndex.trigrams("aaaa"));
+		assertEquals(3, UserSearchIndex.trigrams("abcab").length);
+	}
+
+	@Test
+	void ranksExactThenPrefixThenSubstring() {
+		UserSearchIndex.Index index = index(
+				UserSearchIndex.doc(hit(1, "maria_k"), null),
+				UserSearchIndex.doc(hit(2, "annemarie"), null),
+				UserSearchIndex.doc(hit(3, "mar"), null),
+				UserSearchIndex.doc(hit(4, "zed"), "Marco"),
+				UserSearchIndex.doc(hit(5, "mario"), null));
+
+		assertEquals(List.of(3L, 5L, 1L, 4L, 2L), ids(UserSearchIndex.search(index, "mar", 10)));
+		assertEquals(List.of(3L, 5L), ids(UserSearchIndex.search(index, "mar", 2)));
+		// Short queries only match prefixes
+		assertEquals(List.of(3L, 5L, 1L, 4L), ids(UserSearchIndex.search(index, "ma", 10)));
+		assertEquals(List.of(4L), ids(UserSearchIndex.search(index, "z", 10)));
+	}
+
+	@Test
+	void allTrigramsPresentIsNotEnough() {
+		// "bcdxabc" holds both trigrams of "abcd", just not next to each other
+		UserSearchIndex.Index index = index(
+				UserSearchIndex.doc(hit(1, "bcdxabc"), null),
+				UserSearchIndex.doc(hit(2, "xabcdx"), null));
+		assertEquals(List.of(2L), ids(UserSearchIndex.search(index, "abcd", 10)));
+	}
+
+	@Test
+	void updatesAndRemovalsReuseSlots() {
+		UserSearchIndex.Index index = index(
+				UserSearchIndex.doc(hit(1, "alice"), null),
+				UserSearchIndex.doc(hit(2, "bob"), null));
+
+		index.put(UserSearchIndex.doc(hit(1, "alice"), "Wonder"));
+		assertEquals(2, index.size());
+		assertEquals(List.of(1L), ids(UserSearchIndex.search(index, "wond", 10)));
+
+		index.remove("alice");
+		assertEquals(List.of(), UserSearchIndex.search(index, "ali", 10));
+		assertEquals(List.of(), UserSearchIndex.search(index, "wond", 10));
+		assertFalse(index.postings.containsKey(UserSearchIndex.pack('l', 'i', 'c')), "empty posting lists are dropped");
+
+		index.put(UserSearchIndex.doc(hit(3, "carol"), null));
+		assertEquals(2, index.docs.size(), "freed slot is reused");
+		assertEquals(List.of(3L), ids(UserSearchIndex.search(index, "car", 10)));
+	}
+
+	@Test
+	void cachedShortQueriesFollowPutsAndRemovals() {
+		UserSearchIndex.Index index = new UserSearchIndex.Index();
+		Random random = new Random(7);
+		for (int i = 0; i < 3000; i++) {
+			index.put(UserSearchIndex.doc(hit(i, "k" + Integer.toString(random.nextInt(1_000_000), 36) + "_" + i),
+					i % 3 == 0 ? "Kay " + i : null));
+		}
+		List<Long> before = ids(UserSearchIndex.search(index, "k", 10));
+		assertTrue(index.topByGram.containsKey(UserSearchIndex.pack(START, START, 'k')), "list of 3000 is cached");
+		assertEquals(uncached(index, "k", 10), before);
+
+		index.put(UserSearchIndex.doc(hit(9001, "k"), null));
+		index.put(UserSearchIndex.doc(hit(9002, "kx"), null));
+		index.put(UserSearchIndex.doc(hit(9003, "kzzzzzzzzzzzzzzzzzzzzzzzz"), null));
+		assertEquals(List.of(9001L, 9002L), ids(UserSearchIndex.search(index, "k", 10)).subList(0, 2));
+		assertEquals(uncached(index, "k", 10), ids(UserSearchIndex.search(index, "k", 10)));
+
+		index.remove("k");
+		index.remove(normalizedUsername(before.get(0), index));
+		assertEquals(uncached(index, "k", 10), ids(UserSearchIndex.search(index, "k", 10)));
+		assertEquals(uncached(index, "ka", 10), ids(UserSearchIndex.search(index, "ka", 10)));
+	}
+
+	@Test
+	void gramsMapBackToTheirQuery() {
+		assertEquals("k", UserSearchIndex.query(UserSearchIndex.pack(START, START, 'k')));
+		assertEquals("ka", UserSearchIndex.query(UserSearchIndex.pack(START, 'k', 'a')));
+		assertEquals("kay", UserSearchIndex.query(UserSearchIndex.pack('k', 'a', 'y')));
+	}
+
+	// Asking for more than the cache holds always ranks the posting list from scratch
+	private static List<Long> uncached(UserSearchIndex.Index index, String q, int limit) {
+		return ids(UserSearchIndex.search(index, q, UserSearchIndex.TOP_SIZE + 1)).subList(0, limit);
+	}
+
+	private static String normalizedUsername(long id, UserSearchIndex.Index index) {
+		return index.docs.stream().filter(d -> d != null && d.hit().id() == id).findFirst().orElseThrow().usernameKey();
+	}
+
+	private static UserSearchIndex.Index index(UserSearchIndex.Doc... docs) {
+		UserSearchIndex.Index index = new UserSearchIndex.Index();
+		for (UserSearchIndex.Doc doc : docs) {
+			index.put(doc);
+		}
+		return index;
+	}
+
+	private static Hit hit(long id, String username) {
+		return new Hit(id, username, "USER", false, null);
+	}
+
+	private static List<Long> ids(List<Hit> hits) {
+		return hits.stream().map(Hit::id).toList();
+	}
+}